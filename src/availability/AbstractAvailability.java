@@ -36,7 +36,7 @@ public abstract class AbstractAvailability implements Serializable {
 
     protected boolean alreadyInRelationshipWith(AbstractIndividualInterface p1, AbstractIndividualInterface p2) {
         boolean res;
-        res = (relationshipMap != null) && (relationshipMap.getEdge(p1.getId(), p2.getId()) != null);
+        res = (relationshipMap != null) && (relationshipMap.containsEdge(p1.getId(), p2.getId()));
         return res;
     }
 
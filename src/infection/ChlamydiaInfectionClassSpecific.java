@@ -3,6 +3,7 @@ package infection;
 import java.io.Serializable;
 import org.apache.commons.math3.distribution.AbstractRealDistribution;
 import person.AbstractIndividualInterface;
+import population.PersonClassifierCache;
 import random.RandomGenerator;
 import util.PersonClassifier;
 
@@ -19,6 +20,7 @@ public class ChlamydiaInfectionClassSpecific extends ChlamydiaInfection implemen
 	private final PersonClassifier personClassifier;
     private final AbstractRealDistribution[][] classSpecificDist; // classId, distIndex
     private final double[][][] classSpecificDistVar;
+    private transient PersonClassifierCache classifierCache = null;
 
     public ChlamydiaInfectionClassSpecific(RandomGenerator RNG,
             PersonClassifier personClassifier,
@@ -34,6 +36,22 @@ public class ChlamydiaInfectionClassSpecific extends ChlamydiaInfection implemen
         return personClassifier;
     }
 
+    /**
+     * Set a population classifier cache, so the class of each person is only computed once per time step.
+     *
+     * @param classifierCache cache from the population this infection is used in, or null to classify directly
+     */
+    public void setClassifierCache(PersonClassifierCache classifierCache) {
+        this.classifierCache = classifierCache;
+        if (classifierCache != null && personClassifier != null) {
+            classifierCache.register(personClassifier);
+        }
+    }
+
+    protected int classifyPerson(AbstractIndividualInterface p) {
+        return classifierCache != null ? classifierCache.classify(personClassifier, p) : personClassifier.classifyPerson(p);
+    }
+
     public AbstractRealDistribution[][] getClassSpecificDist() {
         return classSpecificDist;
     }
@@ -63,7 +81,7 @@ public class ChlamydiaInfectionClassSpecific extends ChlamydiaInfection implemen
 
         if (transmission) {
             if (getPersonClassifier() != null) {
-                int classId = getPersonClassifier().classifyPerson(tar);
+                int classId = classifyPerson(tar);
                 if (classId >= 0) {
                     double trans = getClassSpecificRandomDistValue(classId, tar.isMale() ? DIST_TRANS_FM_INDEX : DIST_TRANS_MF_INDEX);
                     return this.getRNG().nextDouble() < trans;
@@ -80,7 +98,7 @@ public class ChlamydiaInfectionClassSpecific extends ChlamydiaInfection implemen
     public double advancesState(AbstractIndividualInterface p) {
         if (getPersonClassifier() != null) {
 
-            int classId = getPersonClassifier().classifyPerson(p);
+            int classId = classifyPerson(p);
 
             if (classId >= 0) {
 
@@ -0,0 +1,201 @@
+package person;
+
+import infection.AbstractInfection;
+import population.ColumnarPersonStore;
+
+/**
+ * <p>
+ * A flyweight view of a single slot within a ColumnarPersonStore.</p>
+ *
+ * <p>
+ * It holds no state other than the store and slot index, so all attribute access are delegated to the primitive columns of the store.</p>
+ *
+ * @author Ben Hui
+ * @see population.ColumnarPersonStore
+ */
+public class ColumnarIndividual implements TreatablePersonInterface, java.io.Serializable {
+
+    private static final long serialVersionUID = 4127733594188417062L;
+
+    private final ColumnarPersonStore store;
+    private final int slot;
+
+    public ColumnarIndividual(ColumnarPersonStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
+    }
+
+    public ColumnarPersonStore getStore() {
+        return store;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public double getAge() {
+        return store.getAge(slot);
+    }
+
+    @Override
+    public int getId() {
+        return store.getId(slot);
+    }
+
+    /**
+     * Get the value of infectionStatus. Note that a new array is generated from the store on each call, use getInfectionStatus(int) where possible.
+     *
+     * @return a copy of infection status of this person
+     */
+    @Override
+    public int[] getInfectionStatus() {
+        int[] res = new int[store.getNumInfection()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = store.getInfectionStatus(i, slot);
+        }
+        return res;
+    }
+
+    @Override
+    public int getInfectionStatus(int index) {
+        return store.getInfectionStatus(index, slot);
+    }
+
+    @Override
+    public double getLastInfectedAtAge(int infectionIndex) {
+        return store.getLastInfectedAtAge(infectionIndex, slot);
+    }
+
+    @Override
+    public Comparable<?> getParameter(String id) {
+        int col = store.getParameterColumnIndex(id);
+        return col < 0 ? null : store.getParameter(col, slot);
+    }
+
+    @Override
+    public double getTimeUntilNextStage(int index) {
+        return store.getTimeUntilNextStage(index, slot);
+    }
+
+    /**
+     * Increment time for this person. Age is incremented by deltaT. For each infection, the person is infected if the last act was infectious, otherwise
+     * time until next stage is decremented and the infection is advanced once it reaches zero.
+     *
+     * <p>
+     * Not supported if the store is in scheduled mode, in which case ColumnarPersonStore.advanceScheduled should be used instead.</p>
+     *
+     * @param deltaT time increment
+     * @param infectionList infection list
+     * @return number of infection where infection status has changed
+     */
+    @Override
+    public int incrementTime(int deltaT, AbstractInfection[] infectionList) {
+        if (store.isStageScheduled()) {
+            throw new IllegalStateException(getClass().getName() + ".incrementTime: Store is in scheduled mode, use ColumnarPersonStore.advanceScheduled instead");
+        }
+        int numChanged = 0;
+        store.incrementAge(slot, deltaT);
+        for (int i = 0; i < infectionList.length; i++) {
+            int preStatus = store.getInfectionStatus(i, slot);
+            if (store.isLastActInfectious(i, slot)) {
+                store.setLastActInfectious(i, slot, false);
+                infectionList[i].infecting(this);
+            } else if (preStatus != AbstractIndividualInterface.INFECT_S) {
+                double remain = store.getTimeUntilNextStage(i, slot) - deltaT;
+                store.setTimeUntilNextStage(i, slot, remain);
+                if (remain <= 0) {
+                    infectionList[i].advancesState(this);
+                }
+            }
+            if (preStatus != store.getInfectionStatus(i, slot)) {
+                numChanged++;
+            }
+        }
+        return numChanged;
+    }
+
+    @Override
+    public boolean isMale() {
+        return store.isMale(slot);
+    }
+
+    @Override
+    public void setAge(double age) {
+        store.setAge(slot, age);
+    }
+
+    @Override
+    public void setInfectionStatus(int index, int newInfectionStatus) {
+        store.setInfectionStatus(index, slot, newInfectionStatus);
+    }
+
+    @Override
+    public void setLastActInfectious(int infectionIndex, boolean lastActInf) {
+        store.setLastActInfectious(infectionIndex, slot, lastActInf);
+    }
+
+    /**
+     * Set parameter value. Only numeric values are supported, and a new parameter column is added to the store if necessary.
+     *
+     * @param id parameter name
+     * @param value new parameter value, as a Number
+     * @return previous value, or null if the parameter column does not exist before
+     */
+    @Override
+    public Comparable<?> setParameter(String id, Comparable<?> value) {
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(getClass().getName() + ".setParameter: Value of \"" + id + "\" must be a Number");
+        }
+        int col = store.getParameterColumnIndex(id);
+        Double ori = null;
+        if (col < 0) {
+            col = store.addParameterColumn(id);
+        } else {
+            ori = store.getParameter(col, slot);
+        }
+        store.setParameter(col, slot, ((Number) value).doubleValue());
+        return ori;
+    }
+
+    @Override
+    public void setTimeUntilNextStage(int index, double newTimeUntilNextStage) {
+        store.setTimeUntilNextStage(index, slot, newTimeUntilNextStage);
+    }
+
+    @Override
+    public int getEnterPopulationAt() {
+        return store.getEnterPopulationAt(slot);
+    }
+
+    @Override
+    public double getStartingAge() {
+        return store.getStartingAge(slot);
+    }
+
+    @Override
+    public void setEnterPopulationAt(int enterPopulationAt) {
+        store.setEnterPopulationAt(slot, enterPopulationAt);
+    }
+
+    @Override
+    public void setLastInfectedAtAge(int infectionIndex, double age) {
+        store.setLastInfectedAtAge(infectionIndex, slot, age);
+    }
+
+    @Override
+    public int getLastTreatedAt() {
+        return store.getLastTreatedAt(slot);
+    }
+
+    @Override
+    public void setLastTreatedAt(int lastTreatedAt) {
+        store.setLastTreatedAt(slot, lastTreatedAt);
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarIndividual[slot=" + slot + ", id=" + getId() + "]";
+    }
+
+}
@@ -1,16 +1,20 @@
 package population;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Map;
-import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
 import availability.AbstractAvailability;
+import infection.AbstractInfection;
+import infection.AbstractInfectionWithPatientMapping;
 import person.AbstractIndividualInterface;
+import person.ColumnarIndividual;
 import random.RandomGenerator;
 import relationship.RelationshipMap;
+import relationship.RelationshipMapPrimitive;
 import relationship.SingleRelationship;
+import util.MetricsRegistry;
 import util.PersonClassifier;
 
 /**
@@ -34,168 +38,125 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
     public static final int FIELDS_NEXT_ID = FIELDS_AVAIL + 1;
     public static final int LENGTH_FIELDS = FIELDS_NEXT_ID + 1;
 
+    public static final String METRIC_PHASE_STAGE_PROGRESSION = "phase.stageProgression";
+    public static final String METRIC_PHASE_INSTANT_INFECTION = "phase.instantInfection";
+
     protected Object[] fields = new Object[LENGTH_FIELDS];
     private Map<Integer, AbstractIndividualInterface> localData;
+    private int lastCheckpointAt = -1; // Global time of last binary export or import, as base of delta checkpoint
+    private transient PersonClassifierCache classifierCache;
+    private transient MetricsRegistry metrics;
+    private transient SerodiscordantIndex serodiscordantIndex;
 
     // <editor-fold defaultstate="collapsed" desc="protected Map<Integer, AbstractIndividualInterface> generateLocalDataMap()">
+    /**
+     * Generate a person id to person mapping for this population.
+     *
+     * @return a PopulationIndexMap of current population
+     * @see PopulationIndexMap
+     */
     protected Map<Integer, AbstractIndividualInterface> generateLocalDataMap() {
-        Map<Integer, AbstractIndividualInterface> res; // Id -> Person            
-
-        res = new Map<Integer, AbstractIndividualInterface>() {
-            // Id -> Array index, with row = pid  / allPerson.length
-            // and col = pid % allPerson.length;
-            ArrayList<int[]> indexMap = new ArrayList<>();
-
-            @Override
-            public int size() {
-                return getPop().length;
-            }
-
-            @Override
-            public boolean isEmpty() {
-                return indexMap.isEmpty();
-            }
-
-            @Override
-            public boolean containsKey(Object key) { // Person Id
-                try {
-                    int row = ((Number) key).intValue() / getPop().length;
-                    int col = ((Number) key).intValue() % getPop().length;
-                    return row < indexMap.size() && indexMap.get(row)[col] >= 0;
-                } catch (ClassCastException ex) {
-                    return false;
-                }
-            }
+        return new PopulationIndexMap(this);
+    }
 
-            @Override
-            public AbstractIndividualInterface get(Object key) { // Person Id
-                try {
-                    int row = ((Number) key).intValue() / getPop().length;
-                    int col = ((Number) key).intValue() % getPop().length;
+    protected Map<Integer, AbstractIndividualInterface> getLocalData() {
+        if (localData == null) {
+            localData = generateLocalDataMap();
+        }
+        return localData;
+    }
 
-                    if (row < indexMap.size()) {
-                        int allPersonIndex = indexMap.get(row)[col];
-                        if (allPersonIndex < 0) {
-                            return null;
-                        } else {
-                            if (getPop()[allPersonIndex].getId() != ((Number) key).intValue()) {
-                                return null;   //Expired person
-                            } else {
-                                return getPop()[allPersonIndex];
-                            }
-                        }
-                    } else {
-                        return null;
-                    }
-                } catch (ClassCastException ex) {
-                    return null;
-                }
-            }
+    /**
+     * Discard the local data map, so it will be regenerated from getPop() when next needed.
+     */
+    protected void resetLocalData() {
+        localData = null;
+    }
 
-            @Override
-            public AbstractIndividualInterface put(Integer key, AbstractIndividualInterface value) { // Key = Array Index
-                if (key > getPop().length) {
-                    throw new IllegalArgumentException(getClass().getName() + ".put: Key should be array index < " + getPop().length);
-                }
-                int row = value.getId() / getPop().length;
-                int col = value.getId() % getPop().length;
+    /**
+     * Return the per time step PersonClassifier cache of this population, created on first use.
+     *
+     * @return classifier cache
+     * @see PersonClassifierCache
+     */
+    public PersonClassifierCache getClassifierCache() {
+        if (classifierCache == null) {
+            classifierCache = new PersonClassifierCache(this);
+        }
+        return classifierCache;
+    }
 
-                while (indexMap.size() <= row) { // Add a new row
-                    int[] newRow = new int[getPop().length];
-                    Arrays.fill(new int[getPop().length], -1);
-                    indexMap.add(newRow);
-                }
-                indexMap.get(row)[col] = key;
-                int nKey = ((Number) key).intValue();
-                getPop()[nKey] = value;
-                return value;
-            }
+    /**
+     * Return the metrics registry of this population, created on first use. Time of stage progression and instant infection are recorded
+     * automatically, and implementations of advanceTimeStep can time other phases (e.g. pairing and transmission) through MetricsRegistry.time.
+     *
+     * @return metrics registry
+     * @see MetricsRegistry
+     */
+    public MetricsRegistry getMetrics() {
+        if (metrics == null) {
+            metrics = new MetricsRegistry();
+        }
+        return metrics;
+    }
 
-            @Override
-            public boolean containsValue(Object value) {
-                try {
-                    AbstractIndividualInterface p = (AbstractIndividualInterface) value;
-                    int row = p.getId() / getPop().length;
-                    int col = p.getId() % getPop().length;
-                    return row < indexMap.size() && indexMap.get(row)[col] >= 0;
-                } catch (ClassCastException ex) {
-                    return false;
+    /**
+     * Register gauges of population size, relationship map sizes, number of infected, and estimated heap usage of fields, relationship maps and patient
+     * mapping of infections to the metrics registry of this population. Note that heap gauges walk the object graph on each snapshot.
+     */
+    public void registerPopulationGauges() {
+        MetricsRegistry reg = getMetrics();
+        reg.registerGauge("pop.size", () -> getPop() == null ? 0 : getPop().length);
+        reg.registerHeapGauge("heap.fields", fields);
+        RelationshipMap[] relMaps = getRelMap();
+        if (relMaps != null) {
+            for (int m = 0; m < relMaps.length; m++) {
+                RelationshipMap relMap = relMaps[m];
+                if (relMap != null) {
+                    reg.registerGauge("relMap." + m + ".edges", () -> relMap.edgeSet().size());
+                    reg.registerGauge("relMap." + m + ".vertices", () -> relMap.vertexSet().size());
+                    reg.registerHeapGauge("heap.relMap." + m, relMap);
                 }
             }
-
-            @Override
-            public AbstractIndividualInterface remove(Object key) {
-                try {
-                    int row = ((Number) key).intValue() / getPop().length;
-                    int col = ((Number) key).intValue() % getPop().length;
-                    if (row < indexMap.size() && indexMap.get(row)[col] >= 0) {
-                        int oldIndex = indexMap.get(row)[col];
-                        indexMap.get(row)[col] = -1;
-                        return getPop()[oldIndex];
-                    } else {
-                        return null;
+        }
+        AbstractInfection[] infList = getInfList();
+        if (infList != null) {
+            for (int i = 0; i < infList.length; i++) {
+                int infId = i;
+                reg.registerGauge("infection." + i + ".infected", () -> {
+                    ColumnarPersonStore store = getColumnarStore();
+                    if (store != null) {
+                        return store.countInfected(infId);
                     }
-                } catch (ClassCastException ex) {
-                    return null;
-                }
-            }
-
-            @Override
-            public void putAll(Map<? extends Integer, ? extends AbstractIndividualInterface> m) {
-                for (Integer arrKey : m.keySet()) {
-                    put(arrKey, m.get(arrKey)); // Just stick with put function
-                }
-            }
-
-            @Override
-            public void clear() {
-                indexMap.clear();
-            }
-
-            @Override
-            public Set<Integer> keySet() {
-                throw new UnsupportedOperationException("Not supported yet.");
-            }
-
-            @Override
-            public Collection<AbstractIndividualInterface> values() {
-                return Arrays.asList(Arrays.copyOf(getPop(), getPop().length, AbstractIndividualInterface[].class));
-            }
-
-            @Override
-            public Set<Map.Entry<Integer, AbstractIndividualInterface>> entrySet() {
-                java.util.HashMap<Integer, AbstractIndividualInterface> res = new java.util.HashMap<>();
-                int r = 0;
-                for (int[] row : indexMap) {
-                    for (int c = 0; c < row.length; c++) {
-                        if (row[c] > 0) {
-                            AbstractIndividualInterface ent;
-                            if (getPop()[row[c]].getId() == (r * getPop().length) + c) {
-                                ent = getPop()[row[c]];
-                                res.put(ent.getId(), ent);
-                            }
+                    long count = 0;
+                    for (AbstractIndividualInterface p : getPop()) {
+                        if (p != null && p.getInfectionStatus(infId) != AbstractIndividualInterface.INFECT_S) {
+                            count++;
                         }
                     }
-                    r++;
+                    return count;
+                });
+                if (infList[i] instanceof AbstractInfectionWithPatientMapping) {
+                    AbstractInfectionWithPatientMapping inf = (AbstractInfectionWithPatientMapping) infList[i];
+                    reg.registerGauge("infection." + i + ".currentlyInfected", () -> inf.getCurrentlyInfected().size());
+                    reg.registerHeapGauge("heap.infection." + i + ".currentlyInfected", inf.getCurrentlyInfected());
                 }
-                return res.entrySet();
-
             }
-        };
-
-        // Filling initial indexMap
-        for (int i = 0; i < getPop().length; i++) {
-            res.put(i, getPop()[i]);
         }
-
-        return res;
     }
 
-    protected Map<Integer, AbstractIndividualInterface> getLocalData() {
-        if (localData == null) {
-            localData = generateLocalDataMap();
+    /**
+     * Return person by id through the local data map, without boxing if the map is a PopulationIndexMap.
+     *
+     * @param id person id
+     * @return person with input id, or null if not found
+     */
+    public AbstractIndividualInterface getPersonById(int id) {
+        Map<Integer, AbstractIndividualInterface> map = getLocalData();
+        if (map instanceof PopulationIndexMap) {
+            return ((PopulationIndexMap) map).getByIdInt(id);
         }
-        return localData;
+        return map.get(id);
     }
 // </editor-fold>
 
@@ -206,6 +167,100 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
         out.writeObject(fields);
     }
 
+    /**
+     * Export population using the compact binary format defined in PopulationBinaryCodec. Persons are only stored as columns if the population is in
+     * columnar format, and relationship maps must be of one of PopulationBinaryCodec.SUPPORTED_MAP_CLASSES.
+     *
+     * @param out output
+     * @throws IOException if error occurs during writing
+     * @throws IllegalArgumentException if a relationship map is not supported in binary format
+     * @see PopulationBinaryCodec#encode(population.AbstractFieldsArrayPopulation, java.io.DataOutput)
+     */
+    public void encodePopToBinary(java.io.DataOutput out) throws IOException {
+        PopulationBinaryCodec.encode(this, out);
+    }
+
+    /**
+     * Import population previously exported by encodePopToBinary. The global time, infection list and all fields of this population will be replaced.
+     *
+     * @param in input
+     * @throws IOException if error occurs during reading
+     * @see PopulationBinaryCodec
+     */
+    public void decodePopFromBinary(java.io.DataInput in) throws IOException {
+        PopulationBinaryCodec.decode(this, in);
+        refreshSerodiscordantIndex();
+    }
+
+    /**
+     * Import population from an uncompressed binary population file. The file is memory mapped read-only, and person columns are read from the mapping
+     * until first write, so populations imported from the same file share it. The file must not be modified while this population still reads from it.
+     *
+     * @param popFile uncompressed file exported by encodePopToBinary
+     * @throws IOException if error occurs during reading
+     * @see PopulationBinaryCodec#decodeFile(population.AbstractFieldsArrayPopulation, java.io.File)
+     */
+    public void decodePopFromBinaryFile(java.io.File popFile) throws IOException {
+        PopulationBinaryCodec.decodeFile(this, popFile);
+        refreshSerodiscordantIndex();
+    }
+
+    /**
+     * Enable or disable delta checkpoints for this population. When enabled, changes to person and relationship are tracked so that
+     * encodePopDeltaToBinary only export those changed since last export. Only population in columnar format (see useColumnarPopulation) is supported.
+     *
+     * @param enable true to enable tracking
+     * @throws IllegalStateException if enabling and the population is not in columnar format
+     */
+    public void setDeltaCheckpointEnabled(boolean enable) {
+        ColumnarPersonStore store = getColumnarStore();
+        if (enable && store == null) {
+            throw new IllegalStateException(getClass().getName() + ".setDeltaCheckpointEnabled: Population is not in columnar format");
+        }
+        if (store != null) {
+            store.setTrackDirty(enable);
+        }
+        if (getRelMap() != null) {
+            for (RelationshipMap map : getRelMap()) {
+                if (map != null) {
+                    map.setTrackChanges(enable);
+                }
+            }
+        }
+    }
+
+    /**
+     * Export changes since last binary export or import. The result can be applied to the previous checkpoint using applyPopDeltaFromBinary.
+     *
+     * @param out output
+     * @throws IOException if error occurs during writing
+     * @throws IllegalStateException if there is no previous checkpoint, or delta checkpoint is not enabled
+     * @see PopulationBinaryCodec#encodeDelta(population.AbstractFieldsArrayPopulation, java.io.DataOutput)
+     */
+    public void encodePopDeltaToBinary(java.io.DataOutput out) throws IOException {
+        PopulationBinaryCodec.encodeDelta(this, out);
+    }
+
+    /**
+     * Apply changes exported by encodePopDeltaToBinary to this population.
+     *
+     * @param in input
+     * @throws IOException if error occurs during reading
+     * @see PopulationBinaryCodec#applyDelta(population.AbstractFieldsArrayPopulation, java.io.DataInput)
+     */
+    public void applyPopDeltaFromBinary(java.io.DataInput in) throws IOException {
+        PopulationBinaryCodec.applyDelta(this, in);
+        refreshSerodiscordantIndex();
+    }
+
+    int getLastCheckpointAt() {
+        return lastCheckpointAt;
+    }
+
+    void setLastCheckpointAt(int lastCheckpointAt) {
+        this.lastCheckpointAt = lastCheckpointAt;
+    }
+
     //</editor-fold>
     public AbstractFieldsArrayPopulation() {
         fields[FIELDS_NEXT_ID] = 0;
@@ -260,6 +315,66 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
     protected void setPop(AbstractIndividualInterface[] pop) {
         fields[FELIDS_POP] = pop;
     }
+    // </editor-fold>
+    // <editor-fold defaultstate="collapsed" desc="Columnar population backend">
+
+    /**
+     * Replace the population with a ColumnarPersonStore of the given size. Slots are empty (i.e. id of -1) until set through
+     * ColumnarPersonStore.setPerson, and getPop() will return the flyweight view of each slot.
+     *
+     * @param popSize number of person slots
+     * @param numInfection number of infection modelled
+     * @return the newly created store
+     */
+    protected ColumnarPersonStore useColumnarPopulation(int popSize, int numInfection) {
+        ColumnarPersonStore store = new ColumnarPersonStore(popSize, numInfection);
+        setPop(store.getIndividuals());
+        resetLocalData();
+        refreshSerodiscordantIndex();
+        return store;
+    }
+
+    /**
+     * Return the columnar backend of this population.
+     *
+     * @return the ColumnarPersonStore that backs getPop(), or null if the population is not stored in columnar format
+     */
+    public ColumnarPersonStore getColumnarStore() {
+        AbstractIndividualInterface[] pop = getPop();
+        if (pop != null && pop.length > 0 && pop[0] instanceof ColumnarIndividual) {
+            return ((ColumnarIndividual) pop[0]).getStore();
+        }
+        return null;
+    }
+
+
+    /**
+     * Increment time of all person in this population. If the population is in columnar format with scheduled mode enabled, only person with stage
+     * transition due are processed through ColumnarPersonStore.advanceScheduled. Otherwise incrementTime of each person is called.
+     *
+     * @param deltaT time increment
+     * @return number of person-infection with infection status changed
+     * @see ColumnarPersonStore#setStageScheduled(boolean)
+     */
+    protected int incrementPersonTime(int deltaT) {
+        MetricsRegistry.Timer timer = getMetrics().time(METRIC_PHASE_STAGE_PROGRESSION);
+        try {
+            ColumnarPersonStore store = getColumnarStore();
+            if (store != null && store.isStageScheduled()) {
+                return store.advanceScheduled(deltaT, getInfList());
+            }
+            int numChanged = 0;
+            for (AbstractIndividualInterface p : getPop()) {
+                if (p != null) {
+                    numChanged += p.incrementTime(deltaT, getInfList());
+                }
+            }
+            return numChanged;
+        } finally {
+            timer.close();
+        }
+    }
+
     // </editor-fold>
     // <editor-fold defaultstate="collapsed" desc="getRelMap and setRelMap">
 
@@ -269,6 +384,52 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
 
     public void setRelMap(RelationshipMap[] relMap) {
         fields[FIELDS_REL_MAP] = relMap;
+        refreshSerodiscordantIndex();
+    }
+
+    // </editor-fold>
+    // <editor-fold defaultstate="collapsed" desc="Serodiscordant relationship index">
+    /**
+     * Enable or disable the serodiscordant relationship index of this population. Once enabled, the index is kept up to date as relationships are
+     * formed or dissolved, and as infection status is changed through the ColumnarPersonStore of this population.
+     *
+     * @param enable true to enable the index
+     * @throws IllegalStateException if enabling and the population is not in columnar format, as changes of infection status could not be tracked
+     * @see SerodiscordantIndex
+     * @see AbstractFieldsArrayPopulation#useColumnarPopulation(int, int)
+     */
+    public void setSerodiscordantIndexEnabled(boolean enable) {
+        if (enable && getColumnarStore() == null) {
+            throw new IllegalStateException(getClass().getName()
+                    + ".setSerodiscordantIndexEnabled: Serodiscordant index requires a columnar population");
+        }
+        if (serodiscordantIndex != null) {
+            serodiscordantIndex.detach();
+            serodiscordantIndex = null;
+        }
+        if (enable) {
+            serodiscordantIndex = new SerodiscordantIndex(this);
+            serodiscordantIndex.attach();
+        }
+    }
+
+    /**
+     * Return the serodiscordant relationship index of this population.
+     *
+     * @return the index, or null if not enabled
+     */
+    public SerodiscordantIndex getSerodiscordantIndex() {
+        return serodiscordantIndex;
+    }
+
+    /**
+     * Recreate the index (if enabled) after the relationship maps, population or infection list are replaced. The index is disabled if the
+     * population is no longer in columnar format.
+     */
+    private void refreshSerodiscordantIndex() {
+        if (serodiscordantIndex != null) {
+            setSerodiscordantIndexEnabled(getColumnarStore() != null);
+        }
     }
 
     // </editor-fold>
@@ -305,6 +466,13 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
     // <editor-fold defaultstate="collapsed" desc="overwritten version of formRelationship">
     @Override
     protected SingleRelationship formRelationship(AbstractIndividualInterface[] pair, RelationshipMap relMap, int d) {
+        if (relMap instanceof RelationshipMapPrimitive) {
+            // Layer of a multiplex map, or a standalone map at index 0
+            int layer = ((RelationshipMapPrimitive) relMap).getLayer();
+            if (layer < getRelMap().length && getRelMap()[layer] == relMap) {
+                return formRelationship(pair, relMap, d, layer);
+            }
+        }
         for (int i = 0; i < getRelMap().length; i++) {
             if (getRelMap()[i] == relMap) {
                 return formRelationship(pair, relMap, d, i);
@@ -319,6 +487,15 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
      */
     @Override
     public int[] setInstantInfection(int infId, PersonClassifier infClassifer, float[] prevalByClass, int preExposeMax) {
+        MetricsRegistry.Timer timer = getMetrics().time(METRIC_PHASE_INSTANT_INFECTION);
+        try {
+            return setInstantInfectionSequential(infId, infClassifer, prevalByClass, preExposeMax);
+        } finally {
+            timer.close();
+        }
+    }
+
+    private int[] setInstantInfectionSequential(int infId, PersonClassifier infClassifer, float[] prevalByClass, int preExposeMax) {
 
         float[] preval = Arrays.copyOf(prevalByClass, prevalByClass.length);
         boolean[] negPreval = new boolean[preval.length];
@@ -340,23 +517,22 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
             preRun |= byCount[i];
         }
 
+        // Classify each person once, shared by both passes
         AbstractIndividualInterface[] candidates = getPop();
+        int[] candidateClass = new int[candidates.length];
+        infClassifer.classifyAll(candidates, candidateClass);
 
         if (preRun) {
-            ArrayList<AbstractIndividualInterface> candidatesArr
-                    = new ArrayList<>();
-            for (AbstractIndividualInterface person : getPop()) {
-                int cI = infClassifer.classifyPerson(person);
+            for (int k = 0; k < candidates.length; k++) {
+                int cI = candidateClass[k];
                 if (cI >= 0) {
                     popCount[cI]++;
-                    candidatesArr.add(person);
                     // Already infected
-                    if (person.getInfectionStatus()[infId] != AbstractIndividualInterface.INFECT_S) {
+                    if (candidates[k].getInfectionStatus(infId) != AbstractIndividualInterface.INFECT_S) {
                         alreadyInfCount[cI]++;
                     }
 
                 }
-                candidates = candidatesArr.toArray(new AbstractIndividualInterface[candidatesArr.size()]);
             }
         }
 
@@ -373,15 +549,14 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
 
         // At this stage - preval[i] is number of newly infected need
         if (needRun) {
-            for (AbstractIndividualInterface person : candidates) {
-                int cI = infClassifer.classifyPerson(person);
+            for (int k = 0; k < candidates.length; k++) {
+                int cI = candidateClass[k];
 
                 if (cI >= 0) {
-                    AbstractIndividualInterface p = person;
+                    AbstractIndividualInterface p = candidates[k];
                     infCount[cI + preval.length]++;
                     boolean newlyInfected;
                     int preExpose = 0;
-                    double infectAt, stateStart, cumulStageTime;
 
                     if (byCount[cI]) {
                         if (p.getInfectionStatus(infId) != AbstractIndividualInterface.INFECT_S) {
@@ -406,22 +581,7 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
                             if (preExposeMax > 0) {
                                 preExpose = getInfList()[infId].getRNG().nextInt(preExposeMax);
                             }
-
-                            infectAt = p.getAge() - preExpose;
-                            p.setLastInfectedAtAge(infId, infectAt);
-
-                            stateStart = -preExpose;
-
-                            // Determine status immediately
-                            cumulStageTime = p.getTimeUntilNextStage(infId);
-                            p.setTimeUntilNextStage(infId, cumulStageTime + stateStart);
-
-                            while ((p.getTimeUntilNextStage(infId)) < 0
-                                    && p.getInfectionStatus(infId) != AbstractIndividualInterface.INFECT_S) {
-                                cumulStageTime += Math.round(getInfList()[infId].advancesState(p));
-                                p.setTimeUntilNextStage(infId, cumulStageTime + stateStart);
-                            }
-
+                            applyPreExposure(p, infId, preExpose);
                         }
 
                         if (p.getInfectionStatus(infId) != AbstractIndividualInterface.INFECT_S) {
@@ -440,6 +600,138 @@ public abstract class AbstractFieldsArrayPopulation extends AbstractPopulation {
         return infCount;
     }
 
+    /**
+     * <p>
+     * A parallel version of setInstantInfection.</p>
+     *
+     * <p>
+     * Persons are classified once on the calling thread through classifyAll (so infClassifer need not be thread safe), and partitioned by class. The
+     * class arrays are then shared with the worker threads. A single value drawn from the RNG of
+     * the infection seeds an independent SplittableRandom stream for each class, which is used to select newly infected persons and their
+     * pre-exposure period. Selection of each class runs in parallel, while infecting and advancesState are called sequentially in array order as they
+     * draw from the RNG of the infection. Therefore the result is identical for a given seed irrespective of number of threads used.</p>
+     *
+     * <p>
+     * Unlike setInstantInfection, in classes where prevalence is specified by count, exactly the number of susceptible needed are selected, and persons
+     * recovered within their pre-exposure period are not replaced. Results will therefore differ from setInstantInfection with the same seed.</p>
+     *
+     * @param infId infection id
+     * @param infClassifer person type classifier
+     * @param prevalByClass list of prevalence based on person type, as in setInstantInfection
+     * @param preExposeMax number of days of pre-exposure.
+     * @return int[]{ number of newlyInfected by class..., number in class...}
+     */
+    public int[] setInstantInfectionParallel(int infId, PersonClassifier infClassifer, float[] prevalByClass, int preExposeMax) {
+        MetricsRegistry.Timer timer = getMetrics().time(METRIC_PHASE_INSTANT_INFECTION);
+        try {
+            return setInstantInfectionParallelImpl(infId, infClassifer, prevalByClass, preExposeMax);
+        } finally {
+            timer.close();
+        }
+    }
+
+    private int[] setInstantInfectionParallelImpl(int infId, PersonClassifier infClassifer, float[] prevalByClass, int preExposeMax) {
+        AbstractIndividualInterface[] pop = getPop();
+        AbstractInfection infection = getInfList()[infId];
+        int numClass = prevalByClass.length;
+        // Classify on the calling thread as in setInstantInfection, since classifier might not be thread safe
+        int[] classOf = new int[pop.length];
+        infClassifer.classifyAll(pop, classOf);
+        boolean[] susceptible = new boolean[pop.length];
+
+        // Partition susceptible by class, in array order
+        int[] popCount = new int[numClass];
+        int[] susCount = new int[numClass];
+        for (int k = 0; k < pop.length; k++) {
+            if (classOf[k] >= 0) {
+                popCount[classOf[k]]++;
+                susceptible[k] = pop[k].getInfectionStatus(infId) == AbstractIndividualInterface.INFECT_S;
+                if (susceptible[k]) {
+                    susCount[classOf[k]]++;
+                }
+            }
+        }
+        int[][] susByClass = new int[numClass][];
+        for (int c = 0; c < numClass; c++) {
+            susByClass[c] = new int[susCount[c]];
+            susCount[c] = 0;
+        }
+        for (int k = 0; k < pop.length; k++) {
+            if (susceptible[k]) {
+                susByClass[classOf[k]][susCount[classOf[k]]++] = k;
+            }
+        }
+
+        SplittableRandom rngRoot = new SplittableRandom(infection.getRNG().nextLong());
+        SplittableRandom[] rngByClass = new SplittableRandom[numClass];
+        for (int c = 0; c < numClass; c++) {
+            rngByClass[c] = rngRoot.split();
+        }
+
+        // Pre-exposure period of selected person, or -1 if not selected
+        int[] preExpose = new int[pop.length];
+        Arrays.fill(preExpose, -1);
+
+        IntStream.range(0, numClass).parallel().forEach(c -> {
+            int[] sus = susByClass[c];
+            SplittableRandom rng = rngByClass[c];
+            float preval = prevalByClass[c];
+            if (preval < 0 || preval >= 1) {
+                // By count - selection sampling of exactly numNeeded from susceptible
+                int numNeeded = preval < 0 ? Math.round(-preval * popCount[c]) - (popCount[c] - sus.length) : (int) preval;
+                int remain = sus.length;
+                for (int k : sus) {
+                    if (numNeeded > 0 && rng.nextInt(remain) < numNeeded) {
+                        preExpose[k] = preExposeMax > 0 ? rng.nextInt(preExposeMax) : 0;
+                        numNeeded--;
+                    }
+                    remain--;
+                }
+            } else {
+                for (int k : sus) {
+                    if (rng.nextDouble() < preval) {
+                        preExpose[k] = preExposeMax > 0 ? rng.nextInt(preExposeMax) : 0;
+                    }
+                }
+            }
+        });
+
+        int[] infCount = new int[numClass * 2];
+        System.arraycopy(popCount, 0, infCount, numClass, numClass);
+        for (int k = 0; k < pop.length; k++) {
+            if (preExpose[k] >= 0) {
+                AbstractIndividualInterface p = pop[k];
+                if (infection.infecting(p) != Double.POSITIVE_INFINITY) {
+                    applyPreExposure(p, infId, preExpose[k]);
+                }
+                if (p.getInfectionStatus(infId) != AbstractIndividualInterface.INFECT_S) {
+                    infCount[classOf[k]]++;
+                }
+            }
+        }
+        return infCount;
+    }
+
+    /**
+     * Backdate a newly infected person by preExpose days, and advance the infection to the stage it should be in now.
+     */
+    private void applyPreExposure(AbstractIndividualInterface p, int infId, int preExpose) {
+        double infectAt = p.getAge() - preExpose;
+        p.setLastInfectedAtAge(infId, infectAt);
+
+        double stateStart = -preExpose;
+
+        // Determine status immediately
+        double cumulStageTime = p.getTimeUntilNextStage(infId);
+        p.setTimeUntilNextStage(infId, cumulStageTime + stateStart);
+
+        while ((p.getTimeUntilNextStage(infId)) < 0
+                && p.getInfectionStatus(infId) != AbstractIndividualInterface.INFECT_S) {
+            cumulStageTime += Math.round(getInfList()[infId].advancesState(p));
+            p.setTimeUntilNextStage(infId, cumulStageTime + stateStart);
+        }
+    }
+
     public static String objectToPropStr(Object ent, Class<?> cls) {
         String res = "";
         if (ent != null) {
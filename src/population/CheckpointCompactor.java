@@ -0,0 +1,98 @@
+package population;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import person.AbstractIndividualInterface;
+import relationship.RelationshipMap;
+import relationship.SingleRelationship;
+
+/**
+ * <p>
+ * Merge a full binary population file and a chain of delta checkpoints (see PopulationBinaryCodec) into a single full binary population file, without
+ * instantiating the simulation that generated them.</p>
+ *
+ * <p>
+ * Usage: java population.CheckpointCompactor output_file base_file [delta_file_1 delta_file_2 ...]</p>
+ *
+ * @author Ben Hui
+ * @see PopulationBinaryCodec#encodeDelta(population.AbstractFieldsArrayPopulation, java.io.DataOutput)
+ */
+public class CheckpointCompactor {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Merge a full binary population file and a chain of delta checkpoints into a single full binary population file.
+     *
+     * @param baseFile uncompressed full population file written by PopulationBinaryCodec.encode
+     * @param deltaFiles delta files written by PopulationBinaryCodec.encodeDelta, in the order they were written
+     * @param outFile output full population file
+     * @throws IOException if error occurs during reading or writing, or if the delta files do not form a chain from the base file
+     */
+    public static void compact(File baseFile, File[] deltaFiles, File outFile) throws IOException {
+        CheckpointPopulation population = new CheckpointPopulation();
+        PopulationBinaryCodec.decodeFile(population, baseFile);
+        for (File deltaFile : deltaFiles) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(deltaFile), BUFFER_SIZE))) {
+                PopulationBinaryCodec.applyDelta(population, in);
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile), BUFFER_SIZE))) {
+            PopulationBinaryCodec.encode(population, out);
+        }
+    }
+
+    /**
+     * Usage: CheckpointCompactor output_file base_file [delta_file_1 delta_file_2 ...]. Exit with status 1 on invalid arguments or error.
+     *
+     * @param arg command line arguments
+     */
+    public static void main(String[] arg) {
+        if (arg.length < 2) {
+            System.err.println("Usage: java " + CheckpointCompactor.class.getName() + " output_file base_file [delta_file_1 delta_file_2 ...]");
+            System.exit(1);
+        }
+        File[] deltaFiles = new File[arg.length - 2];
+        for (int i = 0; i < deltaFiles.length; i++) {
+            deltaFiles[i] = new File(arg[i + 2]);
+        }
+        try {
+            compact(new File(arg[1]), deltaFiles, new File(arg[0]));
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Error: compaction into " + arg[0] + " failed.");
+            ex.printStackTrace(System.err);
+            System.exit(1);
+        }
+        System.out.println("Compacted " + deltaFiles.length + " delta file(s) into " + arg[0]);
+    }
+
+    /**
+     * A minimal population used only as a container for compaction, which cannot be simulated.
+     */
+    private static class CheckpointPopulation extends AbstractFieldsArrayPopulation {
+
+        private static final long serialVersionUID = 3920846119285530471L;
+
+        @Override
+        protected SingleRelationship formRelationship(AbstractIndividualInterface[] pair, RelationshipMap relMap, int d, int mapType) {
+            throw new IllegalStateException(getClass().getName() + ".formRelationship: Population loaded for checkpoint compaction cannot be simulated.");
+        }
+
+        @Override
+        public void advanceTimeStep(int deltaT) {
+            throw new IllegalStateException(getClass().getName() + ".advanceTimeStep: Population loaded for checkpoint compaction cannot be simulated.");
+        }
+
+        @Override
+        public void initialise() {
+            throw new IllegalStateException(getClass().getName() + ".initialise: Population loaded for checkpoint compaction cannot be simulated.");
+        }
+    }
+
+}
@@ -0,0 +1,876 @@
+package population;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import infection.AbstractInfection;
+import person.AbstractIndividualInterface;
+import person.ColumnarIndividual;
+
+/**
+ * <p>
+ * A struct-of-arrays storage for all individuals in a population.</p>
+ *
+ * <p>
+ * Instead of one heap object per person, each attribute is stored as a primitive column indexed by person slot (i.e. the array index within
+ * AbstractPopulation.getPop()). Infection specific attributes are stored as [infectionIndex][slot], so a loop over a single infection for the whole
+ * population walks a contiguous array.</p>
+ *
+ * <p>
+ * Each slot has a lightweight ColumnarIndividual view so the store can still be used where AbstractIndividualInterface is expected. Performance critical
+ * code should access the columns directly through the get/set methods of this class.</p>
+ *
+ * <p>
+ * A store imported through PopulationBinaryCodec.decodeFile reads its columns from a read-only memory mapping of the population file, so simulations
+ * importing the same file share its pages. A column is copied to heap on its first write (or when its backing array is requested), and the mapping is
+ * released once all columns are copied, or by detachMapping. The file must not be modified while the store still reads from it.</p>
+ *
+ * @author Ben Hui
+ * @see person.ColumnarIndividual
+ */
+public class ColumnarPersonStore implements java.io.Serializable {
+
+    private static final long serialVersionUID = -3051286641958474722L;
+
+    private final int capacity;
+    private final int numInfection;
+
+    // A null column (or infection and parameter column entry) is read from the mapping until copied on first write
+    private int[] id;
+    private boolean[] male;
+    private double[] age;
+    private double[] startingAge;
+    private int[] enterPopulationAt;
+    private int[] lastTreatedAt;
+
+    // [infectionIndex][slot]
+    private final int[][] infectionStatus;
+    private final double[][] timeUntilNextStage;
+    private final double[][] lastInfectedAtAge;
+    private final boolean[][] lastActInfectious;
+
+    // Optional named parameter columns
+    private String[] paramNames = new String[0];
+    private double[][] paramColumns = new double[0][];
+
+    private final ColumnarIndividual[] views;
+
+    private boolean trackDirty = false;
+    private BitSet dirty = null;
+
+    // Event driven stage progression, only used if scheduled mode is enabled
+    private InfectionStageScheduler stageScheduler = null;
+    private BitSet pendingInfectious = null; // Stage key with lastActInfectious set
+    private double stageClock = 0;
+
+    private transient StatusListener statusListener = null;
+
+    // Read-only mapping of imported file and position of each column within it. Not serialized, as all columns are copied before serialization.
+    private transient ByteBuffer mapped = null;
+    private transient int[] mappedOffset = null;
+    private transient int numMappedColumn = 0;
+
+    // Column index within mappedOffset, in the same order as stored by PopulationBinaryCodec
+    static final int COL_ID = 0;
+    static final int COL_MALE = COL_ID + 1;
+    static final int COL_AGE = COL_MALE + 1;
+    static final int COL_STARTING_AGE = COL_AGE + 1;
+    static final int COL_ENTER_POPULATION_AT = COL_STARTING_AGE + 1;
+    static final int COL_LAST_TREATED_AT = COL_ENTER_POPULATION_AT + 1;
+    static final int COL_INFECTION_STATUS = COL_LAST_TREATED_AT + 1; // Followed by other columns of first infection, then next infection
+    static final int COL_TIME_UNTIL_NEXT_STAGE = COL_INFECTION_STATUS + 1;
+    static final int COL_LAST_INFECTED_AT_AGE = COL_TIME_UNTIL_NEXT_STAGE + 1;
+    static final int COL_LAST_ACT_INFECTIOUS = COL_LAST_INFECTED_AT_AGE + 1;
+    static final int NUM_COL_PER_INFECTION = COL_LAST_ACT_INFECTIOUS + 1 - COL_INFECTION_STATUS;
+
+    /**
+     * Listener of infection status changes made through setInfectionStatus.
+     */
+    @FunctionalInterface
+    public interface StatusListener {
+
+        void statusChanged(int infId, int slot);
+    }
+
+    /**
+     * Create an empty store. All slots have id of -1 until set by setPerson.
+     *
+     * @param capacity number of person slots
+     * @param numInfection number of infection modelled
+     */
+    public ColumnarPersonStore(int capacity, int numInfection) {
+        this.capacity = capacity;
+        this.numInfection = numInfection;
+
+        id = new int[capacity];
+        male = new boolean[capacity];
+        age = new double[capacity];
+        startingAge = new double[capacity];
+        enterPopulationAt = new int[capacity];
+        lastTreatedAt = new int[capacity];
+
+        infectionStatus = new int[numInfection][capacity];
+        timeUntilNextStage = new double[numInfection][capacity];
+        lastInfectedAtAge = new double[numInfection][capacity];
+        lastActInfectious = new boolean[numInfection][capacity];
+
+        Arrays.fill(id, -1);
+        Arrays.fill(lastTreatedAt, -1);
+        for (int i = 0; i < numInfection; i++) {
+            Arrays.fill(infectionStatus[i], AbstractIndividualInterface.INFECT_S);
+            Arrays.fill(lastInfectedAtAge[i], -1);
+        }
+
+        views = createViews();
+    }
+
+    /**
+     * Create a store with all columns read from a read-only buffer, e.g. a memory mapping of a binary population file, until they are copied on
+     * first write.
+     *
+     * @param capacity number of person slots
+     * @param numInfection number of infection modelled
+     * @param paramNames names of parameter columns
+     * @param mapped buffer containing all columns, in big-endian
+     * @param mappedOffset position of each column within the buffer, indexed by column index (e.g. COL_ID)
+     */
+    ColumnarPersonStore(int capacity, int numInfection, String[] paramNames, ByteBuffer mapped, int[] mappedOffset) {
+        this.capacity = capacity;
+        this.numInfection = numInfection;
+        this.paramNames = Arrays.copyOf(paramNames, paramNames.length);
+        if (mappedOffset.length != parameterColumnIndex(paramNames.length)) {
+            throw new IllegalArgumentException(getClass().getName() + ": Expect " + parameterColumnIndex(paramNames.length) + " mapped columns");
+        }
+
+        infectionStatus = new int[numInfection][];
+        timeUntilNextStage = new double[numInfection][];
+        lastInfectedAtAge = new double[numInfection][];
+        lastActInfectious = new boolean[numInfection][];
+        paramColumns = new double[paramNames.length][];
+
+        this.mapped = mapped.duplicate();
+        this.mappedOffset = mappedOffset;
+        this.numMappedColumn = mappedOffset.length;
+
+        views = createViews();
+    }
+
+    private ColumnarIndividual[] createViews() {
+        ColumnarIndividual[] res = new ColumnarIndividual[capacity];
+        for (int s = 0; s < capacity; s++) {
+            res[s] = new ColumnarIndividual(this, s);
+        }
+        return res;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getNumInfection() {
+        return numInfection;
+    }
+
+    /**
+     * Return the flyweight view of a slot. The same view object is returned for the same slot.
+     *
+     * @param slot person slot
+     * @return view of the slot
+     */
+    public ColumnarIndividual getIndividual(int slot) {
+        return views[slot];
+    }
+
+    /**
+     * Return a new array containing the flyweight view of all slots, suitable for AbstractPopulation.setPop.
+     *
+     * @return all views, ordered by slot
+     */
+    public AbstractIndividualInterface[] getIndividuals() {
+        return Arrays.copyOf(views, capacity, AbstractIndividualInterface[].class);
+    }
+
+    /**
+     * (Re)initialise a slot with a new person. Infection related columns and parameter columns are reset.
+     *
+     * @param slot person slot
+     * @param personId person id
+     * @param isMale gender of the person
+     * @param currentAge age in days
+     * @param enterAt the time step where the person enter the population
+     * @return view of the slot
+     */
+    public ColumnarIndividual setPerson(int slot, int personId, boolean isMale, double currentAge, int enterAt) {
+        idColumn()[slot] = personId;
+        maleColumn()[slot] = isMale;
+        ageColumn()[slot] = currentAge;
+        startingAgeColumn()[slot] = currentAge;
+        enterPopulationAtColumn()[slot] = enterAt;
+        lastTreatedAtColumn()[slot] = -1;
+        for (int i = 0; i < numInfection; i++) {
+            getInfectionStatusColumn(i)[slot] = AbstractIndividualInterface.INFECT_S;
+            getTimeUntilNextStageColumn(i)[slot] = 0;
+            lastInfectedAtAgeColumn(i)[slot] = -1;
+            lastActInfectiousColumn(i)[slot] = false;
+        }
+        for (int c = 0; c < paramColumns.length; c++) {
+            parameterColumn(c)[slot] = 0;
+        }
+        if (stageScheduler != null) {
+            for (int i = 0; i < numInfection; i++) {
+                stageScheduler.cancel(stageKey(i, slot));
+                pendingInfectious.clear(stageKey(i, slot));
+            }
+        }
+        markDirty(slot);
+        return views[slot];
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Dirty tracking, used for delta checkpoints">
+    /**
+     * Enable or disable tracking of modified slots. When enabled, any slot changed through the set methods of this class is marked as dirty.
+     * Changes made directly through the backing column arrays must be marked using markDirty.
+     *
+     * <p>
+     * Note that age increment through incrementAge and incrementAgeAll are not tracked, as all person are expected to age at the same rate as global
+     * time. The same applies to stage timers of infected persons in scheduled mode.</p>
+     *
+     * @param trackDirty true to enable tracking
+     */
+    public void setTrackDirty(boolean trackDirty) {
+        this.trackDirty = trackDirty;
+        if (trackDirty && dirty == null) {
+            dirty = new BitSet(capacity);
+        }
+    }
+
+    public boolean isTrackDirty() {
+        return trackDirty;
+    }
+
+    public void markDirty(int slot) {
+        if (trackDirty) {
+            dirty.set(slot);
+        }
+    }
+
+    /**
+     * Return all slots modified since last clearDirty call, in ascending order.
+     *
+     * @return dirty slots, or empty array if tracking is not enabled
+     */
+    public int[] getDirtySlots() {
+        return dirty == null ? new int[0] : dirty.stream().toArray();
+    }
+
+    public void clearDirty() {
+        if (dirty != null) {
+            dirty.clear();
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Person columns">
+    public int getId(int slot) {
+        return id != null ? id[slot] : mappedInt(COL_ID, slot);
+    }
+
+    public boolean isMale(int slot) {
+        return male != null ? male[slot] : mappedBoolean(COL_MALE, slot);
+    }
+
+    public double getAge(int slot) {
+        return age != null ? age[slot] : mappedDouble(COL_AGE, slot);
+    }
+
+    /**
+     * Increment age of a person. Unlike setAge, the slot is not marked as dirty.
+     *
+     * @param slot person slot
+     * @param deltaT time increment
+     */
+    public void incrementAge(int slot, int deltaT) {
+        ageColumn()[slot] += deltaT;
+    }
+
+    public void setAge(int slot, double newAge) {
+        markDirty(slot);
+        ageColumn()[slot] = newAge;
+    }
+
+    public double getStartingAge(int slot) {
+        return startingAge != null ? startingAge[slot] : mappedDouble(COL_STARTING_AGE, slot);
+    }
+
+    public int getEnterPopulationAt(int slot) {
+        return enterPopulationAt != null ? enterPopulationAt[slot] : mappedInt(COL_ENTER_POPULATION_AT, slot);
+    }
+
+    public void setEnterPopulationAt(int slot, int enterAt) {
+        markDirty(slot);
+        enterPopulationAtColumn()[slot] = enterAt;
+    }
+
+    public int getLastTreatedAt(int slot) {
+        return lastTreatedAt != null ? lastTreatedAt[slot] : mappedInt(COL_LAST_TREATED_AT, slot);
+    }
+
+    public void setLastTreatedAt(int slot, int treatedAt) {
+        markDirty(slot);
+        lastTreatedAtColumn()[slot] = treatedAt;
+    }
+
+    /**
+     * Increment age of all slots.
+     *
+     * @param deltaT time increment
+     */
+    public void incrementAgeAll(int deltaT) {
+        double[] col = ageColumn();
+        for (int s = 0; s < capacity; s++) {
+            col[s] += deltaT;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Infection columns">
+    public int getInfectionStatus(int infId, int slot) {
+        int[] col = infectionStatus[infId];
+        return col != null ? col[slot] : mappedInt(infectionColumnIndex(infId, COL_INFECTION_STATUS), slot);
+    }
+
+    public void setInfectionStatus(int infId, int slot, int status) {
+        markDirty(slot);
+        int[] col = getInfectionStatusColumn(infId);
+        int ori = col[slot];
+        if (stageScheduler != null) {
+            double remain = getTimeUntilNextStage(infId, slot);
+            col[slot] = status;
+            scheduleStage(infId, slot, remain);
+        } else {
+            col[slot] = status;
+        }
+        if (statusListener != null && ori != status) {
+            statusListener.statusChanged(infId, slot);
+        }
+    }
+
+    /**
+     * Set listener to be notified when infection status of a slot is changed through setInfectionStatus. Changes made by setPerson, or directly
+     * through the backing column arrays, are not notified. The listener is not serialized.
+     *
+     * @param statusListener listener, or null to remove
+     */
+    public void setStatusListener(StatusListener statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    public StatusListener getStatusListener() {
+        return statusListener;
+    }
+
+    public double getTimeUntilNextStage(int infId, int slot) {
+        // Scheduled mode copies the column when enabled
+        if (stageScheduler != null && stageScheduler.contains(stageKey(infId, slot))) {
+            return timeUntilNextStage[infId][slot] - stageClock;
+        }
+        double[] col = timeUntilNextStage[infId];
+        return col != null ? col[slot] : mappedDouble(infectionColumnIndex(infId, COL_TIME_UNTIL_NEXT_STAGE), slot);
+    }
+
+    public void setTimeUntilNextStage(int infId, int slot, double time) {
+        markDirty(slot);
+        if (stageScheduler != null) {
+            scheduleStage(infId, slot, time);
+        } else {
+            getTimeUntilNextStageColumn(infId)[slot] = time;
+        }
+    }
+
+    public double getLastInfectedAtAge(int infId, int slot) {
+        double[] col = lastInfectedAtAge[infId];
+        return col != null ? col[slot] : mappedDouble(infectionColumnIndex(infId, COL_LAST_INFECTED_AT_AGE), slot);
+    }
+
+    public void setLastInfectedAtAge(int infId, int slot, double infAge) {
+        markDirty(slot);
+        lastInfectedAtAgeColumn(infId)[slot] = infAge;
+    }
+
+    public boolean isLastActInfectious(int infId, int slot) {
+        boolean[] col = lastActInfectious[infId];
+        return col != null ? col[slot] : mappedBoolean(infectionColumnIndex(infId, COL_LAST_ACT_INFECTIOUS), slot);
+    }
+
+    public void setLastActInfectious(int infId, int slot, boolean lastActInf) {
+        markDirty(slot);
+        lastActInfectiousColumn(infId)[slot] = lastActInf;
+        if (stageScheduler != null) {
+            pendingInfectious.set(stageKey(infId, slot), lastActInf);
+        }
+    }
+
+    /**
+     * Return the backing infection status column of an infection. Changes to the returned array are reflected in the store.
+     *
+     * @param infId infection index
+     * @return infection status indexed by slot
+     */
+    public int[] getInfectionStatusColumn(int infId) {
+        if (infectionStatus[infId] == null) {
+            infectionStatus[infId] = copyInts(infectionColumnIndex(infId, COL_INFECTION_STATUS));
+        }
+        return infectionStatus[infId];
+    }
+
+    /**
+     * Return the backing time until next stage column of an infection. Changes to the returned array are reflected in the store.
+     *
+     * <p>
+     * Note that if scheduled mode is enabled, entries of scheduled transitions store the absolute time of transition (in stage clock) instead. Use
+     * getTimeUntilNextStage in this case.</p>
+     *
+     * @param infId infection index
+     * @return time until next stage indexed by slot
+     */
+    public double[] getTimeUntilNextStageColumn(int infId) {
+        if (timeUntilNextStage[infId] == null) {
+            timeUntilNextStage[infId] = copyDoubles(infectionColumnIndex(infId, COL_TIME_UNTIL_NEXT_STAGE));
+        }
+        return timeUntilNextStage[infId];
+    }
+
+    /**
+     * Count number of slots with a non-susceptible status for selected infection.
+     *
+     * @param infId infection index
+     * @return number of slots not in AbstractIndividualInterface.INFECT_S
+     */
+    public int countInfected(int infId) {
+        int count = 0;
+        int[] col = infectionStatus[infId];
+        if (col == null) {
+            for (int s = 0; s < capacity; s++) {
+                if (getInfectionStatus(infId, s) != AbstractIndividualInterface.INFECT_S) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        for (int s = 0; s < capacity; s++) {
+            if (col[s] != AbstractIndividualInterface.INFECT_S) {
+                count++;
+            }
+        }
+        return count;
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Event driven stage progression">
+    /**
+     * <p>
+     * Enable or disable scheduled mode for infection stage progression.</p>
+     *
+     * <p>
+     * In scheduled mode, the time of the next stage transition of each infected person is kept in an InfectionStageScheduler, and advanceScheduled only
+     * touches persons that are infected by their last act, or whose stage transition is due in the current time step. Person time should then be
+     * incremented through advanceScheduled instead of incrementTime of each person.</p>
+     *
+     * @param enable true to enable scheduled mode
+     * @see InfectionStageScheduler
+     */
+    public void setStageScheduled(boolean enable) {
+        if (enable && stageScheduler == null) {
+            stageScheduler = new InfectionStageScheduler(capacity * numInfection);
+            pendingInfectious = new BitSet(capacity * numInfection);
+            for (int i = 0; i < numInfection; i++) {
+                // Scheduled transitions are stored in place
+                getTimeUntilNextStageColumn(i);
+            }
+            for (int s = 0; s < capacity; s++) {
+                for (int i = 0; i < numInfection; i++) {
+                    pendingInfectious.set(stageKey(i, s), isLastActInfectious(i, s));
+                    scheduleStage(i, s, timeUntilNextStage[i][s]);
+                }
+            }
+        } else if (!enable && stageScheduler != null) {
+            for (int s = 0; s < capacity; s++) {
+                for (int i = 0; i < numInfection; i++) {
+                    timeUntilNextStage[i][s] = getTimeUntilNextStage(i, s);
+                }
+            }
+            stageScheduler = null;
+            pendingInfectious = null;
+        }
+    }
+
+    public boolean isStageScheduled() {
+        return stageScheduler != null;
+    }
+
+    /**
+     * Return the time elapsed through advanceScheduled. Used as the time base of scheduled transitions.
+     *
+     * @return stage clock
+     */
+    public double getStageClock() {
+        return stageClock;
+    }
+
+    /**
+     * <p>
+     * Increment time for all person in scheduled mode. This is equivalent to calling incrementTime of every person in slot order, except that only
+     * those with a stage transition due, or infected by their last act, are processed.</p>
+     *
+     * <p>
+     * As in incrementTime, the stage timer of a person infected by their last act is not decremented in that time step.</p>
+     *
+     * @param deltaT time increment
+     * @param infectionList infection list
+     * @return number of person-infection with infection status changed
+     */
+    public int advanceScheduled(int deltaT, AbstractInfection[] infectionList) {
+        if (stageScheduler == null) {
+            throw new IllegalStateException(getClass().getName() + ".advanceScheduled: Scheduled mode not enabled");
+        }
+        int numChanged = 0;
+        stageClock += deltaT;
+        incrementAgeAll(deltaT);
+
+        int[] due = stageScheduler.pollDue(stageClock);
+        int[] pending = pendingInfectious.stream().toArray();
+        pendingInfectious.clear();
+
+        int d = 0;
+        int p = 0;
+        while (d < due.length || p < pending.length) {
+            int key;
+            if (p >= pending.length || (d < due.length && due[d] < pending[p])) {
+                key = due[d++];
+            } else {
+                key = pending[p++];
+                if (d < due.length && due[d] == key) {
+                    d++;
+                    // Polled from schedule, so stage timer is frozen from its absolute time
+                    stageScheduler.schedule(key, timeUntilNextStage[key % numInfection][key / numInfection]);
+                }
+            }
+            int slot = key / numInfection;
+            int infId = key % numInfection;
+            boolean isInfectious = isLastActInfectious(infId, slot);
+
+            if (stageScheduler.contains(key)) {
+                // Infected by last act while already infected, stage timer is not decremented in this time step
+                double remain = getTimeUntilNextStage(infId, slot) + deltaT;
+                stageScheduler.cancel(key);
+                timeUntilNextStage[infId][slot] = remain;
+            } else if (!isInfectious) {
+                timeUntilNextStage[infId][slot] -= stageClock;
+            }
+
+            int preStatus = getInfectionStatus(infId, slot);
+            if (isInfectious) {
+                setLastActInfectious(infId, slot, false);
+                infectionList[infId].infecting(views[slot]);
+            } else if (preStatus != AbstractIndividualInterface.INFECT_S) {
+                infectionList[infId].advancesState(views[slot]);
+            }
+            if (!stageScheduler.contains(key)) {
+                // Not rescheduled by infection (e.g. advancesState not setting new stage timer)
+                scheduleStage(infId, slot, timeUntilNextStage[infId][slot]);
+            }
+            if (preStatus != getInfectionStatus(infId, slot)) {
+                numChanged++;
+            }
+        }
+        return numChanged;
+    }
+
+    private int stageKey(int infId, int slot) {
+        return slot * numInfection + infId;
+    }
+
+    /**
+     * Schedule the next stage transition if the person is infected and has a finite stage timer. Otherwise the relative stage timer is stored.
+     */
+    private void scheduleStage(int infId, int slot, double remain) {
+        int key = stageKey(infId, slot);
+        if (getInfectionStatus(infId, slot) != AbstractIndividualInterface.INFECT_S
+                && !Double.isInfinite(remain) && !Double.isNaN(remain)) {
+            timeUntilNextStage[infId][slot] = stageClock + remain;
+            stageScheduler.schedule(key, stageClock + remain);
+        } else {
+            stageScheduler.cancel(key);
+            timeUntilNextStage[infId][slot] = remain;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Parameter columns">
+    /**
+     * Register a named parameter column, stored as double. Return existing column index if already registered.
+     *
+     * @param name parameter name, as used in AbstractIndividualInterface.getParameter
+     * @return column index
+     */
+    public int addParameterColumn(String name) {
+        int index = getParameterColumnIndex(name);
+        if (index < 0) {
+            index = paramNames.length;
+            paramNames = Arrays.copyOf(paramNames, index + 1);
+            paramColumns = Arrays.copyOf(paramColumns, index + 1);
+            paramNames[index] = name;
+            paramColumns[index] = new double[capacity];
+        }
+        return index;
+    }
+
+    public int getParameterColumnIndex(String name) {
+        for (int i = 0; i < paramNames.length; i++) {
+            if (paramNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String[] getParameterColumnNames() {
+        return Arrays.copyOf(paramNames, paramNames.length);
+    }
+
+    public double getParameter(int column, int slot) {
+        double[] col = paramColumns[column];
+        return col != null ? col[slot] : mappedDouble(parameterColumnIndex(column), slot);
+    }
+
+    public void setParameter(int column, int slot, double value) {
+        markDirty(slot);
+        parameterColumn(column)[slot] = value;
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Raw column access, used by PopulationBinaryCodec">
+    // Columns read from the mapping are copied on first call
+    int[] idColumn() {
+        if (id == null) {
+            id = copyInts(COL_ID);
+        }
+        return id;
+    }
+
+    boolean[] maleColumn() {
+        if (male == null) {
+            male = copyBooleans(COL_MALE);
+        }
+        return male;
+    }
+
+    double[] ageColumn() {
+        if (age == null) {
+            age = copyDoubles(COL_AGE);
+        }
+        return age;
+    }
+
+    double[] startingAgeColumn() {
+        if (startingAge == null) {
+            startingAge = copyDoubles(COL_STARTING_AGE);
+        }
+        return startingAge;
+    }
+
+    int[] enterPopulationAtColumn() {
+        if (enterPopulationAt == null) {
+            enterPopulationAt = copyInts(COL_ENTER_POPULATION_AT);
+        }
+        return enterPopulationAt;
+    }
+
+    int[] lastTreatedAtColumn() {
+        if (lastTreatedAt == null) {
+            lastTreatedAt = copyInts(COL_LAST_TREATED_AT);
+        }
+        return lastTreatedAt;
+    }
+
+    double[] lastInfectedAtAgeColumn(int infId) {
+        if (lastInfectedAtAge[infId] == null) {
+            lastInfectedAtAge[infId] = copyDoubles(infectionColumnIndex(infId, COL_LAST_INFECTED_AT_AGE));
+        }
+        return lastInfectedAtAge[infId];
+    }
+
+    boolean[] lastActInfectiousColumn(int infId) {
+        if (lastActInfectious[infId] == null) {
+            lastActInfectious[infId] = copyBooleans(infectionColumnIndex(infId, COL_LAST_ACT_INFECTIOUS));
+        }
+        return lastActInfectious[infId];
+    }
+
+    double[] parameterColumn(int column) {
+        if (paramColumns[column] == null) {
+            paramColumns[column] = copyDoubles(parameterColumnIndex(column));
+        }
+        return paramColumns[column];
+    }
+
+    /**
+     * Return time until next stage column, or a copy of it relative to stage clock if in scheduled mode.
+     */
+    double[] timeUntilNextStageSnapshot(int infId) {
+        if (stageScheduler == null) {
+            return getTimeUntilNextStageColumn(infId);
+        }
+        double[] res = new double[capacity];
+        for (int s = 0; s < capacity; s++) {
+            res[s] = getTimeUntilNextStage(infId, s);
+        }
+        return res;
+    }
+    // </editor-fold>
+
+
+    // <editor-fold defaultstate="collapsed" desc="Read-only mapping of imported file">
+    /**
+     * Return true if some columns are still read from the read-only mapping of the file this store is imported from.
+     *
+     * @return true if the store is backed by a mapping
+     * @see PopulationBinaryCodec#decodeFile(population.AbstractFieldsArrayPopulation, java.io.File)
+     */
+    public boolean isMapped() {
+        return mapped != null;
+    }
+
+    /**
+     * Copy all columns still read from the mapping of the imported file, and release the mapping. Must be called before the file is modified.
+     */
+    public void detachMapping() {
+        if (mapped != null) {
+            idColumn();
+            maleColumn();
+            ageColumn();
+            startingAgeColumn();
+            enterPopulationAtColumn();
+            lastTreatedAtColumn();
+            for (int i = 0; i < numInfection; i++) {
+                getInfectionStatusColumn(i);
+                getTimeUntilNextStageColumn(i);
+                lastInfectedAtAgeColumn(i);
+                lastActInfectiousColumn(i);
+            }
+            for (int c = 0; c < paramColumns.length; c++) {
+                parameterColumn(c);
+            }
+        }
+    }
+
+    /**
+     * Return the values of a column still read from the mapping, in the byte order written by PopulationBinaryCodec, without copying the column.
+     *
+     * @param col column index within the mapping, e.g. COL_AGE or infectionColumnIndex(infId, COL_INFECTION_STATUS)
+     * @param bytesPerValue size of each value of the column
+     * @return read-only buffer of the column, or null if the column is in heap
+     */
+    ByteBuffer mappedColumn(int col, int bytesPerValue) {
+        if (mapped == null || isColumnInHeap(col)) {
+            return null;
+        }
+        ByteBuffer res = mapped.duplicate();
+        res.position(mappedOffset[col]);
+        res.limit(mappedOffset[col] + capacity * bytesPerValue);
+        return res.slice();
+    }
+
+    private boolean isColumnInHeap(int col) {
+        switch (col) {
+            case COL_ID:
+                return id != null;
+            case COL_MALE:
+                return male != null;
+            case COL_AGE:
+                return age != null;
+            case COL_STARTING_AGE:
+                return startingAge != null;
+            case COL_ENTER_POPULATION_AT:
+                return enterPopulationAt != null;
+            case COL_LAST_TREATED_AT:
+                return lastTreatedAt != null;
+            default:
+        }
+        if (col >= parameterColumnIndex(0)) {
+            return paramColumns[col - parameterColumnIndex(0)] != null;
+        }
+        int infId = (col - COL_INFECTION_STATUS) / NUM_COL_PER_INFECTION;
+        switch (col - infId * NUM_COL_PER_INFECTION) {
+            case COL_INFECTION_STATUS:
+                return infectionStatus[infId] != null;
+            case COL_TIME_UNTIL_NEXT_STAGE:
+                return timeUntilNextStage[infId] != null;
+            case COL_LAST_INFECTED_AT_AGE:
+                return lastInfectedAtAge[infId] != null;
+            default:
+                return lastActInfectious[infId] != null;
+        }
+    }
+
+    static int infectionColumnIndex(int infId, int col) {
+        return col + infId * NUM_COL_PER_INFECTION;
+    }
+
+    int parameterColumnIndex(int column) {
+        return COL_INFECTION_STATUS + numInfection * NUM_COL_PER_INFECTION + column;
+    }
+
+    private int mappedInt(int col, int slot) {
+        return mapped.getInt(mappedOffset[col] + slot * Integer.BYTES);
+    }
+
+    private double mappedDouble(int col, int slot) {
+        return mapped.getDouble(mappedOffset[col] + slot * Double.BYTES);
+    }
+
+    private boolean mappedBoolean(int col, int slot) {
+        return mapped.get(mappedOffset[col] + slot) != 0;
+    }
+
+    private int[] copyInts(int col) {
+        int[] res = new int[capacity];
+        ByteBuffer src = mapped.duplicate();
+        src.position(mappedOffset[col]);
+        src.asIntBuffer().get(res);
+        columnCopied();
+        return res;
+    }
+
+    private double[] copyDoubles(int col) {
+        double[] res = new double[capacity];
+        ByteBuffer src = mapped.duplicate();
+        src.position(mappedOffset[col]);
+        src.asDoubleBuffer().get(res);
+        columnCopied();
+        return res;
+    }
+
+    private boolean[] copyBooleans(int col) {
+        boolean[] res = new boolean[capacity];
+        for (int s = 0; s < capacity; s++) {
+            res[s] = mappedBoolean(col, s);
+        }
+        columnCopied();
+        return res;
+    }
+
+    private void columnCopied() {
+        if (--numMappedColumn == 0) {
+            mapped = null;
+            mappedOffset = null;
+        }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+        detachMapping();
+        out.defaultWriteObject();
+    }
+    // </editor-fold>
+
+}
@@ -0,0 +1,197 @@
+package population;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * An indexed binary min-heap of infection stage transitions, keyed by the absolute time of transition.</p>
+ *
+ * <p>
+ * Each entry is identified by an int key in the range [0, capacity) (e.g. slot * numInfection + infectionIndex as used by ColumnarPersonStore), and a key
+ * can only be scheduled once. Rescheduling an existing key updates its transition time in O(log n), and the position of each key is indexed so cancel
+ * and contains do not need to search the heap.</p>
+ *
+ * <p>
+ * Entries with the same transition time are ordered by key, so the order of transitions within a time step is deterministic.</p>
+ *
+ * @author Ben Hui
+ * @see ColumnarPersonStore#setStageScheduled(boolean)
+ */
+public class InfectionStageScheduler implements java.io.Serializable {
+
+    private static final long serialVersionUID = 7304956018218243513L;
+
+    private final int[] heapKey;
+    private final double[] heapTime;
+    private final int[] posOfKey; // Key -> Heap position, or -1 if not scheduled
+    private int size = 0;
+
+    /**
+     * Create an empty scheduler.
+     *
+     * @param capacity maximum key value (exclusive)
+     */
+    public InfectionStageScheduler(int capacity) {
+        heapKey = new int[capacity];
+        heapTime = new double[capacity];
+        posOfKey = new int[capacity];
+        Arrays.fill(posOfKey, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int key) {
+        return posOfKey[key] >= 0;
+    }
+
+    /**
+     * Return the scheduled transition time of a key.
+     *
+     * @param key entry key
+     * @return transition time, or Double.NaN if not scheduled
+     */
+    public double getTime(int key) {
+        int pos = posOfKey[key];
+        return pos < 0 ? Double.NaN : heapTime[pos];
+    }
+
+    /**
+     * Return the earliest transition time.
+     *
+     * @return earliest transition time, or Double.POSITIVE_INFINITY if empty
+     */
+    public double peekTime() {
+        return size == 0 ? Double.POSITIVE_INFINITY : heapTime[0];
+    }
+
+    /**
+     * Schedule, or reschedule, a key to transition at given time.
+     *
+     * @param key entry key
+     * @param time absolute time of transition
+     */
+    public void schedule(int key, double time) {
+        int pos = posOfKey[key];
+        if (pos < 0) {
+            pos = size++;
+            heapKey[pos] = key;
+            heapTime[pos] = time;
+            posOfKey[key] = pos;
+            siftUp(pos);
+        } else {
+            double ori = heapTime[pos];
+            heapTime[pos] = time;
+            if (time < ori) {
+                siftUp(pos);
+            } else {
+                siftDown(pos);
+            }
+        }
+    }
+
+    /**
+     * Remove a key from schedule.
+     *
+     * @param key entry key
+     * @return true if the key was scheduled
+     */
+    public boolean cancel(int key) {
+        int pos = posOfKey[key];
+        if (pos < 0) {
+            return false;
+        }
+        removeAt(pos);
+        return true;
+    }
+
+    /**
+     * Remove and return all keys with transition time at or before given time.
+     *
+     * @param time current time
+     * @return keys due, in ascending key order
+     */
+    public int[] pollDue(double time) {
+        int numDue = 0;
+        int[] due = new int[0];
+        while (size > 0 && heapTime[0] <= time) {
+            if (numDue == due.length) {
+                due = Arrays.copyOf(due, Math.max(16, numDue * 2));
+            }
+            due[numDue++] = heapKey[0];
+            removeAt(0);
+        }
+        due = Arrays.copyOf(due, numDue);
+        Arrays.sort(due);
+        return due;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            posOfKey[heapKey[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int pos) {
+        posOfKey[heapKey[pos]] = -1;
+        size--;
+        if (pos < size) {
+            heapKey[pos] = heapKey[size];
+            heapTime[pos] = heapTime[size];
+            posOfKey[heapKey[pos]] = pos;
+            siftDown(pos);
+            siftUp(pos);
+        }
+    }
+
+    private boolean before(int posA, int posB) {
+        return heapTime[posA] < heapTime[posB]
+                || (heapTime[posA] == heapTime[posB] && heapKey[posA] < heapKey[posB]);
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!before(pos, parent)) {
+                break;
+            }
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(child + 1, child)) {
+                child++;
+            }
+            if (!before(child, pos)) {
+                break;
+            }
+            swap(pos, child);
+            pos = child;
+        }
+    }
+
+    private void swap(int posA, int posB) {
+        int key = heapKey[posA];
+        double time = heapTime[posA];
+        heapKey[posA] = heapKey[posB];
+        heapTime[posA] = heapTime[posB];
+        heapKey[posB] = key;
+        heapTime[posB] = time;
+        posOfKey[heapKey[posA]] = posA;
+        posOfKey[heapKey[posB]] = posB;
+    }
+
+}
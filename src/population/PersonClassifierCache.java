@@ -0,0 +1,178 @@
+package population;
+
+import java.util.Arrays;
+import java.util.Map;
+import person.AbstractIndividualInterface;
+import person.ColumnarIndividual;
+import util.PersonClassifier;
+
+/**
+ * <p>
+ * A per time step cache of PersonClassifier results for all person in a population.</p>
+ *
+ * <p>
+ * Each registered classifier has an int[] of class indexed by the array index of person within getPop(). An entry is computed on first use within a
+ * time step, and all entries are invalidated once the global time of the population changes. Use invalidate(int) if a change of a person (e.g. setAge
+ * or setParameter) affect its class within the same time step.</p>
+ *
+ * <p>
+ * Classifiers that depend on attributes which change within a time step (e.g. infection status) should not be used with this cache.</p>
+ *
+ * @author Ben Hui
+ * @see AbstractFieldsArrayPopulation#getClassifierCache()
+ */
+public class PersonClassifierCache {
+
+    private final AbstractFieldsArrayPopulation population;
+
+    private PersonClassifier[] classifiers = new PersonClassifier[0];
+    private int[][] classes = new int[0][]; // [classifierIndex][arrayIndex]
+    private int[][] validAt = new int[0][]; // Generation at which classes entry is computed
+
+    private int generation = 0;
+    private int generationTime;
+
+    public PersonClassifierCache(AbstractFieldsArrayPopulation population) {
+        this.population = population;
+        this.generationTime = population.getGlobalTime();
+    }
+
+    /**
+     * Register a classifier. Return existing index if already registered.
+     *
+     * @param classifier classifier to be cached
+     * @return classifier index within this cache
+     */
+    public int register(PersonClassifier classifier) {
+        int index = indexOf(classifier);
+        if (index < 0) {
+            index = classifiers.length;
+            classifiers = Arrays.copyOf(classifiers, index + 1);
+            classes = Arrays.copyOf(classes, index + 1);
+            validAt = Arrays.copyOf(validAt, index + 1);
+            classifiers[index] = classifier;
+            classes[index] = new int[0];
+            validAt[index] = new int[0];
+        }
+        return index;
+    }
+
+    public int indexOf(PersonClassifier classifier) {
+        for (int i = 0; i < classifiers.length; i++) {
+            if (classifiers[i] == classifier) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return class of a person, computed at most once per time step. If the classifier is not registered, or the person is not in current population,
+     * classifyPerson is called directly.
+     *
+     * @param classifier classifier
+     * @param p person to be classified
+     * @return class of the person
+     */
+    public int classify(PersonClassifier classifier, AbstractIndividualInterface p) {
+        int c = indexOf(classifier);
+        int index = arrayIndexOf(p);
+        if (c < 0 || index < 0) {
+            return classifier.classifyPerson(p);
+        }
+        int gen = currentGeneration();
+        ensureCapacity(c);
+        if (validAt[c][index] != gen) {
+            classes[c][index] = classifier.classifyPerson(p);
+            validAt[c][index] = gen;
+        }
+        return classes[c][index];
+    }
+
+    /**
+     * Return class of all person for current time step, indexed by array index within getPop(). The classifier is registered if needed, and
+     * classifyAll is used if none of the entries has been computed in current time step.
+     *
+     * @param classifier classifier
+     * @return class of all person. Note this is the backing array of the cache and should not be modified.
+     */
+    public int[] getClasses(PersonClassifier classifier) {
+        int c = register(classifier);
+        int gen = currentGeneration();
+        ensureCapacity(c);
+        AbstractIndividualInterface[] pop = population.getPop();
+        int[] cls = classes[c];
+        int[] valid = validAt[c];
+        boolean noneValid = true;
+        for (int k = 0; k < valid.length && noneValid; k++) {
+            noneValid = valid[k] != gen;
+        }
+        if (noneValid) {
+            classifier.classifyAll(pop, cls);
+            Arrays.fill(valid, gen);
+        } else {
+            for (int k = 0; k < pop.length; k++) {
+                if (valid[k] != gen) {
+                    cls[k] = pop[k] == null ? -1 : classifier.classifyPerson(pop[k]);
+                    valid[k] = gen;
+                }
+            }
+        }
+        return cls;
+    }
+
+    /**
+     * Invalidate cached class of a person in all registered classifiers.
+     *
+     * @param arrayIndex array index of person within getPop()
+     */
+    public void invalidate(int arrayIndex) {
+        for (int[] valid : validAt) {
+            if (arrayIndex < valid.length) {
+                valid[arrayIndex] = -1;
+            }
+        }
+    }
+
+    /**
+     * Invalidate all cached classes.
+     */
+    public void invalidateAll() {
+        currentGeneration();
+        generation++;
+    }
+
+    private int currentGeneration() {
+        if (population.getGlobalTime() != generationTime) {
+            generationTime = population.getGlobalTime();
+            generation++;
+        }
+        return generation;
+    }
+
+    private void ensureCapacity(int c) {
+        int popSize = population.getPop().length;
+        if (classes[c].length != popSize) {
+            classes[c] = new int[popSize];
+            validAt[c] = new int[popSize];
+            Arrays.fill(validAt[c], -1);
+        }
+    }
+
+    private int arrayIndexOf(AbstractIndividualInterface p) {
+        AbstractIndividualInterface[] pop = population.getPop();
+        if (p instanceof ColumnarIndividual) {
+            int slot = ((ColumnarIndividual) p).getSlot();
+            if (slot < pop.length && pop[slot] == p) {
+                return slot;
+            }
+        }
+        Map<Integer, AbstractIndividualInterface> localData = population.getLocalData();
+        if (localData instanceof PopulationIndexMap) {
+            int index = ((PopulationIndexMap) localData).indexOfId(p.getId());
+            return index >= 0 && pop[index] == p ? index : -1;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,1275 @@
+package population;
+
+import infection.AbstractInfection;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+import person.AbstractIndividualInterface;
+import person.ColumnarIndividual;
+import relationship.MultiplexRelationshipMap;
+import relationship.RelationshipMap;
+import relationship.RelationshipMapPrimitive;
+import relationship.RelationshipMapTimeStamp;
+import relationship.SingleRelationship;
+import relationship.SingleRelationshipTimeStamp;
+import util.ByteBufferDataInput;
+
+/**
+ * <p>
+ * A compact binary format for exporting and importing AbstractFieldsArrayPopulation, as an alternative to writing the whole population through
+ * ObjectOutputStream in encodePopToStream.</p>
+ *
+ * <p>
+ * Format (all values big-endian, as in DataOutput):</p>
+ * <pre>
+ * int     MAGIC
+ * int     VERSION
+ * byte    KIND (KIND_FULL or KIND_DELTA)
+ * int     global time of base checkpoint (KIND_DELTA only)
+ * int     global time
+ * int     number of fields
+ * per field:
+ *   byte  TAG_NULL | TAG_INT + int | TAG_LONG + long | TAG_PERSON_COLUMNS + person columns | TAG_REL_MAPS + relationship maps | TAG_OBJECT
+ * int     length of object section, followed by the object section
+ *
+ * person columns:
+ *   int capacity, int numInfection, int numParam, UTF[numParam] parameter names
+ *   id, male, age, startingAge, enterPopulationAt, lastTreatedAt,
+ *   per infection: infectionStatus, timeUntilNextStage, lastInfectedAtAge, lastActInfectious
+ *   per parameter: parameter column
+ *
+ * relationship maps:
+ *   int number of multiplex maps, per multiplex map: UTF class name, int number of layers
+ *   int number of maps, per map:
+ *     UTF map class name
+ *     int index of multiplex map this map is a layer of (-1 if none), int layer index (only if a layer)
+ *     per gender (RelationshipMap.INDEX_MALE, INDEX_FEMALE): int n, int[n] available person id
+ *     byte expiry scheduled, int expiry clock (0 if not scheduled)
+ *     int numEdge, int numGraphOnly, byte hasStartTime
+ *     int[numEdge] partner A, int[numEdge] partner B, double[numEdge] durations, double[numEdge] time until expire
+ *     int[numEdge] relationship start time (if hasStartTime)
+ * </pre>
+ *
+ * <p>
+ * The last numGraphOnly edges of a map are those only in its underlying graph rather than its relationship array (e.g. all relationships of a plain
+ * RelationshipMap, added through addEdge(Integer, Integer, SingleRelationship)), and are recreated the same way on import.</p>
+ *
+ * <p>
+ * A delta checkpoint (KIND_DELTA) use the same layout, except person columns only contain the rows of slots modified since base checkpoint (as int n,
+ * int[n] slots followed by each column of length n), and each relationship map stores int n, int[n] partner A, int[n] partner B of removed edges
+ * before the edges added or modified (see RelationshipMap.getModifiedSinceCommit) since base checkpoint. For an edge already in the map, its
+ * durations, time until expire and start time are replaced by the stored values. Ages, time until next stage of infected persons and time until expire not stored in delta are shifted
+ * by the time elapsed since base checkpoint. For a relationship map with scheduled expiry, its expiry clock is advanced to the stored clock instead,
+ * and relationships expired by then are removed.
+ * The object section is always written in full.</p>
+ *
+ * <p>
+ * The object section is a Java serialization stream of the infection list and all fields tagged as TAG_OBJECT (e.g. RNG and availability). References from
+ * those objects to relationship maps or columnar persons are written as placeholders and re-linked on import, so neither are serialized twice. If the
+ * population is not using a ColumnarPersonStore, the person array is stored in the object section instead.</p>
+ *
+ * <p>
+ * Relationship maps must be of one of SUPPORTED_MAP_CLASSES, see encode. Layers of a MultiplexRelationshipMap are recreated as layers of a new
+ * multiplex map sharing one adjacency storage, with their layer index kept.</p>
+ *
+ * @author Ben Hui
+ * @see AbstractFieldsArrayPopulation#encodePopToBinary(java.io.DataOutput)
+ */
+public class PopulationBinaryCodec {
+
+    public static final int MAGIC = 0x42504F50; // "BPOP"
+    public static final int VERSION = 1;
+
+    public static final byte KIND_FULL = 0;
+    public static final byte KIND_DELTA = 1;
+
+    public static final byte TAG_NULL = 0;
+    public static final byte TAG_INT = 1;
+    public static final byte TAG_LONG = 2;
+    public static final byte TAG_PERSON_COLUMNS = 3;
+    public static final byte TAG_REL_MAPS = 4;
+    public static final byte TAG_OBJECT = 5;
+
+    /**
+     * Relationship map classes that can be written in binary format. Subclasses are not included, as their state would be lost.
+     */
+    public static final Set<Class<? extends RelationshipMap>> SUPPORTED_MAP_CLASSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            RelationshipMap.class, RelationshipMapTimeStamp.class, RelationshipMapPrimitive.class)));
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // <editor-fold defaultstate="collapsed" desc="Encode">
+    /**
+     * <p>
+     * Write population to output.</p>
+     *
+     * <p>
+     * Person columns are only written if the population is in columnar format (see AbstractFieldsArrayPopulation.useColumnarPopulation). Otherwise the
+     * person array is written through Java serialization in the object section, with no saving over encodePopToStream for that field.</p>
+     *
+     * <p>
+     * Relationship maps are written as class name, available person and relationships only, and are recreated through the no-argument constructor on
+     * import. So only the classes in SUPPORTED_MAP_CLASSES, whose state is fully described by those, are supported. Use encodePopToStream for
+     * populations with other relationship maps.</p>
+     *
+     * <p>
+     * Layers of a MultiplexRelationshipMap (which must not be a subclass) are stored with the index of their multiplex map and layer, and all layers
+     * of a multiplex map must be in the same relationship map array. References to the multiplex map from other fields are re-linked on import.</p>
+     *
+     * @param population population to be exported
+     * @param out output
+     * @throws IOException if error occurs during writing
+     * @throws IllegalArgumentException if a relationship map of the population is not of a supported class, or only some layers of a multiplex
+     * relationship map are in a relationship map array
+     */
+    public static void encode(AbstractFieldsArrayPopulation population, DataOutput out) throws IOException {
+        encode(population, out, false);
+    }
+
+    /**
+     * Write only the persons and relationships changed since the last checkpoint (i.e. last call of encode or encodeDelta) to output. The population
+     * must use a ColumnarPersonStore, and delta checkpoint must be enabled through AbstractFieldsArrayPopulation.setDeltaCheckpointEnabled before the
+     * last checkpoint.
+     *
+     * @param population population to be exported
+     * @param out output
+     * @throws IOException if error occurs during writing
+     * @throws IllegalStateException if there is no previous checkpoint, or delta checkpoint is not enabled
+     * @see AbstractFieldsArrayPopulation#setDeltaCheckpointEnabled(boolean)
+     */
+    public static void encodeDelta(AbstractFieldsArrayPopulation population, DataOutput out) throws IOException {
+        if (population.getLastCheckpointAt() < 0) {
+            throw new IllegalStateException(PopulationBinaryCodec.class.getName()
+                    + ".encodeDelta: No previous checkpoint. Export a full population first.");
+        }
+        encode(population, out, true);
+    }
+
+    private static void encode(AbstractFieldsArrayPopulation population, DataOutput out, boolean delta) throws IOException {
+        Object[] fields = population.getFields();
+        ColumnarPersonStore store = population.getColumnarStore();
+        IdentityHashMap<Object, Serializable> placeholders = new IdentityHashMap<>();
+        Object[] objFields = new Object[fields.length];
+        byte[] tags = new byte[fields.length];
+
+        for (int f = 0; f < fields.length; f++) {
+            tags[f] = tagOf(fields[f], f, store);
+            if (tags[f] == TAG_OBJECT) {
+                objFields[f] = fields[f];
+            } else if (tags[f] == TAG_REL_MAPS) {
+                RelationshipMap[] maps = (RelationshipMap[]) fields[f];
+                multiplexOf(maps); // Check all layers are present before anything is written
+                for (int m = 0; m < maps.length; m++) {
+                    if (maps[m] != null) {
+                        if (!SUPPORTED_MAP_CLASSES.contains(maps[m].getClass())) {
+                            throw new IllegalArgumentException(PopulationBinaryCodec.class.getName() + ".encode: Relationship map #" + m
+                                    + " at field #" + f + " of class " + maps[m].getClass().getName() + " not supported in binary format");
+                        }
+                        placeholders.put(maps[m], new RelationshipMapRef(f, m));
+                        if (maps[m] instanceof RelationshipMapPrimitive && ((RelationshipMapPrimitive) maps[m]).getMultiplex() != null) {
+                            placeholders.putIfAbsent(((RelationshipMapPrimitive) maps[m]).getMultiplex(), new MultiplexMapRef(f, m));
+                        }
+                        if (delta && !maps[m].isTrackChanges()) {
+                            throw new IllegalStateException(PopulationBinaryCodec.class.getName()
+                                    + ".encodeDelta: Change tracking not enabled for relationship map #" + m + " at field #" + f);
+                        }
+                    }
+                }
+            }
+        }
+        if (store != null) {
+            placeholders.put(store, new PersonStoreRef());
+        }
+        if (delta && (store == null || !store.isTrackDirty())) {
+            throw new IllegalStateException(PopulationBinaryCodec.class.getName()
+                    + ".encodeDelta: Delta checkpoint requires a columnar population with dirty tracking enabled");
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(delta ? KIND_DELTA : KIND_FULL);
+        if (delta) {
+            out.writeInt(population.getLastCheckpointAt());
+        }
+        out.writeInt(population.getGlobalTime());
+        out.writeInt(fields.length);
+
+        for (int f = 0; f < fields.length; f++) {
+            out.writeByte(tags[f]);
+            switch (tags[f]) {
+                case TAG_INT:
+                    out.writeInt((Integer) fields[f]);
+                    break;
+                case TAG_LONG:
+                    out.writeLong((Long) fields[f]);
+                    break;
+                case TAG_PERSON_COLUMNS:
+                    if (delta) {
+                        writePersonColumnsDelta(store, out);
+                    } else {
+                        writePersonColumns(store, out);
+                    }
+                    break;
+                case TAG_REL_MAPS:
+                    if (delta) {
+                        writeRelationshipMapsDelta((RelationshipMap[]) fields[f], out);
+                    } else {
+                        writeRelationshipMaps((RelationshipMap[]) fields[f], out);
+                    }
+                    break;
+                default:
+                // TAG_NULL and TAG_OBJECT has no inline content
+            }
+        }
+
+        ByteArrayOutputStream objBytes = new ByteArrayOutputStream();
+        try (PlaceholderObjectOutputStream objOut = new PlaceholderObjectOutputStream(objBytes, placeholders)) {
+            objOut.writeObject(population.getInfList());
+            objOut.writeObject(objFields);
+        }
+        out.writeInt(objBytes.size());
+        out.write(objBytes.toByteArray());
+
+        markCheckpoint(population);
+    }
+
+    /**
+     * Reset dirty and change tracking, and record current global time as the base for next delta checkpoint.
+     */
+    private static void markCheckpoint(AbstractFieldsArrayPopulation population) {
+        ColumnarPersonStore store = population.getColumnarStore();
+        if (store != null) {
+            store.clearDirty();
+        }
+        for (Object ent : population.getFields()) {
+            if (ent instanceof RelationshipMap[]) {
+                for (RelationshipMap map : (RelationshipMap[]) ent) {
+                    if (map != null) {
+                        map.commitChanges();
+                    }
+                }
+            }
+        }
+        population.setLastCheckpointAt(population.getGlobalTime());
+    }
+
+    private static byte tagOf(Object ent, int fieldIndex, ColumnarPersonStore store) {
+        if (ent == null) {
+            return TAG_NULL;
+        } else if (ent instanceof Integer) {
+            return TAG_INT;
+        } else if (ent instanceof Long) {
+            return TAG_LONG;
+        } else if (fieldIndex == AbstractFieldsArrayPopulation.FELIDS_POP && store != null) {
+            return TAG_PERSON_COLUMNS;
+        } else if (ent instanceof RelationshipMap[]) {
+            return TAG_REL_MAPS;
+        } else {
+            return TAG_OBJECT;
+        }
+    }
+
+    static void writePersonColumns(ColumnarPersonStore store, DataOutput out) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        String[] paramNames = store.getParameterColumnNames();
+        out.writeInt(store.getCapacity());
+        out.writeInt(store.getNumInfection());
+        out.writeInt(paramNames.length);
+        for (String name : paramNames) {
+            out.writeUTF(name);
+        }
+        // Columns still mapped from an imported file are written as is rather than copied into heap
+        if (!writeMappedColumn(store, ColumnarPersonStore.COL_ID, Integer.BYTES, out, buf)) {
+            writeColumn(store.idColumn(), out, buf);
+        }
+        if (!writeMappedColumn(store, ColumnarPersonStore.COL_MALE, 1, out, buf)) {
+            writeColumn(store.maleColumn(), out, buf);
+        }
+        if (!writeMappedColumn(store, ColumnarPersonStore.COL_AGE, Double.BYTES, out, buf)) {
+            writeColumn(store.ageColumn(), out, buf);
+        }
+        if (!writeMappedColumn(store, ColumnarPersonStore.COL_STARTING_AGE, Double.BYTES, out, buf)) {
+            writeColumn(store.startingAgeColumn(), out, buf);
+        }
+        if (!writeMappedColumn(store, ColumnarPersonStore.COL_ENTER_POPULATION_AT, Integer.BYTES, out, buf)) {
+            writeColumn(store.enterPopulationAtColumn(), out, buf);
+        }
+        if (!writeMappedColumn(store, ColumnarPersonStore.COL_LAST_TREATED_AT, Integer.BYTES, out, buf)) {
+            writeColumn(store.lastTreatedAtColumn(), out, buf);
+        }
+        for (int i = 0; i < store.getNumInfection(); i++) {
+            if (!writeMappedColumn(store, ColumnarPersonStore.infectionColumnIndex(i, ColumnarPersonStore.COL_INFECTION_STATUS), Integer.BYTES, out, buf)) {
+                writeColumn(store.getInfectionStatusColumn(i), out, buf);
+            }
+            if (!writeMappedColumn(store, ColumnarPersonStore.infectionColumnIndex(i, ColumnarPersonStore.COL_TIME_UNTIL_NEXT_STAGE), Double.BYTES, out, buf)) {
+                writeColumn(store.timeUntilNextStageSnapshot(i), out, buf);
+            }
+            if (!writeMappedColumn(store, ColumnarPersonStore.infectionColumnIndex(i, ColumnarPersonStore.COL_LAST_INFECTED_AT_AGE), Double.BYTES, out, buf)) {
+                writeColumn(store.lastInfectedAtAgeColumn(i), out, buf);
+            }
+            if (!writeMappedColumn(store, ColumnarPersonStore.infectionColumnIndex(i, ColumnarPersonStore.COL_LAST_ACT_INFECTIOUS), 1, out, buf)) {
+                writeColumn(store.lastActInfectiousColumn(i), out, buf);
+            }
+        }
+        for (int p = 0; p < paramNames.length; p++) {
+            if (!writeMappedColumn(store, store.parameterColumnIndex(p), Double.BYTES, out, buf)) {
+                writeColumn(store.parameterColumn(p), out, buf);
+            }
+        }
+    }
+
+    /**
+     * Write a column still read from the mapping of an imported file, see ColumnarPersonStore.mappedColumn.
+     *
+     * @return false if the column is in heap and is not written
+     */
+    private static boolean writeMappedColumn(ColumnarPersonStore store, int col, int bytesPerValue, DataOutput out, ByteBuffer buf) throws IOException {
+        ByteBuffer src = store.mappedColumn(col, bytesPerValue);
+        if (src == null) {
+            return false;
+        }
+        byte[] arr = buf.array();
+        while (src.hasRemaining()) {
+            int len = Math.min(src.remaining(), arr.length);
+            src.get(arr, 0, len);
+            out.write(arr, 0, len);
+        }
+        return true;
+    }
+
+    static void writeRelationshipMaps(RelationshipMap[] maps, DataOutput out) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        ArrayList<MultiplexRelationshipMap> multiplexList = multiplexOf(maps);
+        out.writeInt(multiplexList.size());
+        for (MultiplexRelationshipMap multiplex : multiplexList) {
+            out.writeUTF(multiplex.getClass().getName());
+            out.writeInt(multiplex.getNumLayer());
+        }
+        out.writeInt(maps.length);
+        for (RelationshipMap map : maps) {
+            if (map == null) {
+                out.writeUTF("");
+                continue;
+            }
+            out.writeUTF(map.getClass().getName());
+            MultiplexRelationshipMap multiplex = map instanceof RelationshipMapPrimitive ? ((RelationshipMapPrimitive) map).getMultiplex() : null;
+            out.writeInt(indexOfIdentity(multiplexList.toArray(), multiplex));
+            if (multiplex != null) {
+                out.writeInt(((RelationshipMapPrimitive) map).getLayer());
+            }
+            int[][] available = map.getPersonAvailableByIndex();
+            for (int g = 0; g < RelationshipMap.INDEX_TOTAL; g++) {
+                out.writeInt(available[g].length);
+                writeColumn(available[g], out, buf);
+            }
+
+            writeExpirySchedule(map, out);
+            writeEdges(map, allRelationships(map), out, buf);
+        }
+    }
+
+    /**
+     * Return all multiplex maps with a layer in the relationship map array, in order of their first layer in the array.
+     *
+     * @throws IllegalArgumentException if any layer of those multiplex maps is not in the array, or a multiplex map is not of a supported class
+     */
+    static ArrayList<MultiplexRelationshipMap> multiplexOf(RelationshipMap[] maps) {
+        ArrayList<MultiplexRelationshipMap> res = new ArrayList<>();
+        for (RelationshipMap map : maps) {
+            if (map instanceof RelationshipMapPrimitive) {
+                MultiplexRelationshipMap multiplex = ((RelationshipMapPrimitive) map).getMultiplex();
+                if (multiplex != null && indexOfIdentity(res.toArray(), multiplex) < 0) {
+                    if (multiplex.getClass() != MultiplexRelationshipMap.class) {
+                        throw new IllegalArgumentException(PopulationBinaryCodec.class.getName() + ": Multiplex relationship map of class "
+                                + multiplex.getClass().getName() + " not supported in binary format");
+                    }
+                    for (int l = 0; l < multiplex.getNumLayer(); l++) {
+                        if (indexOfIdentity(maps, multiplex.getLayer(l)) < 0) {
+                            throw new IllegalArgumentException(PopulationBinaryCodec.class.getName() + ": Layer " + l
+                                    + " of multiplex relationship map is not in the same relationship map array as its other layers");
+                        }
+                    }
+                    res.add(multiplex);
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Return index of an object in an array by identity, as relationship maps are graphs with structural equals (e.g. any two empty maps are equal).
+     */
+    private static int indexOfIdentity(Object[] arr, Object obj) {
+        if (obj != null) {
+            for (int i = 0; i < arr.length; i++) {
+                if (arr[i] == obj) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    static void writeExpirySchedule(RelationshipMap map, DataOutput out) throws IOException {
+        out.writeBoolean(map.isExpiryScheduled());
+        out.writeInt(map.isExpiryScheduled() ? map.getExpiryClock() : 0);
+    }
+
+    /**
+     * Return relationships in the relationship array of a map, followed by those only in its underlying graph (e.g. all relationships of a plain
+     * RelationshipMap, which can only be added through addEdge(Integer, Integer, SingleRelationship)).
+     */
+    static SingleRelationship[] allRelationships(RelationshipMap map) {
+        SingleRelationship[] inArray = map.getRelationshipArray();
+        if (inArray.length == map.edgeSet().size()) {
+            return inArray;
+        }
+        ArrayList<SingleRelationship> res = new ArrayList<>(map.edgeSet().size());
+        res.addAll(Arrays.asList(inArray));
+        for (SingleRelationship rel : map.edgeSet()) {
+            if (!map.isInRelationshipArray(rel)) {
+                res.add(rel);
+            }
+        }
+        return res.toArray(new SingleRelationship[res.size()]);
+    }
+
+    /**
+     * Write relationships, with those in the relationship array of the map first, so they are recreated in the relationship array on import.
+     */
+    static void writeEdges(RelationshipMap map, SingleRelationship[] relationships, DataOutput out, ByteBuffer buf) throws IOException {
+        SingleRelationship[] rels = new SingleRelationship[relationships.length];
+        int numInArray = 0;
+        for (SingleRelationship rel : relationships) {
+            if (map.isInRelationshipArray(rel)) {
+                rels[numInArray++] = rel;
+            }
+        }
+        int pt = numInArray;
+        for (SingleRelationship rel : relationships) {
+            if (!map.isInRelationshipArray(rel)) {
+                rels[pt++] = rel;
+            }
+        }
+        int[] partnerA = new int[rels.length];
+        int[] partnerB = new int[rels.length];
+        double[] durations = new double[rels.length];
+        double[] expire = new double[rels.length];
+        int[] startTime = null;
+
+        for (int r = 0; r < rels.length; r++) {
+            partnerA[r] = rels[r].partnerA();
+            partnerB[r] = rels[r].partnerB();
+            durations[r] = rels[r].getDurations();
+            expire[r] = map.getTimeUntilExpire(rels[r]);
+            if (rels[r] instanceof SingleRelationshipTimeStamp || rels[r].getRelStartTime() != 0) {
+                if (startTime == null) {
+                    startTime = new int[rels.length];
+                }
+                startTime[r] = rels[r].getRelStartTime();
+            }
+        }
+        out.writeInt(rels.length);
+        out.writeInt(rels.length - numInArray);
+        out.writeBoolean(startTime != null);
+        writeColumn(partnerA, out, buf);
+        writeColumn(partnerB, out, buf);
+        writeColumn(durations, out, buf);
+        writeColumn(expire, out, buf);
+        if (startTime != null) {
+            writeColumn(startTime, out, buf);
+        }
+    }
+
+    static void writeRelationshipMapsDelta(RelationshipMap[] maps, DataOutput out) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        out.writeInt(maps.length);
+        for (RelationshipMap map : maps) {
+            if (map == null) {
+                out.writeUTF("");
+                continue;
+            }
+            out.writeUTF(map.getClass().getName());
+            int[][] available = map.getPersonAvailableByIndex();
+            for (int g = 0; g < RelationshipMap.INDEX_TOTAL; g++) {
+                out.writeInt(available[g].length);
+                writeColumn(available[g], out, buf);
+            }
+            SingleRelationship[] removed = map.getRemovedSinceCommit();
+            int[] partnerA = new int[removed.length];
+            int[] partnerB = new int[removed.length];
+            for (int r = 0; r < removed.length; r++) {
+                partnerA[r] = removed[r].partnerA();
+                partnerB[r] = removed[r].partnerB();
+            }
+            out.writeInt(removed.length);
+            writeColumn(partnerA, out, buf);
+            writeColumn(partnerB, out, buf);
+            writeExpirySchedule(map, out);
+            SingleRelationship[] added = map.getAddedSinceCommit();
+            SingleRelationship[] modified = map.getModifiedSinceCommit();
+            SingleRelationship[] changed = Arrays.copyOf(added, added.length + modified.length);
+            System.arraycopy(modified, 0, changed, added.length, modified.length);
+            writeEdges(map, changed, out, buf);
+        }
+    }
+
+    static void writePersonColumnsDelta(ColumnarPersonStore store, DataOutput out) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        String[] paramNames = store.getParameterColumnNames();
+        int[] slots = store.getDirtySlots();
+        int[] tmpInt = new int[slots.length];
+        double[] tmpDouble = new double[slots.length];
+        boolean[] tmpBool = new boolean[slots.length];
+
+        out.writeInt(store.getCapacity());
+        out.writeInt(store.getNumInfection());
+        out.writeInt(paramNames.length);
+        for (String name : paramNames) {
+            out.writeUTF(name);
+        }
+        out.writeInt(slots.length);
+        writeColumn(slots, out, buf);
+        // Gathered through getters, so columns still mapped from an imported file are not copied into heap
+        writeColumn(gather(store::getId, slots, tmpInt), out, buf);
+        writeColumn(gather(store::isMale, slots, tmpBool), out, buf);
+        writeColumn(gather(store::getAge, slots, tmpDouble), out, buf);
+        writeColumn(gather(store::getStartingAge, slots, tmpDouble), out, buf);
+        writeColumn(gather(store::getEnterPopulationAt, slots, tmpInt), out, buf);
+        writeColumn(gather(store::getLastTreatedAt, slots, tmpInt), out, buf);
+        for (int i = 0; i < store.getNumInfection(); i++) {
+            final int infId = i;
+            writeColumn(gather(s -> store.getInfectionStatus(infId, s), slots, tmpInt), out, buf);
+            writeColumn(gather(s -> store.getTimeUntilNextStage(infId, s), slots, tmpDouble), out, buf);
+            writeColumn(gather(s -> store.getLastInfectedAtAge(infId, s), slots, tmpDouble), out, buf);
+            writeColumn(gather(s -> store.isLastActInfectious(infId, s), slots, tmpBool), out, buf);
+        }
+        for (int p = 0; p < paramNames.length; p++) {
+            final int column = p;
+            writeColumn(gather(s -> store.getParameter(column, s), slots, tmpDouble), out, buf);
+        }
+    }
+
+    private static int[] gather(IntUnaryOperator col, int[] slots, int[] dst) {
+        for (int i = 0; i < slots.length; i++) {
+            dst[i] = col.applyAsInt(slots[i]);
+        }
+        return dst;
+    }
+
+    private static double[] gather(IntToDoubleFunction col, int[] slots, double[] dst) {
+        for (int i = 0; i < slots.length; i++) {
+            dst[i] = col.applyAsDouble(slots[i]);
+        }
+        return dst;
+    }
+
+    private static boolean[] gather(IntPredicate col, int[] slots, boolean[] dst) {
+        for (int i = 0; i < slots.length; i++) {
+            dst[i] = col.test(slots[i]);
+        }
+        return dst;
+    }
+
+    static void writeColumn(int[] col, DataOutput out, ByteBuffer buf) throws IOException {
+        int pt = 0;
+        while (pt < col.length) {
+            buf.clear();
+            int len = Math.min(col.length - pt, buf.capacity() / Integer.BYTES);
+            buf.asIntBuffer().put(col, pt, len);
+            out.write(buf.array(), 0, len * Integer.BYTES);
+            pt += len;
+        }
+    }
+
+    static void writeColumn(double[] col, DataOutput out, ByteBuffer buf) throws IOException {
+        int pt = 0;
+        while (pt < col.length) {
+            buf.clear();
+            int len = Math.min(col.length - pt, buf.capacity() / Double.BYTES);
+            buf.asDoubleBuffer().put(col, pt, len);
+            out.write(buf.array(), 0, len * Double.BYTES);
+            pt += len;
+        }
+    }
+
+    static void writeColumn(boolean[] col, DataOutput out, ByteBuffer buf) throws IOException {
+        int pt = 0;
+        byte[] arr = buf.array();
+        while (pt < col.length) {
+            int len = Math.min(col.length - pt, arr.length);
+            for (int i = 0; i < len; i++) {
+                arr[i] = (byte) (col[pt + i] ? 1 : 0);
+            }
+            out.write(arr, 0, len);
+            pt += len;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Decode">
+    /**
+     * Read population from input, replacing the global time, infection list and fields of the input population.
+     *
+     * @param population population to be imported into
+     * @param in input
+     * @throws IOException if error occurs during reading, or if the input is not in a supported format
+     */
+    public static void decode(AbstractFieldsArrayPopulation population, DataInput in) throws IOException {
+        decode(population, in, false);
+    }
+
+    /**
+     * @param mapColumns if true, person columns are backed by the buffer of input (which must be a ByteBufferDataInput) instead of copied
+     */
+    private static void decode(AbstractFieldsArrayPopulation population, DataInput in, boolean mapColumns) throws IOException {
+        readHeader(in, KIND_FULL);
+        int globalTime = in.readInt();
+        int numFields = in.readInt();
+        Object[] fields = new Object[numFields];
+        byte[] tags = new byte[numFields];
+        ColumnarPersonStore store = null;
+
+        for (int f = 0; f < numFields; f++) {
+            tags[f] = in.readByte();
+            switch (tags[f]) {
+                case TAG_NULL:
+                case TAG_OBJECT:
+                    break;
+                case TAG_INT:
+                    fields[f] = in.readInt();
+                    break;
+                case TAG_LONG:
+                    fields[f] = in.readLong();
+                    break;
+                case TAG_PERSON_COLUMNS:
+                    store = mapColumns ? mapPersonColumns((ByteBufferDataInput) in) : readPersonColumns(in);
+                    fields[f] = store.getIndividuals();
+                    break;
+                case TAG_REL_MAPS:
+                    fields[f] = readRelationshipMaps(in);
+                    break;
+                default:
+                    throw new IOException(PopulationBinaryCodec.class.getName() + ".decode: Unknown field tag " + tags[f] + " at field #" + f);
+            }
+        }
+
+        AbstractInfection[] infList = readObjectSection(in, fields, tags, store);
+
+        population.setGlobalTime(globalTime);
+        population.setInfList(infList);
+        population.setFields(fields);
+        population.resetLocalData();
+        population.setLastCheckpointAt(globalTime);
+    }
+
+    /**
+     * Apply a delta checkpoint written by encodeDelta to a population. The population must be at the state of the checkpoint the delta is based on, e.g.
+     * by decoding the full population file and all previous delta in order.
+     *
+     * <p>
+     * As only modified persons and relationships are stored in delta, age and time until next stage of unmodified persons, as well as time until
+     * expire of unmodified relationships, are advanced by the time elapsed between the two checkpoints.</p>
+     *
+     * @param population population to be updated
+     * @param in input
+     * @throws IOException if error occurs during reading, or if the delta is not based on the current state of population
+     */
+    public static void applyDelta(AbstractFieldsArrayPopulation population, DataInput in) throws IOException {
+        readHeader(in, KIND_DELTA);
+        int baseTime = in.readInt();
+        int globalTime = in.readInt();
+        int numFields = in.readInt();
+        Object[] fields = population.getFields();
+        ColumnarPersonStore store = population.getColumnarStore();
+        byte[] tags = new byte[numFields];
+
+        if (baseTime != population.getGlobalTime() || numFields != fields.length) {
+            throw new IOException(PopulationBinaryCodec.class.getName() + ".applyDelta: Delta based on time " + baseTime + " with "
+                    + numFields + " fields cannot be applied to population at time " + population.getGlobalTime()
+                    + " with " + fields.length + " fields");
+        }
+
+        for (int f = 0; f < numFields; f++) {
+            tags[f] = in.readByte();
+            switch (tags[f]) {
+                case TAG_NULL:
+                    fields[f] = null;
+                    break;
+                case TAG_OBJECT:
+                    break;
+                case TAG_INT:
+                    fields[f] = in.readInt();
+                    break;
+                case TAG_LONG:
+                    fields[f] = in.readLong();
+                    break;
+                case TAG_PERSON_COLUMNS:
+                    if (store == null) {
+                        throw new IOException(PopulationBinaryCodec.class.getName() + ".applyDelta: Population is not columnar");
+                    }
+                    readPersonColumnsDelta(store, in, globalTime - baseTime);
+                    break;
+                case TAG_REL_MAPS:
+                    readRelationshipMapsDelta((RelationshipMap[]) fields[f], in, globalTime - baseTime);
+                    break;
+                default:
+                    throw new IOException(PopulationBinaryCodec.class.getName() + ".applyDelta: Unknown field tag " + tags[f] + " at field #" + f);
+            }
+        }
+
+        AbstractInfection[] infList = readObjectSection(in, fields, tags, store);
+
+        population.setGlobalTime(globalTime);
+        population.setInfList(infList);
+        population.resetLocalData();
+        markCheckpoint(population);
+    }
+
+    private static AbstractInfection[] readObjectSection(DataInput in, Object[] fields, byte[] tags, ColumnarPersonStore store) throws IOException {
+        byte[] objBytes = new byte[in.readInt()];
+        in.readFully(objBytes);
+        AbstractInfection[] infList;
+        Object[] objFields;
+        try (PlaceholderObjectInputStream objIn = new PlaceholderObjectInputStream(new ByteArrayInputStream(objBytes), fields, store)) {
+            infList = (AbstractInfection[]) objIn.readObject();
+            objFields = (Object[]) objIn.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException(ex);
+        }
+        for (int f = 0; f < tags.length; f++) {
+            if (tags[f] == TAG_OBJECT) {
+                fields[f] = objFields[f];
+            }
+        }
+        return infList;
+    }
+
+    /**
+     * <p>
+     * Read population from an uncompressed binary population file through a read-only memory mapping, rather than a zip stream.</p>
+     *
+     * <p>
+     * Person columns are not copied. The ColumnarPersonStore of the population reads them from the mapping, and copies a column into heap on its first
+     * write. Therefore simulations importing the same file (e.g. a burn-in population from PROP_POP_IMPORT_PATH) share its pages in the OS page cache,
+     * and only hold the columns they have modified. The file must not be modified while any imported population still reads from it, see
+     * ColumnarPersonStore.detachMapping. Relationship maps and the object section are read into heap as in decode.</p>
+     *
+     * <p>
+     * Files larger than 2GB cannot be mapped as a single buffer, and are read through a buffered stream with all columns copied.</p>
+     *
+     * @param population population to be imported into
+     * @param popFile uncompressed file previously written by encode
+     * @throws IOException if error occurs during reading
+     */
+    public static void decodeFile(AbstractFieldsArrayPopulation population, File popFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(popFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // Too large for a single mapping, use buffered stream instead
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE))) {
+                    decode(population, in);
+                }
+            } else {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                decode(population, new ByteBufferDataInput(mapped), true);
+            }
+        }
+    }
+
+    /**
+     * Return true if a file is a binary population file written by encode or encodeDelta, as opposed to e.g. a zipped serialized population.
+     *
+     * @param file file to check
+     * @return true if the file starts with MAGIC
+     * @throws IOException if error occurs during reading
+     */
+    public static boolean isBinaryFile(File file) throws IOException {
+        if (file.length() < Integer.BYTES) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    static void readHeader(DataInput in, byte expectedKind) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException(PopulationBinaryCodec.class.getName() + ": Not a binary population file (magic = 0x" + Integer.toHexString(magic) + ")");
+        }
+        int version = in.readInt();
+        if (version > VERSION) {
+            throw new IOException(PopulationBinaryCodec.class.getName() + ": Binary population version " + version + " not supported");
+        }
+        byte kind = in.readByte();
+        if (kind != expectedKind) {
+            throw new IOException(PopulationBinaryCodec.class.getName() + ": Expect file of kind " + expectedKind + " but found " + kind);
+        }
+    }
+
+    static ColumnarPersonStore readPersonColumns(DataInput in) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int capacity = in.readInt();
+        int numInfection = in.readInt();
+        ColumnarPersonStore store = new ColumnarPersonStore(capacity, numInfection);
+        int numParam = in.readInt();
+        for (int p = 0; p < numParam; p++) {
+            store.addParameterColumn(in.readUTF());
+        }
+        readColumn(store.idColumn(), in, buf);
+        readColumn(store.maleColumn(), in, buf);
+        readColumn(store.ageColumn(), in, buf);
+        readColumn(store.startingAgeColumn(), in, buf);
+        readColumn(store.enterPopulationAtColumn(), in, buf);
+        readColumn(store.lastTreatedAtColumn(), in, buf);
+        for (int i = 0; i < numInfection; i++) {
+            readColumn(store.getInfectionStatusColumn(i), in, buf);
+            readColumn(store.getTimeUntilNextStageColumn(i), in, buf);
+            readColumn(store.lastInfectedAtAgeColumn(i), in, buf);
+            readColumn(store.lastActInfectiousColumn(i), in, buf);
+        }
+        for (int p = 0; p < numParam; p++) {
+            readColumn(store.parameterColumn(p), in, buf);
+        }
+        return store;
+    }
+
+    /**
+     * Read person columns as a store backed by the buffer of input. Columns are skipped rather than copied, see decodeFile.
+     */
+    static ColumnarPersonStore mapPersonColumns(ByteBufferDataInput in) throws IOException {
+        int capacity = in.readInt();
+        int numInfection = in.readInt();
+        String[] paramNames = new String[in.readInt()];
+        for (int p = 0; p < paramNames.length; p++) {
+            paramNames[p] = in.readUTF();
+        }
+        int[] offset = new int[ColumnarPersonStore.COL_INFECTION_STATUS + numInfection * ColumnarPersonStore.NUM_COL_PER_INFECTION + paramNames.length];
+        offset[ColumnarPersonStore.COL_ID] = skipColumn(in, capacity, Integer.BYTES);
+        offset[ColumnarPersonStore.COL_MALE] = skipColumn(in, capacity, 1);
+        offset[ColumnarPersonStore.COL_AGE] = skipColumn(in, capacity, Double.BYTES);
+        offset[ColumnarPersonStore.COL_STARTING_AGE] = skipColumn(in, capacity, Double.BYTES);
+        offset[ColumnarPersonStore.COL_ENTER_POPULATION_AT] = skipColumn(in, capacity, Integer.BYTES);
+        offset[ColumnarPersonStore.COL_LAST_TREATED_AT] = skipColumn(in, capacity, Integer.BYTES);
+        for (int i = 0; i < numInfection; i++) {
+            offset[ColumnarPersonStore.infectionColumnIndex(i, ColumnarPersonStore.COL_INFECTION_STATUS)] = skipColumn(in, capacity, Integer.BYTES);
+            offset[ColumnarPersonStore.infectionColumnIndex(i, ColumnarPersonStore.COL_TIME_UNTIL_NEXT_STAGE)] = skipColumn(in, capacity, Double.BYTES);
+            offset[ColumnarPersonStore.infectionColumnIndex(i, ColumnarPersonStore.COL_LAST_INFECTED_AT_AGE)] = skipColumn(in, capacity, Double.BYTES);
+            offset[ColumnarPersonStore.infectionColumnIndex(i, ColumnarPersonStore.COL_LAST_ACT_INFECTIOUS)] = skipColumn(in, capacity, 1);
+        }
+        int paramStart = ColumnarPersonStore.COL_INFECTION_STATUS + numInfection * ColumnarPersonStore.NUM_COL_PER_INFECTION;
+        for (int p = 0; p < paramNames.length; p++) {
+            offset[paramStart + p] = skipColumn(in, capacity, Double.BYTES);
+        }
+        return new ColumnarPersonStore(capacity, numInfection, paramNames, in.getBuffer(), offset);
+    }
+
+    /**
+     * Skip a column in input, and return its position within the buffer.
+     */
+    private static int skipColumn(ByteBufferDataInput in, int length, int bytesPerValue) throws IOException {
+        int pos = in.getBuffer().position();
+        long numBytes = (long) length * bytesPerValue;
+        if (numBytes > Integer.MAX_VALUE || in.skipBytes((int) numBytes) != numBytes) {
+            throw new EOFException();
+        }
+        return pos;
+    }
+
+    static RelationshipMap[] readRelationshipMaps(DataInput in) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        MultiplexRelationshipMap[] multiplexList = new MultiplexRelationshipMap[in.readInt()];
+        for (int x = 0; x < multiplexList.length; x++) {
+            String className = in.readUTF();
+            int numLayer = in.readInt();
+            if (!className.equals(MultiplexRelationshipMap.class.getName())) {
+                throw new IOException(PopulationBinaryCodec.class.getName() + ".readRelationshipMaps: Multiplex relationship map of class "
+                        + className + " not supported in binary format");
+            }
+            multiplexList[x] = new MultiplexRelationshipMap(numLayer);
+        }
+        RelationshipMap[] maps = new RelationshipMap[in.readInt()];
+        for (int m = 0; m < maps.length; m++) {
+            String className = in.readUTF();
+            if (className.isEmpty()) {
+                continue;
+            }
+            int multiplexIndex = in.readInt();
+            if (multiplexIndex >= 0) {
+                // Layer created with its multiplex map, so it share the adjacency storage with other layers
+                int layer = in.readInt();
+                if (multiplexIndex >= multiplexList.length || layer < 0 || layer >= multiplexList[multiplexIndex].getNumLayer()
+                        || !multiplexList[multiplexIndex].getLayer(layer).getClass().getName().equals(className)) {
+                    throw new IOException(PopulationBinaryCodec.class.getName() + ".readRelationshipMaps: Invalid layer " + layer
+                            + " of multiplex relationship map #" + multiplexIndex + " for relationship map #" + m);
+                }
+                maps[m] = multiplexList[multiplexIndex].getLayer(layer);
+            } else {
+                try {
+                    Class<?> cls = Class.forName(className);
+                    if (!SUPPORTED_MAP_CLASSES.contains(cls)) {
+                        throw new IOException(PopulationBinaryCodec.class.getName() + ".readRelationshipMaps: Relationship map of class "
+                                + className + " not supported in binary format");
+                    }
+                    maps[m] = (RelationshipMap) cls.getDeclaredConstructor().newInstance();
+                } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException
+                        | IllegalAccessException | InvocationTargetException ex) {
+                    throw new IOException(PopulationBinaryCodec.class.getName()
+                            + ".readRelationshipMaps: Cannot create relationship map of class " + className, ex);
+                }
+            }
+            for (int g = 0; g < RelationshipMap.INDEX_TOTAL; g++) {
+                int[] available = new int[in.readInt()];
+                readColumn(available, in, buf);
+                maps[m].setPersonByGender(available, g == RelationshipMap.INDEX_MALE);
+            }
+            boolean expiryScheduled = in.readBoolean();
+            int expiryClock = in.readInt();
+            if (expiryScheduled) {
+                maps[m].setExpiryScheduled(true, expiryClock);
+            }
+            readEdges(maps[m], in, buf);
+        }
+        return maps;
+    }
+
+    static void readEdges(RelationshipMap map, DataInput in, byte[] buf) throws IOException {
+        int numEdge = in.readInt();
+        int numGraphOnly = in.readInt();
+        boolean hasStartTime = in.readBoolean();
+        int[] partnerA = new int[numEdge];
+        int[] partnerB = new int[numEdge];
+        double[] durations = new double[numEdge];
+        double[] expire = new double[numEdge];
+        readColumn(partnerA, in, buf);
+        readColumn(partnerB, in, buf);
+        readColumn(durations, in, buf);
+        readColumn(expire, in, buf);
+        int[] startTime = null;
+        if (hasStartTime) {
+            startTime = new int[numEdge];
+            readColumn(startTime, in, buf);
+        }
+        for (int r = 0; r < numEdge; r++) {
+            // Relationship already in the map is modified since base checkpoint
+            SingleRelationship rel = map.getEdge(partnerA[r], partnerB[r]);
+            if (rel == null) {
+                if (r < numEdge - numGraphOnly) {
+                    rel = map.addEdge(partnerA[r], partnerB[r]);
+                } else {
+                    // Relationship is created explicitly, as edge supplier of the underlying graph cannot create SingleRelationship
+                    rel = map instanceof RelationshipMapTimeStamp
+                            ? new SingleRelationshipTimeStamp(partnerA[r], partnerB[r]) : new SingleRelationship(partnerA[r], partnerB[r]);
+                    for (int v : new int[]{partnerA[r], partnerB[r]}) {
+                        if (!map.containsVertex(v)) {
+                            map.addVertex(v);
+                        }
+                    }
+                    if (!map.addEdge(partnerA[r], partnerB[r], rel)) {
+                        rel = null;
+                    }
+                }
+            }
+            if (rel != null) {
+                rel.setDurations(durations[r]);
+                map.setTimeUntilExpire(rel, expire[r]);
+                if (startTime != null) {
+                    rel.setRelStartTime(startTime[r]);
+                }
+            }
+        }
+    }
+
+    static void readRelationshipMapsDelta(RelationshipMap[] maps, DataInput in, int timeElapsed) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int numMaps = in.readInt();
+        if (maps == null || maps.length != numMaps) {
+            throw new IOException(PopulationBinaryCodec.class.getName() + ".readRelationshipMapsDelta: Expect " + numMaps + " relationship maps");
+        }
+        for (RelationshipMap map : maps) {
+            String className = in.readUTF();
+            if (className.isEmpty()) {
+                continue;
+            }
+            if (map == null || !map.getClass().getName().equals(className)) {
+                throw new IOException(PopulationBinaryCodec.class.getName() + ".readRelationshipMapsDelta: Expect relationship map of class " + className);
+            }
+            for (int g = 0; g < RelationshipMap.INDEX_TOTAL; g++) {
+                int[] available = new int[in.readInt()];
+                readColumn(available, in, buf);
+                map.setPersonByGender(available, g == RelationshipMap.INDEX_MALE);
+            }
+            int numRemoved = in.readInt();
+            int[] partnerA = new int[numRemoved];
+            int[] partnerB = new int[numRemoved];
+            readColumn(partnerA, in, buf);
+            readColumn(partnerB, in, buf);
+            for (int r = 0; r < numRemoved; r++) {
+                map.removeEdge(partnerA[r], partnerB[r]);
+            }
+            boolean expiryScheduled = in.readBoolean();
+            int expiryClock = in.readInt();
+            if (expiryScheduled != map.isExpiryScheduled()) {
+                throw new IOException(PopulationBinaryCodec.class.getName() + ".readRelationshipMapsDelta: Expiry schedule of relationship map of class "
+                        + className + " does not match base checkpoint");
+            }
+            if (expiryScheduled) {
+                // Expiry time is absolute, so only the clock need to advance. Relationships expired by then are removed, as a caller of
+                // pollExpired would do.
+                for (SingleRelationship rel : map.pollExpired(expiryClock)) {
+                    map.removeEdge(rel);
+                }
+            } else {
+                for (SingleRelationship rel : map.edgeSet()) {
+                    rel.setTimeUntilExpire(rel.getTimeUntilExpire() - timeElapsed);
+                }
+            }
+            readEdges(map, in, buf);
+        }
+    }
+
+    static void readPersonColumnsDelta(ColumnarPersonStore store, DataInput in, int timeElapsed) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int capacity = in.readInt();
+        int numInfection = in.readInt();
+        if (capacity != store.getCapacity() || numInfection != store.getNumInfection()) {
+            throw new IOException(PopulationBinaryCodec.class.getName() + ".readPersonColumnsDelta: Expect store with capacity of "
+                    + capacity + " and " + numInfection + " infection(s)");
+        }
+        int numParam = in.readInt();
+        int[] paramCol = new int[numParam];
+        for (int p = 0; p < numParam; p++) {
+            paramCol[p] = store.addParameterColumn(in.readUTF());
+        }
+        boolean stageScheduled = store.isStageScheduled();
+        store.setStageScheduled(false);
+        double[] age = store.ageColumn();
+        for (int s = 0; s < age.length; s++) {
+            age[s] += timeElapsed;
+        }
+        for (int i = 0; i < numInfection; i++) {
+            int[] status = store.getInfectionStatusColumn(i);
+            double[] timeUntilNextStage = store.getTimeUntilNextStageColumn(i);
+            for (int s = 0; s < status.length; s++) {
+                if (status[s] != AbstractIndividualInterface.INFECT_S) {
+                    timeUntilNextStage[s] -= timeElapsed;
+                }
+            }
+        }
+
+        int[] slots = new int[in.readInt()];
+        int[] tmpInt = new int[slots.length];
+        double[] tmpDouble = new double[slots.length];
+        boolean[] tmpBool = new boolean[slots.length];
+        readColumn(slots, in, buf);
+
+        readColumn(tmpInt, in, buf);
+        scatter(tmpInt, slots, store.idColumn());
+        readColumn(tmpBool, in, buf);
+        scatter(tmpBool, slots, store.maleColumn());
+        readColumn(tmpDouble, in, buf);
+        scatter(tmpDouble, slots, store.ageColumn());
+        readColumn(tmpDouble, in, buf);
+        scatter(tmpDouble, slots, store.startingAgeColumn());
+        readColumn(tmpInt, in, buf);
+        scatter(tmpInt, slots, store.enterPopulationAtColumn());
+        readColumn(tmpInt, in, buf);
+        scatter(tmpInt, slots, store.lastTreatedAtColumn());
+        for (int i = 0; i < numInfection; i++) {
+            readColumn(tmpInt, in, buf);
+            scatter(tmpInt, slots, store.getInfectionStatusColumn(i));
+            readColumn(tmpDouble, in, buf);
+            scatter(tmpDouble, slots, store.getTimeUntilNextStageColumn(i));
+            readColumn(tmpDouble, in, buf);
+            scatter(tmpDouble, slots, store.lastInfectedAtAgeColumn(i));
+            readColumn(tmpBool, in, buf);
+            scatter(tmpBool, slots, store.lastActInfectiousColumn(i));
+        }
+        for (int p = 0; p < numParam; p++) {
+            readColumn(tmpDouble, in, buf);
+            scatter(tmpDouble, slots, store.parameterColumn(paramCol[p]));
+        }
+        store.setStageScheduled(stageScheduled);
+    }
+
+    private static void scatter(int[] src, int[] slots, int[] col) {
+        for (int i = 0; i < slots.length; i++) {
+            col[slots[i]] = src[i];
+        }
+    }
+
+    private static void scatter(double[] src, int[] slots, double[] col) {
+        for (int i = 0; i < slots.length; i++) {
+            col[slots[i]] = src[i];
+        }
+    }
+
+    private static void scatter(boolean[] src, int[] slots, boolean[] col) {
+        for (int i = 0; i < slots.length; i++) {
+            col[slots[i]] = src[i];
+        }
+    }
+
+    static void readColumn(int[] col, DataInput in, byte[] buf) throws IOException {
+        if (in instanceof ByteBufferDataInput) {
+            ((ByteBufferDataInput) in).readInts(col, 0, col.length);
+            return;
+        }
+        int pt = 0;
+        while (pt < col.length) {
+            int len = Math.min(col.length - pt, buf.length / Integer.BYTES);
+            in.readFully(buf, 0, len * Integer.BYTES);
+            ByteBuffer.wrap(buf, 0, len * Integer.BYTES).asIntBuffer().get(col, pt, len);
+            pt += len;
+        }
+    }
+
+    static void readColumn(double[] col, DataInput in, byte[] buf) throws IOException {
+        if (in instanceof ByteBufferDataInput) {
+            ((ByteBufferDataInput) in).readDoubles(col, 0, col.length);
+            return;
+        }
+        int pt = 0;
+        while (pt < col.length) {
+            int len = Math.min(col.length - pt, buf.length / Double.BYTES);
+            in.readFully(buf, 0, len * Double.BYTES);
+            ByteBuffer.wrap(buf, 0, len * Double.BYTES).asDoubleBuffer().get(col, pt, len);
+            pt += len;
+        }
+    }
+
+    static void readColumn(boolean[] col, DataInput in, byte[] buf) throws IOException {
+        int pt = 0;
+        while (pt < col.length) {
+            int len = Math.min(col.length - pt, buf.length);
+            in.readFully(buf, 0, len);
+            for (int i = 0; i < len; i++) {
+                col[pt + i] = buf[i] != 0;
+            }
+            pt += len;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Placeholders for object section">
+    private static class RelationshipMapRef implements Serializable {
+
+        private static final long serialVersionUID = 2867370046451392412L;
+        final int fieldIndex;
+        final int mapIndex;
+
+        RelationshipMapRef(int fieldIndex, int mapIndex) {
+            this.fieldIndex = fieldIndex;
+            this.mapIndex = mapIndex;
+        }
+    }
+
+    private static class MultiplexMapRef implements Serializable {
+
+        private static final long serialVersionUID = -2210934805735528871L;
+        final int fieldIndex;
+        final int layerMapIndex;
+
+        MultiplexMapRef(int fieldIndex, int layerMapIndex) {
+            this.fieldIndex = fieldIndex;
+            this.layerMapIndex = layerMapIndex;
+        }
+    }
+
+    private static class PersonStoreRef implements Serializable {
+
+        private static final long serialVersionUID = -4716390785240431186L;
+    }
+
+    private static class PersonRef implements Serializable {
+
+        private static final long serialVersionUID = 6152391264410954317L;
+        final int slot;
+
+        PersonRef(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    private static class PlaceholderObjectOutputStream extends ObjectOutputStream {
+
+        private final IdentityHashMap<Object, Serializable> placeholders;
+
+        PlaceholderObjectOutputStream(OutputStream out, IdentityHashMap<Object, Serializable> placeholders) throws IOException {
+            super(out);
+            this.placeholders = placeholders;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            Serializable ref = placeholders.get(obj);
+            if (ref != null) {
+                return ref;
+            }
+            if (obj instanceof ColumnarIndividual && placeholders.containsKey(((ColumnarIndividual) obj).getStore())) {
+                return new PersonRef(((ColumnarIndividual) obj).getSlot());
+            }
+            return obj;
+        }
+    }
+
+    private static class PlaceholderObjectInputStream extends ObjectInputStream {
+
+        private final Object[] fields;
+        private final ColumnarPersonStore store;
+
+        PlaceholderObjectInputStream(InputStream in, Object[] fields, ColumnarPersonStore store) throws IOException {
+            super(in);
+            this.fields = fields;
+            this.store = store;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof RelationshipMapRef) {
+                RelationshipMapRef ref = (RelationshipMapRef) obj;
+                return ((RelationshipMap[]) fields[ref.fieldIndex])[ref.mapIndex];
+            } else if (obj instanceof MultiplexMapRef) {
+                MultiplexMapRef ref = (MultiplexMapRef) obj;
+                return ((RelationshipMapPrimitive) ((RelationshipMap[]) fields[ref.fieldIndex])[ref.layerMapIndex]).getMultiplex();
+            } else if (obj instanceof PersonStoreRef) {
+                return store;
+            } else if (obj instanceof PersonRef) {
+                return store.getIndividual(((PersonRef) obj).slot);
+            }
+            return obj;
+        }
+    }
+    // </editor-fold>
+
+}
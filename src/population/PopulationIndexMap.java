@@ -0,0 +1,315 @@
+package population;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import person.AbstractIndividualInterface;
+import util.IntIdLookup;
+import util.IntIntHashMap;
+import util.IntObjConsumer;
+
+/**
+ * <p>
+ * A person id to person mapping for populations with a fixed size person array, as returned by AbstractPopulation.getPop().</p>
+ *
+ * <p>
+ * Internally it only stores a primitive person id to array index map, so getByIdInt(int) never box its key. When a new person is put into an array index,
+ * the id of the person it replaced is dropped from the index, so memory usage stays proportional to the live population regardless of how many ids has been
+ * issued.</p>
+ *
+ * <p>
+ * Note that put(Integer, AbstractIndividualInterface) use array index (rather than person id) as key, and will store the person into the population
+ * array.</p>
+ *
+ * @author Ben Hui
+ */
+public class PopulationIndexMap implements Map<Integer, AbstractIndividualInterface>, IntIdLookup<AbstractIndividualInterface>, java.io.Serializable {
+
+    private static final long serialVersionUID = -6314185260394728121L;
+
+    private final AbstractPopulation population;
+    private final IntIntHashMap indexMap; // Id -> Array index
+    private int[] idAtIndex; // Array index -> Id, as last put into the index
+
+    /**
+     * Create an index map of a population, and index all person currently in getPop().
+     *
+     * @param population the population to be indexed
+     */
+    public PopulationIndexMap(AbstractPopulation population) {
+        this.population = population;
+        AbstractIndividualInterface[] pop = population.getPop();
+        this.indexMap = new IntIntHashMap(pop.length, -1);
+        this.idAtIndex = new int[pop.length];
+        for (int i = 0; i < pop.length; i++) {
+            if (pop[i] != null) {
+                indexMap.put(pop[i].getId(), i);
+                idAtIndex[i] = pop[i].getId();
+            }
+        }
+    }
+
+    /**
+     * Return array index of person with input id.
+     *
+     * @param id person id
+     * @return the index of the person within getPop(), or -1 if not found
+     */
+    public int indexOfId(int id) {
+        int index = indexMap.get(id);
+        if (index >= 0) {
+            AbstractIndividualInterface p = population.getPop()[index];
+            if (p == null || p.getId() != id) {
+                return -1; // Expired person
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Return person with input id, without boxing.
+     *
+     * @param id person id
+     * @return person with input id, or null if not found
+     */
+    @Override
+    public AbstractIndividualInterface getByIdInt(int id) {
+        int index = indexOfId(id);
+        return index < 0 ? null : population.getPop()[index];
+    }
+
+    @Override
+    public int size() {
+        return indexMap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return indexMap.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) { // Person Id
+        return (key instanceof Number) && indexOfId(((Number) key).intValue()) >= 0;
+    }
+
+    @Override
+    public AbstractIndividualInterface get(Object key) { // Person Id
+        return (key instanceof Number) ? getByIdInt(((Number) key).intValue()) : null;
+    }
+
+    @Override
+    public AbstractIndividualInterface put(Integer key, AbstractIndividualInterface value) { // Key = Array Index
+        AbstractIndividualInterface[] pop = population.getPop();
+        if (key < 0 || key >= pop.length) {
+            throw new IllegalArgumentException(getClass().getName() + ".put: Key should be array index < " + pop.length);
+        }
+        if (idAtIndex.length != pop.length) {
+            idAtIndex = java.util.Arrays.copyOf(idAtIndex, pop.length);
+        }
+        // Drop the id previously stored at this index. Note the person object itself might have been reused (e.g. ColumnarIndividual)
+        int oriId = idAtIndex[key];
+        if (oriId != value.getId() && indexMap.get(oriId) == key) {
+            indexMap.remove(oriId);
+        }
+        indexMap.put(value.getId(), key);
+        idAtIndex[key] = value.getId();
+        pop[key] = value;
+        return value;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return (value instanceof AbstractIndividualInterface)
+                && getByIdInt(((AbstractIndividualInterface) value).getId()) == value;
+    }
+
+    @Override
+    public AbstractIndividualInterface remove(Object key) {
+        if (key instanceof Number) {
+            int id = ((Number) key).intValue();
+            AbstractIndividualInterface p = getByIdInt(id);
+            indexMap.remove(id);
+            return p;
+        }
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends Integer, ? extends AbstractIndividualInterface> m) {
+        for (Integer arrKey : m.keySet()) {
+            put(arrKey, m.get(arrKey)); // Just stick with put function
+        }
+    }
+
+    @Override
+    public void clear() {
+        indexMap.clear();
+    }
+
+    /**
+     * Perform an action on every live person, in array index order. No object is allocated during the iteration.
+     *
+     * @param action action to be performed, with person id and person as input
+     */
+    public void forEachLive(IntObjConsumer<? super AbstractIndividualInterface> action) {
+        AbstractIndividualInterface[] pop = population.getPop();
+        for (int i = 0; i < pop.length; i++) {
+            AbstractIndividualInterface p = pop[i];
+            if (p != null && indexMap.get(p.getId()) == i) {
+                action.accept(p.getId(), p);
+            }
+        }
+    }
+
+    /**
+     * An iterator that walks the population array directly and skip any array index not mapped by its person id.
+     */
+    private abstract class LiveIterator<E> implements Iterator<E> {
+
+        private int nextIndex = -1;
+        private int lastIndex = -1;
+
+        LiveIterator() {
+            advance();
+        }
+
+        private void advance() {
+            AbstractIndividualInterface[] pop = population.getPop();
+            nextIndex++;
+            while (nextIndex < pop.length
+                    && (pop[nextIndex] == null || indexMap.get(pop[nextIndex].getId()) != nextIndex)) {
+                nextIndex++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < population.getPop().length;
+        }
+
+        protected AbstractIndividualInterface nextPerson() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            advance();
+            return population.getPop()[lastIndex];
+        }
+
+        protected int lastIndex() {
+            return lastIndex;
+        }
+
+        @Override
+        public void remove() {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            indexMap.remove(population.getPop()[lastIndex].getId());
+            lastIndex = -1;
+        }
+    }
+
+    /**
+     * A live view of all person id in the map. Changes to the map are reflected in the view, and no copy of population is made.
+     *
+     * @return set of person id
+     */
+    @Override
+    public Set<Integer> keySet() {
+        return new AbstractSet<Integer>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new LiveIterator<Integer>() {
+                    @Override
+                    public Integer next() {
+                        return nextPerson().getId();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return PopulationIndexMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return PopulationIndexMap.this.remove(o) != null;
+            }
+        };
+    }
+
+    /**
+     * A live view of all person in the map. Changes to the map are reflected in the view, and no copy of population is made.
+     *
+     * @return collection of person
+     */
+    @Override
+    public Collection<AbstractIndividualInterface> values() {
+        return new AbstractCollection<AbstractIndividualInterface>() {
+            @Override
+            public Iterator<AbstractIndividualInterface> iterator() {
+                return new LiveIterator<AbstractIndividualInterface>() {
+                    @Override
+                    public AbstractIndividualInterface next() {
+                        return nextPerson();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return PopulationIndexMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsValue(o);
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * A live view of all id-person entries in the map. Changes to the map are reflected in the view, and no copy of population is made.</p>
+     *
+     * <p>
+     * Each entry is an immutable snapshot of the id and person at the time it is returned by the iterator, so it stays valid after iterator.remove()
+     * and can be retained. Use put to replace a person. Iterate over values() or use forEachLive instead if the allocation per entry matters.</p>
+     *
+     * @return set of entries
+     */
+    @Override
+    public Set<Map.Entry<Integer, AbstractIndividualInterface>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer, AbstractIndividualInterface>>() {
+            @Override
+            public Iterator<Map.Entry<Integer, AbstractIndividualInterface>> iterator() {
+                return new LiveIterator<Map.Entry<Integer, AbstractIndividualInterface>>() {
+                    @Override
+                    public Map.Entry<Integer, AbstractIndividualInterface> next() {
+                        AbstractIndividualInterface person = nextPerson();
+                        return new AbstractMap.SimpleImmutableEntry<>(person.getId(), person);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return PopulationIndexMap.this.size();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,184 @@
+package population;
+
+import infection.AbstractInfection;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import person.AbstractIndividualInterface;
+import relationship.RelationshipMap;
+import relationship.RelationshipMapPrimitive;
+import relationship.SingleRelationship;
+
+/**
+ * <p>
+ * An index of serodiscordant relationships, i.e. relationships where one partner is infectious and the other is not infected, for each infection of a
+ * population.</p>
+ *
+ * <p>
+ * As no transmission could occur in other relationships, transmission can be limited to relationships from getDiscordantRelationships instead of all
+ * relationships in the relationship maps. The index is updated when a relationship is added or removed from any relationship map of the population,
+ * and when infection status of a person is changed through ColumnarPersonStore.setInfectionStatus (e.g. by infecting, advancesState or
+ * applyTreatmentAt), so the population must be in columnar format. Infectiousness is assumed to depend on infection status only. For other changes
+ * (e.g. status set directly in column arrays) call update or rebuild.</p>
+ *
+ * <p>
+ * Relationships are kept in order of becoming discordant, so iteration is deterministic.</p>
+ *
+ * @author Ben Hui
+ * @see AbstractFieldsArrayPopulation#setSerodiscordantIndexEnabled(boolean)
+ */
+public class SerodiscordantIndex {
+
+    private final AbstractFieldsArrayPopulation population;
+    private final List<LinkedHashSet<SingleRelationship>> discordant; // [infId]
+
+    private RelationshipMap[] maps = new RelationshipMap[0];
+    private ColumnarPersonStore store = null;
+
+    private final RelationshipMap.RelationshipListener relListener = new RelationshipMap.RelationshipListener() {
+        @Override
+        public void relationshipFormed(RelationshipMap map, SingleRelationship rel) {
+            for (int infId = 0; infId < discordant.size(); infId++) {
+                evaluate(rel, infId);
+            }
+        }
+
+        @Override
+        public void relationshipDissolved(RelationshipMap map, SingleRelationship rel) {
+            for (LinkedHashSet<SingleRelationship> set : discordant) {
+                set.remove(rel);
+            }
+        }
+    };
+
+    private final ColumnarPersonStore.StatusListener statusListener = (infId, slot) -> {
+        if (store != null) {
+            update(store.getId(slot), infId);
+        }
+    };
+
+    SerodiscordantIndex(AbstractFieldsArrayPopulation population) {
+        this.population = population;
+        int numInf = population.getInfList() == null ? 0 : population.getInfList().length;
+        discordant = new ArrayList<>(numInf);
+        for (int i = 0; i < numInf; i++) {
+            discordant.add(new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Register listeners to current relationship maps and columnar store of the population, and rebuild the index.
+     */
+    void attach() {
+        detach();
+        if (population.getRelMap() != null) {
+            maps = population.getRelMap().clone();
+            for (RelationshipMap map : maps) {
+                if (map != null) {
+                    map.addRelationshipListener(relListener);
+                }
+            }
+        }
+        store = population.getColumnarStore();
+        if (store != null) {
+            store.setStatusListener(statusListener);
+        }
+        rebuild();
+    }
+
+    /**
+     * Remove all listeners registered by attach.
+     */
+    void detach() {
+        for (RelationshipMap map : maps) {
+            if (map != null) {
+                map.removeRelationshipListener(relListener);
+            }
+        }
+        maps = new RelationshipMap[0];
+        if (store != null && store.getStatusListener() == statusListener) {
+            store.setStatusListener(null);
+        }
+        store = null;
+    }
+
+    /**
+     * Re-evaluate all relationships.
+     */
+    public void rebuild() {
+        for (LinkedHashSet<SingleRelationship> set : discordant) {
+            set.clear();
+        }
+        for (RelationshipMap map : maps) {
+            if (map != null) {
+                RelationshipMap.RelationshipCursor cursor = map.cursor();
+                while (cursor.next()) {
+                    for (int infId = 0; infId < discordant.size(); infId++) {
+                        evaluate(cursor.get(), infId);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-evaluate all relationships of a person for all infections.
+     *
+     * @param personId person id
+     */
+    public void update(int personId) {
+        for (int infId = 0; infId < discordant.size(); infId++) {
+            update(personId, infId);
+        }
+    }
+
+    /**
+     * Re-evaluate all relationships of a person for an infection.
+     *
+     * @param personId person id
+     * @param infId infection index
+     */
+    public void update(int personId, int infId) {
+        for (RelationshipMap map : maps) {
+            if (map instanceof RelationshipMapPrimitive) {
+                ((RelationshipMapPrimitive) map).forEachEdgeOf(personId, rel -> evaluate(rel, infId));
+            } else if (map != null && map.containsVertex(personId)) {
+                for (SingleRelationship rel : map.edgesOf(personId)) {
+                    evaluate(rel, infId);
+                }
+            }
+        }
+    }
+
+    private void evaluate(SingleRelationship rel, int infId) {
+        AbstractInfection inf = population.getInfList()[infId];
+        AbstractIndividualInterface a = population.getPersonById(rel.partnerA());
+        AbstractIndividualInterface b = population.getPersonById(rel.partnerB());
+        boolean isDiscordant = a != null && b != null
+                && ((inf.isInfectious(a) && !inf.isInfected(b)) || (inf.isInfectious(b) && !inf.isInfected(a)));
+        if (isDiscordant) {
+            discordant.get(infId).add(rel);
+        } else {
+            discordant.get(infId).remove(rel);
+        }
+    }
+
+    /**
+     * Return serodiscordant relationships of an infection.
+     *
+     * @param infId infection index
+     * @return a copy of serodiscordant relationships, in order of becoming discordant
+     */
+    public SingleRelationship[] getDiscordantRelationships(int infId) {
+        return discordant.get(infId).toArray(new SingleRelationship[discordant.get(infId).size()]);
+    }
+
+    public int getNumDiscordant(int infId) {
+        return discordant.get(infId).size();
+    }
+
+    public boolean isDiscordant(SingleRelationship rel, int infId) {
+        return discordant.get(infId).contains(rel);
+    }
+
+}
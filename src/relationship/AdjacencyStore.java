@@ -0,0 +1,320 @@
+package relationship;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import util.IntIntHashMap;
+
+/**
+ * <p>
+ * Primitive adjacency storage of relationships, shared by one or more layers of relationship.</p>
+ *
+ * <p>
+ * Each person is mapped to a vertex index through an IntIntHashMap, and each vertex stores a growable int array of partner id alongside the array of
+ * relationships of all layers. The number of relationships and the membership of each vertex is also kept per layer (up to 64 layers), so a vertex
+ * is only stored once regardless of the number of layers it belongs to.</p>
+ *
+ * @author Ben Hui
+ * @see RelationshipMapPrimitive
+ * @see MultiplexRelationshipMap
+ */
+class AdjacencyStore implements java.io.Serializable {
+
+    private static final long serialVersionUID = 4631857712390247108L;
+
+    static final int MAX_NUM_LAYER = Long.SIZE;
+
+    private static final int INIT_NUM_VERTEX = 16;
+    private static final int INIT_DEGREE = 2;
+
+    private final int numLayer;
+    private final IntIntHashMap vertexIndex = new IntIntHashMap(INIT_NUM_VERTEX, -1); // Person id -> Vertex index
+    private int[] vertexId = new int[INIT_NUM_VERTEX];
+    private int[] degree = new int[INIT_NUM_VERTEX]; // All layers
+    private int[][] layerDegree; // [layer][vertex index], same array as degree if there is only one layer
+    private long[] layerMask = new long[INIT_NUM_VERTEX]; // Bit set if vertex is in layer
+    private final int[] layerSize;
+    private int[][] adjPartner = new int[INIT_NUM_VERTEX][];
+    private SingleRelationship[][] adjRel = new SingleRelationship[INIT_NUM_VERTEX][];
+    private int numVertexIndex = 0;
+    private int[] freeVertexIndex = new int[0];
+    private int numFreeVertexIndex = 0;
+
+    AdjacencyStore(int numLayer) {
+        if (numLayer < 1 || numLayer > MAX_NUM_LAYER) {
+            throw new IllegalArgumentException(getClass().getName() + ": Number of layers must be between 1 and " + MAX_NUM_LAYER);
+        }
+        this.numLayer = numLayer;
+        layerSize = new int[numLayer];
+        layerDegree = new int[numLayer][];
+        if (numLayer == 1) {
+            layerDegree[0] = degree;
+        } else {
+            for (int l = 0; l < numLayer; l++) {
+                layerDegree[l] = new int[INIT_NUM_VERTEX];
+            }
+        }
+    }
+
+    int getNumLayer() {
+        return numLayer;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Vertex">
+    int indexOf(int personId) {
+        return vertexIndex.get(personId);
+    }
+
+    int numVertex() {
+        return vertexIndex.size();
+    }
+
+    int numVertex(int layer) {
+        return layerSize[layer];
+    }
+
+    /**
+     * Return the upper bound (exclusive) of vertex index, for iteration together with isVertex.
+     */
+    int vertexIndexBound() {
+        return numVertexIndex;
+    }
+
+    boolean isVertex(int index, int layer) {
+        return index < numVertexIndex && vertexIndex.get(vertexId[index]) == index && (layerMask[index] & (1L << layer)) != 0;
+    }
+
+    int vertexIdAt(int index) {
+        return vertexId[index];
+    }
+
+    boolean containsVertex(int personId, int layer) {
+        int index = vertexIndex.get(personId);
+        return index >= 0 && (layerMask[index] & (1L << layer)) != 0;
+    }
+
+    /**
+     * Add person to a layer.
+     *
+     * @return vertex index of the person
+     */
+    int addVertex(int personId, int layer) {
+        int index = vertexIndex.get(personId);
+        if (index < 0) {
+            index = allocateVertex(personId);
+        }
+        if ((layerMask[index] & (1L << layer)) == 0) {
+            layerMask[index] |= 1L << layer;
+            layerSize[layer]++;
+        }
+        return index;
+    }
+
+    /**
+     * Remove person from a layer if the person has no relationship in that layer. The vertex is released once it is not in any layer.
+     */
+    void removeIfIsolated(int personId, int layer) {
+        int index = vertexIndex.get(personId);
+        if (index >= 0 && layerDegree[layer][index] == 0 && (layerMask[index] & (1L << layer)) != 0) {
+            layerMask[index] &= ~(1L << layer);
+            layerSize[layer]--;
+            if (layerMask[index] == 0) {
+                releaseVertex(index);
+            }
+        }
+    }
+
+    int degreeOf(int personId, int layer) {
+        int index = vertexIndex.get(personId);
+        return index < 0 ? 0 : layerDegree[layer][index];
+    }
+
+    int degreeOf(int personId) {
+        int index = vertexIndex.get(personId);
+        return index < 0 ? 0 : degree[index];
+    }
+
+    int degreeAt(int index, int layer) {
+        return layerDegree[layer][index];
+    }
+
+    /**
+     * Return relationship at position k of the adjacency of a vertex, for k in [0, degreeOf(personId)) across all layers.
+     */
+    SingleRelationship relAt(int index, int k) {
+        return adjRel[index][k];
+    }
+
+    int totalDegreeAt(int index) {
+        return degree[index];
+    }
+
+    int[] partnersOf(int personId, int layer) {
+        int index = vertexIndex.get(personId);
+        if (index < 0) {
+            return new int[0];
+        }
+        if (layer < 0 || numLayer == 1) {
+            return Arrays.copyOf(adjPartner[index], degree[index]);
+        }
+        int[] res = new int[layerDegree[layer][index]];
+        int n = 0;
+        for (int k = 0; k < degree[index]; k++) {
+            if (adjRel[index][k].layer == layer) {
+                res[n++] = adjPartner[index][k];
+            }
+        }
+        return res;
+    }
+
+    void forEachEdgeOf(int personId, int layer, Consumer<SingleRelationship> action) {
+        int index = vertexIndex.get(personId);
+        if (index >= 0) {
+            for (int k = 0; k < degree[index]; k++) {
+                if (layer < 0 || adjRel[index][k].layer == layer) {
+                    action.accept(adjRel[index][k]);
+                }
+            }
+        }
+    }
+
+    void ensureCapacity(int numNewVertex) {
+        vertexIndex.ensureCapacity(vertexIndex.size() + numNewVertex);
+        ensureVertexCapacity(numVertexIndex - numFreeVertexIndex + numNewVertex);
+    }
+
+    private int allocateVertex(int personId) {
+        int index;
+        if (numFreeVertexIndex > 0) {
+            index = freeVertexIndex[--numFreeVertexIndex];
+        } else {
+            index = numVertexIndex++;
+            if (index == vertexId.length) {
+                ensureVertexCapacity(vertexId.length * 2);
+            }
+            adjPartner[index] = new int[INIT_DEGREE];
+            adjRel[index] = new SingleRelationship[INIT_DEGREE];
+        }
+        vertexId[index] = personId;
+        degree[index] = 0;
+        layerMask[index] = 0;
+        for (int[] ld : layerDegree) {
+            ld[index] = 0;
+        }
+        vertexIndex.put(personId, index);
+        return index;
+    }
+
+    private void ensureVertexCapacity(int numVertex) {
+        if (numVertex > vertexId.length) {
+            int newLength = Math.max(numVertex, vertexId.length * 2);
+            vertexId = Arrays.copyOf(vertexId, newLength);
+            degree = Arrays.copyOf(degree, newLength);
+            layerMask = Arrays.copyOf(layerMask, newLength);
+            adjPartner = Arrays.copyOf(adjPartner, newLength);
+            adjRel = Arrays.copyOf(adjRel, newLength);
+            if (numLayer == 1) {
+                layerDegree[0] = degree;
+            } else {
+                for (int l = 0; l < numLayer; l++) {
+                    layerDegree[l] = Arrays.copyOf(layerDegree[l], newLength);
+                }
+            }
+        }
+    }
+
+    private void releaseVertex(int index) {
+        vertexIndex.remove(vertexId[index]);
+        if (numFreeVertexIndex == freeVertexIndex.length) {
+            freeVertexIndex = Arrays.copyOf(freeVertexIndex, Math.max(INIT_NUM_VERTEX, numFreeVertexIndex * 2));
+        }
+        freeVertexIndex[numFreeVertexIndex++] = index;
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Edge">
+    /**
+     * Return relationship between two person in a layer.
+     *
+     * @param layer layer, or -1 for any layer
+     */
+    SingleRelationship getEdge(int p1, int p2, int layer) {
+        int i1 = vertexIndex.get(p1);
+        int i2 = vertexIndex.get(p2);
+        if (i1 < 0 || i2 < 0) {
+            return null;
+        }
+        return getEdgeAt(i1, i2, p1, p2, layer);
+    }
+
+    SingleRelationship getEdgeAt(int i1, int i2, int p1, int p2, int layer) {
+        // Scan the shorter adjacency
+        int from = degree[i1] <= degree[i2] ? i1 : i2;
+        int target = from == i1 ? p2 : p1;
+        int[] partners = adjPartner[from];
+        SingleRelationship[] rels = adjRel[from];
+        for (int k = 0; k < degree[from]; k++) {
+            if (partners[k] == target && (layer < 0 || rels[k].layer == layer)) {
+                return rels[k];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Link two vertices, which must be already added to the layer of the relationship.
+     */
+    void linkAt(int i1, int i2, SingleRelationship rel) {
+        appendAdjacency(i1, vertexId[i2], rel);
+        appendAdjacency(i2, vertexId[i1], rel);
+    }
+
+    void link(int p1, int p2, SingleRelationship rel, int layer) {
+        if (p1 == p2) {
+            throw new IllegalArgumentException(getClass().getName() + ": loops not allowed");
+        }
+        rel.layer = layer;
+        int i1 = addVertex(p1, layer);
+        int i2 = addVertex(p2, layer);
+        linkAt(i1, i2, rel);
+    }
+
+    void unlink(SingleRelationship rel) {
+        removeAdjacency(vertexIndex.get(rel.partnerA()), rel);
+        removeAdjacency(vertexIndex.get(rel.partnerB()), rel);
+    }
+
+    private void appendAdjacency(int index, int partnerId, SingleRelationship rel) {
+        int d = degree[index];
+        if (d == adjPartner[index].length) {
+            adjPartner[index] = Arrays.copyOf(adjPartner[index], Math.max(INIT_DEGREE, d * 2));
+            adjRel[index] = Arrays.copyOf(adjRel[index], Math.max(INIT_DEGREE, d * 2));
+        }
+        adjPartner[index][d] = partnerId;
+        adjRel[index][d] = rel;
+        degree[index] = d + 1;
+        if (numLayer > 1) {
+            layerDegree[rel.layer][index]++;
+        }
+    }
+
+    private void removeAdjacency(int index, SingleRelationship rel) {
+        if (index < 0) {
+            return;
+        }
+        SingleRelationship[] rels = adjRel[index];
+        for (int k = 0; k < degree[index]; k++) {
+            if (rels[k] == rel) {
+                int last = --degree[index];
+                adjPartner[index][k] = adjPartner[index][last];
+                rels[k] = rels[last];
+                rels[last] = null;
+                if (numLayer > 1) {
+                    layerDegree[rel.layer][index]--;
+                }
+                return;
+            }
+        }
+    }
+    // </editor-fold>
+
+}
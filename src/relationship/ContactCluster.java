@@ -0,0 +1,89 @@
+package relationship;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A connected component of a ContactMap, described by its vertex id and number of edges.</p>
+ *
+ * <p>
+ * The subgraph of the component is only built when getContactMap is first called, by reading the edges of its vertices from the source map. The
+ * source map should therefore not be modified before the subgraph is materialised.</p>
+ *
+ * @author Ben Hui
+ * @see ContactMap#getContactClusters()
+ */
+public class ContactCluster {
+
+    private final ContactMap source;
+    private final long id;
+    private final int[] vertices;
+    private final int numEdge;
+    private ContactMap subMap = null;
+
+    ContactCluster(ContactMap source, long id, int[] vertices, int numEdge) {
+        this.source = source;
+        this.id = id;
+        this.vertices = vertices;
+        this.numEdge = numEdge;
+    }
+
+    /**
+     * Return id of this cluster, which is the id of first vertex of the cluster in vertex order of the source map.
+     *
+     * @return cluster id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Return id of all vertices in this cluster.
+     *
+     * @return vertex id in ascending order, should not be modified
+     */
+    public int[] getVertices() {
+        return vertices;
+    }
+
+    public int getNumVertex() {
+        return vertices.length;
+    }
+
+    public int getNumEdge() {
+        return numEdge;
+    }
+
+    public boolean containsVertex(int v) {
+        return Arrays.binarySearch(vertices, v) >= 0;
+    }
+
+    /**
+     * Return the subgraph of this cluster, with a copy of each edge from the source map.
+     *
+     * @return subgraph of this cluster, with id of getId()
+     */
+    public ContactMap getContactMap() {
+        if (subMap == null) {
+            ContactMap map = new ContactMap();
+            map.setId(id);
+            for (int v : vertices) {
+                map.addVertex(v);
+            }
+            for (int v : vertices) {
+                for (Integer[] e : source.edgesOf(v)) {
+                    int neighbour = e[0] == v ? e[1] : e[0];
+                    if (v < neighbour) {
+                        Integer[] subMapEdge = Arrays.copyOf(e, e.length);
+                        subMapEdge[0] = v;
+                        subMapEdge[1] = neighbour;
+                        map.addEdge(subMapEdge[0], subMapEdge[1], subMapEdge);
+                    }
+                }
+            }
+            subMap = map;
+        }
+        return subMap;
+    }
+
+}
@@ -0,0 +1,110 @@
+package relationship;
+
+import java.util.Arrays;
+import util.IntDisjointSet;
+import util.IntIntHashMap;
+
+/**
+ * <p>
+ * Incremental cluster membership of a ContactMap, maintained through a growable disjoint-set as vertices and edges are added.</p>
+ *
+ * <p>
+ * Along with the disjoint-set, the number of edges of each cluster and the number of clusters of each size are kept, so that cluster size
+ * distribution can be read without visiting the map.</p>
+ *
+ * @author Ben Hui
+ * @see ContactMap#setClusterTracking(boolean)
+ */
+class ContactClusterTracker implements java.io.Serializable {
+
+    private static final long serialVersionUID = -6627019351842703562L;
+
+    private static final int INIT_SIZE = 16;
+
+    private final IntDisjointSet ds = new IntDisjointSet();
+    private final IntIntHashMap vIndex = new IntIntHashMap(INIT_SIZE, -1); // Vertex id -> element
+    private int[] vId = new int[INIT_SIZE]; // Element -> Vertex id
+    private int[] clusterNumEdge = new int[INIT_SIZE]; // Valid for roots only
+    private int[] numClusterOfSize = new int[INIT_SIZE + 1];
+    private int largestClusterSize = 0;
+
+    void addVertex(int v) {
+        if (vIndex.get(v) >= 0) {
+            return;
+        }
+        int i = ds.add();
+        if (i == vId.length) {
+            vId = Arrays.copyOf(vId, vId.length * 2);
+            clusterNumEdge = Arrays.copyOf(clusterNumEdge, vId.length);
+        }
+        vId[i] = v;
+        clusterNumEdge[i] = 0;
+        vIndex.put(v, i);
+        changeNumClusterOfSize(1, 1);
+        largestClusterSize = Math.max(largestClusterSize, 1);
+    }
+
+    /**
+     * Record a new edge.
+     *
+     * @return vertex id of the root of the absorbed cluster if two clusters are merged, or Integer.MIN_VALUE otherwise
+     */
+    int addEdge(int v1, int v2) {
+        int r1 = ds.find(vIndex.get(v1));
+        int r2 = ds.find(vIndex.get(v2));
+        if (r1 == r2) {
+            clusterNumEdge[r1]++;
+            return Integer.MIN_VALUE;
+        }
+        int s1 = ds.setSizeOf(r1);
+        int s2 = ds.setSizeOf(r2);
+        ds.union(r1, r2);
+        int root = ds.find(r1);
+        int absorbed = root == r1 ? r2 : r1;
+        clusterNumEdge[root] += clusterNumEdge[absorbed] + 1;
+        changeNumClusterOfSize(s1, -1);
+        changeNumClusterOfSize(s2, -1);
+        changeNumClusterOfSize(s1 + s2, 1);
+        largestClusterSize = Math.max(largestClusterSize, s1 + s2);
+        return vId[absorbed];
+    }
+
+    private void changeNumClusterOfSize(int size, int change) {
+        if (size >= numClusterOfSize.length) {
+            numClusterOfSize = Arrays.copyOf(numClusterOfSize, Math.max(size + 1, numClusterOfSize.length * 2));
+        }
+        numClusterOfSize[size] += change;
+    }
+
+    int getClusterOf(int v) {
+        int i = vIndex.get(v);
+        return i < 0 ? Integer.MIN_VALUE : vId[ds.find(i)];
+    }
+
+    int getClusterSize(int v) {
+        int i = vIndex.get(v);
+        return i < 0 ? 0 : ds.setSizeOf(i);
+    }
+
+    int getClusterNumEdge(int v) {
+        int i = vIndex.get(v);
+        return i < 0 ? 0 : clusterNumEdge[ds.find(i)];
+    }
+
+    int getNumCluster() {
+        return ds.getNumSet();
+    }
+
+    int getNumClusterOfSize(int size) {
+        return size > 0 && size < numClusterOfSize.length ? numClusterOfSize[size] : 0;
+    }
+
+    int[] getClusterSizeFrequency() {
+        return Arrays.copyOf(numClusterOfSize, largestClusterSize + 1);
+    }
+
+    int getLargestClusterSize() {
+        return largestClusterSize;
+    }
+
+}
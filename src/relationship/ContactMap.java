@@ -1,19 +1,46 @@
 package relationship;
 
-import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.jgrapht.graph.SimpleGraph;
+import util.IntDisjointSet;
+import util.IntIntHashMap;
 
 public class ContactMap extends SimpleGraph<Integer, Integer[]> {
 
 	long id = 0;
+	private ContactClusterTracker clusterTracker = null;
+	private boolean clusterTrackerStale = false;
+	private transient ArrayList<ClusterListener> clusterListeners = null;
+
+	/**
+	 * Listener of clusters merged by a new edge, when cluster tracking is enabled.
+	 *
+	 * @see ContactMap#setClusterTracking(boolean)
+	 */
+	public interface ClusterListener {
+
+		/**
+		 * Called after two clusters are merged.
+		 *
+		 * @param map source map
+		 * @param cluster id of the merged cluster
+		 * @param absorbedCluster id of the cluster absorbed, which is no longer valid
+		 */
+		void clustersMerged(ContactMap map, int cluster, int absorbedCluster);
+	}
 
 	public ContactMap() {
 		super(Integer[].class);
@@ -45,32 +72,77 @@ public class ContactMap extends SimpleGraph<Integer, Integer[]> {
 	}
 
 	public static ContactMap ContactMapFromFullString(String str) throws IOException {
+		return ContactMapFromReader(new StringReader(str));
+	}
+
+	/**
+	 * Import a map from text in the format of toFullString, parsing edges as they are read.
+	 *
+	 * @param reader source, which is not closed
+	 * @return map with edges from reader
+	 * @throws IOException if error occurs during reading
+	 * @see EdgeListTextParser
+	 */
+	public static ContactMap ContactMapFromReader(Reader reader) throws IOException {
 		ContactMap map = new ContactMap();
-		BufferedReader reader = new BufferedReader(new StringReader(str));
-		String line;
+		EdgeListTextParser.parse(reader, map::addEdgeFields);
+		return map;
+	}
 
-		while ((line = reader.readLine()) != null) {
-			String[] ent = line.split(",");
-			Integer[] edge = new Integer[ent.length];
+	/**
+	 * Import a map from a text file in the format of toFullString, parsing edges as they are read.
+	 *
+	 * @param path source file
+	 * @return map with edges from file
+	 * @throws IOException if error occurs during reading
+	 * @see EdgeListTextParser
+	 */
+	public static ContactMap ContactMapFromFile(Path path) throws IOException {
+		ContactMap map = new ContactMap();
+		EdgeListTextParser.parse(path, map::addEdgeFields);
+		return map;
+	}
 
-			if (edge.length > 2) {
-				for (int i = 0; i < ent.length; i++) {
-					edge[i] = Integer.parseInt(ent[i]);
-				}
-				if (!map.containsVertex(edge[0])) {
-					map.addVertex(edge[0]);
-				}
-				if (!map.containsVertex(edge[1])) {
-					map.addVertex(edge[1]);
-				}
-				map.addEdge(edge[0], edge[1], edge);
-			}
+	/**
+	 * Add an edge from its fields, adding its vertices if needed.
+	 *
+	 * @param e edge fields, with source and target vertex as the first two
+	 */
+	void addEdgeFields(int[] e) {
+		Integer[] edge = new Integer[e.length];
+		for (int i = 0; i < e.length; i++) {
+			edge[i] = e[i];
 		}
+		if (!containsVertex(edge[0])) {
+			addVertex(edge[0]);
+		}
+		if (!containsVertex(edge[1])) {
+			addVertex(edge[1]);
+		}
+		addEdge(edge[0], edge[1], edge);
+	}
 
-		reader.close();
-
-		return map;
+	/**
+	 * Export all edges using the compact binary edge-list format, with varint encoding.
+	 *
+	 * @param out output
+	 * @throws IOException if error occurs during writing
+	 * @see EdgeListBinaryCodec
+	 */
+	public void toBinary(DataOutput out) throws IOException {
+		EdgeListBinaryCodec.encode(this, out, EdgeListBinaryCodec.ENCODING_VARINT);
+	}
 
+	/**
+	 * Import a map exported by toBinary.
+	 *
+	 * @param in input
+	 * @return map with id and edges from input
+	 * @throws IOException if error occurs during reading
+	 * @see EdgeListBinaryCodec
+	 */
+	public static ContactMap ContactMapFromBinary(DataInput in) throws IOException {
+		return EdgeListBinaryCodec.decodeContactMap(in);
 	}
 
 	/**
@@ -78,6 +150,57 @@ public class ContactMap extends SimpleGraph<Integer, Integer[]> {
 	 */
 	private static final long serialVersionUID = -1700147390041143788L;
 
+	@Override
+	public boolean addVertex(Integer v) {
+		boolean added = super.addVertex(v);
+		if (added && clusterTracker != null && !clusterTrackerStale) {
+			clusterTracker.addVertex(v);
+		}
+		return added;
+	}
+
+	@Override
+	public boolean addEdge(Integer sourceVertex, Integer targetVertex, Integer[] e) {
+		boolean added = super.addEdge(sourceVertex, targetVertex, e);
+		if (added && clusterTracker != null && !clusterTrackerStale) {
+			int absorbed = clusterTracker.addEdge(sourceVertex, targetVertex);
+			if (absorbed != Integer.MIN_VALUE && clusterListeners != null) {
+				int cluster = clusterTracker.getClusterOf(sourceVertex);
+				for (ClusterListener listener : clusterListeners) {
+					listener.clustersMerged(this, cluster, absorbed);
+				}
+			}
+		}
+		return added;
+	}
+
+	@Override
+	public boolean removeEdge(Integer[] e) {
+		boolean removed = super.removeEdge(e);
+		if (removed && clusterTracker != null) {
+			clusterTrackerStale = true;
+		}
+		return removed;
+	}
+
+	@Override
+	public Integer[] removeEdge(Integer sourceVertex, Integer targetVertex) {
+		Integer[] e = super.removeEdge(sourceVertex, targetVertex);
+		if (e != null && clusterTracker != null) {
+			clusterTrackerStale = true;
+		}
+		return e;
+	}
+
+	@Override
+	public boolean removeVertex(Integer v) {
+		boolean removed = super.removeVertex(v);
+		if (removed && clusterTracker != null) {
+			clusterTrackerStale = true;
+		}
+		return removed;
+	}
+
 	@Override
 	public Integer[] addEdge(Integer sourceVertex, Integer targetVertex) {
 		Integer[] e;
@@ -87,83 +210,190 @@ public class ContactMap extends SimpleGraph<Integer, Integer[]> {
 			e = new Integer[] { targetVertex, sourceVertex };
 		}
 
-		if (super.addEdge(e[0], e[1], e)) {
+		if (addEdge(e[0], e[1], e)) {
 			return e;
 		} else {
 			return super.addEdge(e[0], e[1]);
 		}
 	}
 
+	/**
+	 * Return the subgraph of each connected component of this map.
+	 *
+	 * @return subgraph of each component, with id of the first vertex of the component in vertex order
+	 * @see #getContactClusters()
+	 */
 	public Set<ContactMap> getContactCluster() {
 		Set<ContactMap> res = new HashSet<>();
+		for (ContactCluster c : getContactClusters()) {
+			res.add(c.getContactMap());
+		}
+		return res;
+	}
+
+	/**
+	 * Return a descriptor of each connected component of this map, found through a disjoint-set over all edges. Subgraphs of components are only built
+	 * on ContactCluster.getContactMap.
+	 *
+	 * @return descriptor of each component, in vertex order of the first vertex of each component
+	 */
+	public List<ContactCluster> getContactClusters() {
 		Set<Integer> allV = this.vertexSet();
+		int numV = allV.size();
+		int[] vId = new int[numV];
+		IntIntHashMap vIndex = new IntIntHashMap(numV, -1);
+		int n = 0;
+		for (Integer v : allV) {
+			vId[n] = v;
+			vIndex.put(v, n);
+			n++;
+		}
 
-		Integer[] inSubMap = new Integer[allV.size()];
-		int inSubMapNext = 0;
+		IntDisjointSet ds = new IntDisjointSet(numV);
+		for (Integer[] e : this.edgeSet()) {
+			ds.union(vIndex.get(e[0]), vIndex.get(e[1]));
+		}
 
-		for (Integer v : allV) {
-			int vInsert = Integer.MAX_VALUE;
-			if (inSubMapNext > 0) {
-				vInsert = Arrays.binarySearch(inSubMap, 0, inSubMapNext, v);
+		// Number clusters by first appearance of root
+		int[] clusterOfRoot = new int[numV];
+		Arrays.fill(clusterOfRoot, -1);
+		int[] clusterOfV = new int[numV];
+		int[] clusterStart = new int[ds.getNumSet() + 1];
+		int numCluster = 0;
+		for (int i = 0; i < numV; i++) {
+			int root = ds.find(i);
+			if (clusterOfRoot[root] < 0) {
+				clusterOfRoot[root] = numCluster++;
 			}
-			if (inSubMapNext == 0 || vInsert < 0) {
-				Integer newV = v;
-				int insertPt;
-
-				// Not visited before
-				if (inSubMapNext == 0) {
-					insertPt = 0;
-				} else {
-					insertPt = ~vInsert;
-					System.arraycopy(inSubMap, insertPt, inSubMap, insertPt + 1, inSubMapNext - insertPt);
-				}
-				inSubMap[insertPt] = v;
-				inSubMapNext++;
+			clusterOfV[i] = clusterOfRoot[root];
+			clusterStart[clusterOfV[i] + 1]++;
+		}
+		for (int c = 0; c < numCluster; c++) {
+			clusterStart[c + 1] += clusterStart[c];
+		}
 
-				// New contactMap
-				ContactMap subMap = new ContactMap();
-				subMap.setId(newV);
-				res.add(subMap);
-				// System.out.println("Added subMap #" + subMap.getId());
-				inSubMapNext = addToSubMapDFS(inSubMap, inSubMapNext, newV, subMap);
+		int[] clusterNumEdge = new int[numCluster];
+		for (Integer[] e : this.edgeSet()) {
+			clusterNumEdge[clusterOfV[vIndex.get(e[0])]]++;
+		}
 
+		int[] sortedV = new int[numV];
+		int[] fill = Arrays.copyOf(clusterStart, numCluster);
+		long[] clusterId = new long[numCluster];
+		for (int i = 0; i < numV; i++) {
+			int c = clusterOfV[i];
+			if (fill[c] == clusterStart[c]) {
+				clusterId[c] = vId[i];
 			}
-
+			sortedV[fill[c]++] = vId[i];
 		}
 
+		List<ContactCluster> res = new ArrayList<>(numCluster);
+		for (int c = 0; c < numCluster; c++) {
+			int[] vertices = Arrays.copyOfRange(sortedV, clusterStart[c], clusterStart[c + 1]);
+			Arrays.sort(vertices);
+			res.add(new ContactCluster(this, clusterId[c], vertices, clusterNumEdge[c]));
+		}
 		return res;
+	}
 
+	// <editor-fold defaultstate="collapsed" desc="Incremental cluster tracking">
+	/**
+	 * Enable or disable incremental cluster tracking. When enabled, cluster membership, size and number of edges of each cluster are updated as
+	 * vertices and edges are added, so they can be queried at any time without recomputing clusters. As clusters cannot be split incrementally,
+	 * removal of edge or vertex causes clusters to be recomputed on next query, and no ClusterListener is notified for such changes.
+	 *
+	 * @param enable true to enable tracking
+	 */
+	public void setClusterTracking(boolean enable) {
+		clusterTracker = null;
+		clusterTrackerStale = false;
+		if (enable) {
+			rebuildClusterTracker();
+		}
 	}
 
-	private int addToSubMapDFS(Integer[] inSubMap, int inSubMapNext, Integer newV, ContactMap subMap) {
-		subMap.addVertex(newV);
-		Set<Integer[]> edges = this.edgesOf(newV);
-		for (Integer[] e : edges) {
-			Integer neighbour = e[0].equals(newV) ? e[1] : e[0];
-			int nInst = Arrays.binarySearch(inSubMap, 0, inSubMapNext, neighbour);
-			if (nInst < 0) {
-				System.arraycopy(inSubMap, ~nInst, inSubMap, ~nInst + 1, inSubMapNext - ~nInst);
-				inSubMap[~nInst] = neighbour;
-				inSubMapNext++;
-			}
-			if (!subMap.containsVertex(neighbour)) {
-				subMap.addVertex(neighbour);
-			}
-			Integer[] subMapEdge;
-			subMapEdge = Arrays.copyOf(e, e.length);
+	public boolean isClusterTracking() {
+		return clusterTracker != null;
+	}
+
+	private void rebuildClusterTracker() {
+		ContactClusterTracker tracker = new ContactClusterTracker();
+		for (Integer v : this.vertexSet()) {
+			tracker.addVertex(v);
+		}
+		for (Integer[] e : this.edgeSet()) {
+			tracker.addEdge(getEdgeSource(e), getEdgeTarget(e));
+		}
+		clusterTracker = tracker;
+		clusterTrackerStale = false;
+	}
+
+	private ContactClusterTracker getClusterTracker() {
+		if (clusterTracker == null) {
+			throw new IllegalStateException(getClass().getName() + ": Cluster tracking not enabled");
+		}
+		if (clusterTrackerStale) {
+			rebuildClusterTracker();
+		}
+		return clusterTracker;
+	}
 
-			subMapEdge[0] = newV < neighbour ? newV : neighbour;
-			subMapEdge[1] = newV < neighbour ? neighbour : newV;
+	/**
+	 * Return the cluster of a vertex. Cluster id is the id of a vertex within the cluster, and could change once the cluster is merged with
+	 * another.
+	 *
+	 * @param v vertex id
+	 * @return cluster id, or Integer.MIN_VALUE if v is not in this map
+	 */
+	public int getClusterOf(int v) {
+		return getClusterTracker().getClusterOf(v);
+	}
+
+	public int getClusterSize(int v) {
+		return getClusterTracker().getClusterSize(v);
+	}
+
+	public int getClusterNumEdge(int v) {
+		return getClusterTracker().getClusterNumEdge(v);
+	}
+
+	public int getNumCluster() {
+		return getClusterTracker().getNumCluster();
+	}
+
+	public int getNumClusterOfSize(int size) {
+		return getClusterTracker().getNumClusterOfSize(size);
+	}
+
+	public int getLargestClusterSize() {
+		return getClusterTracker().getLargestClusterSize();
+	}
+
+	/**
+	 * Return the cluster size distribution.
+	 *
+	 * @return number of clusters of each size, indexed by size from 0 to getLargestClusterSize()
+	 */
+	public int[] getClusterSizeFrequency() {
+		return getClusterTracker().getClusterSizeFrequency();
+	}
+
+	public void addClusterListener(ClusterListener listener) {
+		if (clusterListeners == null) {
+			clusterListeners = new ArrayList<>();
+		}
+		clusterListeners.add(listener);
+	}
 
-			if (!subMap.containsEdge(subMapEdge[0], subMapEdge[1])) {
-				subMap.addEdge(subMapEdge[0], subMapEdge[1], subMapEdge);
-				// System.out.println("Add "+ subMapEdge[0] + "," + subMapEdge[1]
-				// + " to subMap #" + subMap.getId());
-				inSubMapNext = addToSubMapDFS(inSubMap, inSubMapNext, neighbour, subMap);
+	public void removeClusterListener(ClusterListener listener) {
+		if (clusterListeners != null) {
+			clusterListeners.remove(listener);
+			if (clusterListeners.isEmpty()) {
+				clusterListeners = null;
 			}
 		}
-		return inSubMapNext;
 	}
-	
+	// </editor-fold>
 
 }
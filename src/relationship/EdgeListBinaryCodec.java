@@ -0,0 +1,492 @@
+package relationship;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import util.ByteBufferDataInput;
+
+/**
+ * <p>
+ * A compact binary edge-list format for ContactMap and TransmissionMap, as an alternative to toFullString and the corresponding FromFullString
+ * methods.</p>
+ *
+ * <p>
+ * Format (all fixed-width values big-endian, as in DataOutput):</p>
+ * <pre>
+ * int     MAGIC
+ * int     VERSION
+ * byte    ENCODING (ENCODING_FIXED or ENCODING_VARINT)
+ * int     edge width, i.e. number of int per edge, or 0 if edges have different width
+ * long    map id
+ * per block of up to BLOCK_SIZE edges:
+ *   int   number of edges in block (0 marks the end of edge list)
+ *   int   number of bytes of block payload
+ *   block payload:
+ *     width of each edge (if edge width is 0)
+ *     per field f: value of field f of each edge with more than f fields
+ * </pre>
+ *
+ * <p>
+ * For ENCODING_FIXED each value of the payload is a 4-byte int. For ENCODING_VARINT each value is stored as the difference from the previous value of
+ * the same field within the block, zigzag and varint encoded, so fields that change slowly from edge to edge (e.g. time of contact, or sorted id) take
+ * one or two bytes each. Blocks are independent, and each block is read with a single readFully.</p>
+ *
+ * <p>
+ * Writer and Reader stream edges without building the whole map, e.g. to convert or filter edge lists across many simulations.</p>
+ *
+ * @author Ben Hui
+ * @see ContactMap#toBinary(java.io.DataOutput)
+ * @see TransmissionMap#toBinary(java.io.DataOutput)
+ */
+public class EdgeListBinaryCodec {
+
+    public static final int MAGIC = 0x42454447; // "BEDG"
+    public static final int VERSION = 1;
+
+    public static final byte ENCODING_FIXED = 0;
+    public static final byte ENCODING_VARINT = 1;
+
+    public static final int BLOCK_SIZE = 1 << 12;
+
+    // <editor-fold defaultstate="collapsed" desc="Encode and decode of map">
+    /**
+     * Export all edges of a map.
+     *
+     * @param map source map
+     * @param out output
+     * @param encoding ENCODING_FIXED or ENCODING_VARINT
+     * @throws IOException if error occurs during writing
+     */
+    public static void encode(ContactMap map, DataOutput out, byte encoding) throws IOException {
+        encode(map.edgeSet(), map.getId(), out, encoding);
+    }
+
+    /**
+     * Export all edges of a map.
+     *
+     * @param map source map
+     * @param out output
+     * @param encoding ENCODING_FIXED or ENCODING_VARINT
+     * @throws IOException if error occurs during writing
+     */
+    public static void encode(TransmissionMap map, DataOutput out, byte encoding) throws IOException {
+        encode(map.edgeSet(), map.getId(), out, encoding);
+    }
+
+    private static void encode(Collection<Integer[]> edges, long id, DataOutput out, byte encoding) throws IOException {
+        int edgeWidth = -1;
+        for (Integer[] e : edges) {
+            if (edgeWidth < 0) {
+                edgeWidth = e.length;
+            } else if (edgeWidth != e.length) {
+                edgeWidth = 0;
+                break;
+            }
+        }
+        try (Writer writer = new Writer(out, Math.max(edgeWidth, 0), encoding, id)) {
+            for (Integer[] e : edges) {
+                writer.writeEdge(e);
+            }
+        }
+    }
+
+    /**
+     * Import a ContactMap exported by encode.
+     *
+     * @param in input
+     * @return map with id and edges from input
+     * @throws IOException if error occurs during reading
+     */
+    public static ContactMap decodeContactMap(DataInput in) throws IOException {
+        Reader reader = new Reader(in);
+        ContactMap map = new ContactMap();
+        map.setId(reader.getId());
+        reader.forEachEdge(e -> {
+            if (e.length >= 2) {
+                map.addEdgeFields(e);
+            }
+        });
+        return map;
+    }
+
+    public static ContactMap decodeContactMap(ByteBuffer buffer) throws IOException {
+        return decodeContactMap(new ByteBufferDataInput(buffer));
+    }
+
+    /**
+     * Import a TransmissionMap exported by encode.
+     *
+     * @param in input
+     * @return map with id and edges from input
+     * @throws IOException if error occurs during reading
+     */
+    public static TransmissionMap decodeTransmissionMap(DataInput in) throws IOException {
+        Reader reader = new Reader(in);
+        TransmissionMap map = new TransmissionMap();
+        map.setId(reader.getId());
+        reader.forEachEdge(e -> {
+            if (e.length >= 2) {
+                map.addEdgeFields(e);
+            }
+        });
+        return map;
+    }
+
+    public static TransmissionMap decodeTransmissionMap(ByteBuffer buffer) throws IOException {
+        return decodeTransmissionMap(new ByteBufferDataInput(buffer));
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Writer">
+    /**
+     * Streaming writer of edge list. Edges are buffered and written a block at a time, and the end marker is written on close. Closing the writer
+     * does not close the underlying output.
+     */
+    public static class Writer implements Closeable {
+
+        private final DataOutput out;
+        private final int edgeWidth;
+        private final byte encoding;
+
+        private int[] values = new int[BLOCK_SIZE * 4]; // Row-major
+        private int numValue = 0;
+        private final int[] widths = new int[BLOCK_SIZE];
+        private int numEdge = 0;
+        private int maxWidth = 0;
+        private byte[] payload = new byte[BLOCK_SIZE * 16];
+        private int payloadLength;
+        private boolean closed = false;
+
+        /**
+         * Create a writer and write the header.
+         *
+         * @param out output
+         * @param edgeWidth number of int per edge, or 0 if edges could have different width
+         * @param encoding ENCODING_FIXED or ENCODING_VARINT
+         * @param id map id
+         * @throws IOException if error occurs during writing
+         */
+        public Writer(DataOutput out, int edgeWidth, byte encoding, long id) throws IOException {
+            if (edgeWidth < 0) {
+                throw new IllegalArgumentException(getClass().getName() + ": Invalid edge width " + edgeWidth);
+            }
+            if (encoding != ENCODING_FIXED && encoding != ENCODING_VARINT) {
+                throw new IllegalArgumentException(getClass().getName() + ": Unknown encoding " + encoding);
+            }
+            this.out = out;
+            this.edgeWidth = edgeWidth;
+            this.encoding = encoding;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(encoding);
+            out.writeInt(edgeWidth);
+            out.writeLong(id);
+        }
+
+        public void writeEdge(Integer[] e) throws IOException {
+            int pt = beginEdge(e.length);
+            for (int i = 0; i < e.length; i++) {
+                values[pt + i] = e[i];
+            }
+            endEdge();
+        }
+
+        public void writeEdge(int[] e) throws IOException {
+            int pt = beginEdge(e.length);
+            System.arraycopy(e, 0, values, pt, e.length);
+            endEdge();
+        }
+
+        private int beginEdge(int width) {
+            if (closed) {
+                throw new IllegalStateException(getClass().getName() + ": Writer already closed");
+            }
+            if (edgeWidth > 0 && width != edgeWidth) {
+                throw new IllegalArgumentException(getClass().getName() + ": Expect edge of width " + edgeWidth + " but found " + width);
+            }
+            if (numValue + width > values.length) {
+                values = Arrays.copyOf(values, Math.max(numValue + width, values.length * 2));
+            }
+            widths[numEdge] = width;
+            maxWidth = Math.max(maxWidth, width);
+            int pt = numValue;
+            numValue += width;
+            return pt;
+        }
+
+        private void endEdge() throws IOException {
+            numEdge++;
+            if (numEdge == BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (numEdge == 0) {
+                return;
+            }
+            payloadLength = 0;
+            if (edgeWidth == 0) {
+                int prev = 0;
+                for (int r = 0; r < numEdge; r++) {
+                    prev = put(widths[r], prev);
+                }
+            }
+            for (int f = 0; f < maxWidth; f++) {
+                int prev = 0;
+                int rowStart = 0;
+                for (int r = 0; r < numEdge; r++) {
+                    if (f < widths[r]) {
+                        prev = put(values[rowStart + f], prev);
+                    }
+                    rowStart += widths[r];
+                }
+            }
+            out.writeInt(numEdge);
+            out.writeInt(payloadLength);
+            out.write(payload, 0, payloadLength);
+            numEdge = 0;
+            numValue = 0;
+            maxWidth = 0;
+        }
+
+        /**
+         * Append a value to block payload.
+         *
+         * @return the value, as previous value of the next call
+         */
+        private int put(int val, int prev) {
+            if (payloadLength + 5 > payload.length) {
+                payload = Arrays.copyOf(payload, payload.length * 2);
+            }
+            if (encoding == ENCODING_FIXED) {
+                payload[payloadLength++] = (byte) (val >>> 24);
+                payload[payloadLength++] = (byte) (val >>> 16);
+                payload[payloadLength++] = (byte) (val >>> 8);
+                payload[payloadLength++] = (byte) val;
+            } else {
+                int diff = val - prev;
+                int zigzag = (diff << 1) ^ (diff >> 31);
+                while ((zigzag & ~0x7F) != 0) {
+                    payload[payloadLength++] = (byte) ((zigzag & 0x7F) | 0x80);
+                    zigzag >>>= 7;
+                }
+                payload[payloadLength++] = (byte) zigzag;
+            }
+            return val;
+        }
+
+        /**
+         * Write any buffered edges and the end marker.
+         *
+         * @throws IOException if error occurs during writing
+         */
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                flushBlock();
+                out.writeInt(0);
+                closed = true;
+            }
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Reader">
+    /**
+     * Streaming reader of edge list, reading one block at a time.
+     */
+    public static class Reader {
+
+        private final DataInput in;
+        private final byte encoding;
+        private final int edgeWidth;
+        private final long id;
+
+        private int[] values = new int[0]; // Row-major
+        private int[] rowStart = new int[0];
+        private int[] widths = new int[0];
+        private int numEdge = 0;
+        private int next = 0;
+        private byte[] payload = new byte[0];
+        private int payloadPt;
+        private int payloadEnd;
+        private boolean ended = false;
+
+        /**
+         * Create a reader and read the header.
+         *
+         * @param in input
+         * @throws IOException if error occurs during reading, or if input is not in this format
+         */
+        public Reader(DataInput in) throws IOException {
+            this.in = in;
+            int magic = in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException(EdgeListBinaryCodec.class.getName() + ": Not a binary edge list (magic = 0x" + Integer.toHexString(magic) + ")");
+            }
+            int version = in.readInt();
+            if (version > VERSION) {
+                throw new IOException(EdgeListBinaryCodec.class.getName() + ": Binary edge list version " + version + " not supported");
+            }
+            encoding = in.readByte();
+            if (encoding != ENCODING_FIXED && encoding != ENCODING_VARINT) {
+                throw new IOException(EdgeListBinaryCodec.class.getName() + ": Unknown encoding " + encoding);
+            }
+            edgeWidth = in.readInt();
+            id = in.readLong();
+        }
+
+        public Reader(ByteBuffer buffer) throws IOException {
+            this(new ByteBufferDataInput(buffer));
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * @return number of int per edge, or 0 if edges could have different width
+         */
+        public int getEdgeWidth() {
+            return edgeWidth;
+        }
+
+        public byte getEncoding() {
+            return encoding;
+        }
+
+        /**
+         * Return next edge.
+         *
+         * @return a new array of edge fields, or null if there is no more edge
+         * @throws IOException if error occurs during reading
+         */
+        public int[] next() throws IOException {
+            if (!ensureBlock()) {
+                return null;
+            }
+            int r = next++;
+            return Arrays.copyOfRange(values, rowStart[r], rowStart[r] + widths[r]);
+        }
+
+        /**
+         * Visit all remaining edges.
+         *
+         * @param visitor edge visitor
+         * @return number of edges visited
+         * @throws IOException if error occurs during reading
+         */
+        public long forEachEdge(EdgeVisitor visitor) throws IOException {
+            int[][] edgeByWidth = new int[0][];
+            long count = 0;
+            while (ensureBlock()) {
+                int r = next++;
+                int w = widths[r];
+                if (w >= edgeByWidth.length) {
+                    edgeByWidth = Arrays.copyOf(edgeByWidth, w + 1);
+                }
+                if (edgeByWidth[w] == null) {
+                    edgeByWidth[w] = new int[w];
+                }
+                System.arraycopy(values, rowStart[r], edgeByWidth[w], 0, w);
+                visitor.edge(edgeByWidth[w]);
+                count++;
+            }
+            return count;
+        }
+
+        private boolean ensureBlock() throws IOException {
+            while (next == numEdge) {
+                if (ended) {
+                    return false;
+                }
+                readBlock();
+            }
+            return true;
+        }
+
+        private void readBlock() throws IOException {
+            numEdge = in.readInt();
+            next = 0;
+            if (numEdge == 0) {
+                ended = true;
+                return;
+            }
+            int payloadLength = in.readInt();
+            if (payload.length < payloadLength) {
+                payload = new byte[payloadLength];
+            }
+            in.readFully(payload, 0, payloadLength);
+            payloadPt = 0;
+            payloadEnd = payloadLength;
+
+            if (widths.length < numEdge) {
+                widths = new int[numEdge];
+                rowStart = new int[numEdge];
+            }
+            int maxWidth = edgeWidth;
+            if (edgeWidth == 0) {
+                int prev = 0;
+                for (int r = 0; r < numEdge; r++) {
+                    prev = get(prev);
+                    widths[r] = prev;
+                    maxWidth = Math.max(maxWidth, prev);
+                }
+            } else {
+                Arrays.fill(widths, 0, numEdge, edgeWidth);
+            }
+            int numValue = 0;
+            for (int r = 0; r < numEdge; r++) {
+                rowStart[r] = numValue;
+                numValue += widths[r];
+            }
+            if (values.length < numValue) {
+                values = new int[numValue];
+            }
+            for (int f = 0; f < maxWidth; f++) {
+                int prev = 0;
+                for (int r = 0; r < numEdge; r++) {
+                    if (f < widths[r]) {
+                        prev = get(prev);
+                        values[rowStart[r] + f] = prev;
+                    }
+                }
+            }
+            if (payloadPt != payloadEnd) {
+                throw new IOException(EdgeListBinaryCodec.class.getName() + ": Block payload length mismatch");
+            }
+        }
+
+        private int get(int prev) throws IOException {
+            if (encoding == ENCODING_FIXED) {
+                if (payloadPt + 4 > payloadEnd) {
+                    throw new IOException(EdgeListBinaryCodec.class.getName() + ": Truncated block payload");
+                }
+                int val = ((payload[payloadPt] & 0xFF) << 24) | ((payload[payloadPt + 1] & 0xFF) << 16)
+                        | ((payload[payloadPt + 2] & 0xFF) << 8) | (payload[payloadPt + 3] & 0xFF);
+                payloadPt += 4;
+                return val;
+            }
+            int zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (payloadPt >= payloadEnd || shift > 28) {
+                    throw new IOException(EdgeListBinaryCodec.class.getName() + ": Malformed varint in block payload");
+                }
+                b = payload[payloadPt++];
+                zigzag |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return prev + ((zigzag >>> 1) ^ -(zigzag & 1));
+        }
+    }
+    // </editor-fold>
+
+}
@@ -0,0 +1,156 @@
+package relationship;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A growable primitive edge list, storing fields of all edges in a single int array with offset of each edge, so edges can be collected and merged
+ * without allocating an Integer[] per edge.</p>
+ *
+ * <p>
+ * The buffer can be used directly as an EdgeVisitor. This class is not thread safe.</p>
+ *
+ * @author Ben Hui
+ * @see TransmissionMapLoader
+ */
+public class EdgeListBuffer implements EdgeVisitor {
+
+    private static final int INIT_NUM_EDGE = 16;
+    private static final int INIT_EDGE_WIDTH = 3;
+
+    private int[] values;
+    private int[] offset; // offset[i] to offset[i+1] are fields of edge i
+    private int size = 0;
+
+    public EdgeListBuffer() {
+        this(INIT_NUM_EDGE);
+    }
+
+    public EdgeListBuffer(int expectedNumEdge) {
+        int n = Math.max(expectedNumEdge, 1);
+        values = new int[n * INIT_EDGE_WIDTH];
+        offset = new int[n + 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getWidth(int edge) {
+        return offset[edge + 1] - offset[edge];
+    }
+
+    public int get(int edge, int field) {
+        if (field < 0 || field >= getWidth(edge)) {
+            throw new IndexOutOfBoundsException("Field " + field + " out of bounds for edge of width " + getWidth(edge));
+        }
+        return values[offset[edge] + field];
+    }
+
+    /**
+     * Return a copy of fields of an edge.
+     *
+     * @param edge edge index
+     * @return edge fields
+     */
+    public int[] getEdge(int edge) {
+        return Arrays.copyOfRange(values, offset[edge], offset[edge + 1]);
+    }
+
+    /**
+     * Append an edge. Same as append.
+     *
+     * @param e edge fields
+     */
+    @Override
+    public void edge(int[] e) {
+        append(e);
+    }
+
+    public void append(int[] e) {
+        ensureCapacity(size + 1, offset[size] + e.length);
+        System.arraycopy(e, 0, values, offset[size], e.length);
+        offset[size + 1] = offset[size] + e.length;
+        size++;
+    }
+
+    /**
+     * Append all edges of another buffer.
+     *
+     * @param src source buffer
+     */
+    public void appendAll(EdgeListBuffer src) {
+        int numValue = src.offset[src.size];
+        ensureCapacity(size + src.size, offset[size] + numValue);
+        int base = offset[size];
+        System.arraycopy(src.values, 0, values, base, numValue);
+        for (int i = 1; i <= src.size; i++) {
+            offset[size + i] = base + src.offset[i];
+        }
+        size += src.size;
+    }
+
+    private void ensureCapacity(int numEdge, int numValue) {
+        if (numEdge + 1 > offset.length) {
+            offset = Arrays.copyOf(offset, Math.max(numEdge + 1, offset.length * 2));
+        }
+        if (numValue > values.length) {
+            values = Arrays.copyOf(values, Math.max(numValue, values.length * 2));
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Visit all edges in order.
+     *
+     * @param visitor edge visitor
+     */
+    public void forEachEdge(EdgeVisitor visitor) {
+        int[][] edgeByWidth = new int[0][];
+        for (int i = 0; i < size; i++) {
+            int w = getWidth(i);
+            if (w >= edgeByWidth.length) {
+                edgeByWidth = Arrays.copyOf(edgeByWidth, w + 1);
+            }
+            if (edgeByWidth[w] == null) {
+                edgeByWidth[w] = new int[w];
+            }
+            System.arraycopy(values, offset[i], edgeByWidth[w], 0, w);
+            visitor.edge(edgeByWidth[w]);
+        }
+    }
+
+    /**
+     * Build a TransmissionMap from edges of this buffer. Edges with fewer than 2 fields are ignored.
+     *
+     * @return a new map
+     */
+    public TransmissionMap toTransmissionMap() {
+        TransmissionMap map = new TransmissionMap();
+        forEachEdge(e -> {
+            if (e.length >= 2) {
+                map.addEdgeFields(e);
+            }
+        });
+        return map;
+    }
+
+    /**
+     * Build a ContactMap from edges of this buffer. Edges with fewer than 2 fields are ignored.
+     *
+     * @return a new map
+     */
+    public ContactMap toContactMap() {
+        ContactMap map = new ContactMap();
+        forEachEdge(e -> {
+            if (e.length >= 2) {
+                map.addEdgeFields(e);
+            }
+        });
+        return map;
+    }
+
+}
@@ -0,0 +1,193 @@
+package relationship;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A streaming parser of the comma-separated edge list written by ContactMap.toFullString and TransmissionMap.toFullString.</p>
+ *
+ * <p>
+ * Input is read a chunk at a time into a reusable char buffer and integer fields are parsed in place, so neither a line String nor a String[] of
+ * fields is allocated per edge, and the whole file is never held in memory. As in ContactMapFromFullString, lines with fewer than 3 fields are
+ * skipped, and trailing empty fields are ignored.</p>
+ *
+ * @author Ben Hui
+ * @see EdgeVisitor
+ */
+public class EdgeListTextParser {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MIN_NUM_FIELD = 3;
+
+    private int[][] edgeByWidth = new int[0][];
+    private long[] field = new long[8];
+    private boolean[] fieldValid = new boolean[8];
+    private boolean[] fieldEmpty = new boolean[8];
+
+    // Parser state of current line
+    private long lineNum = 1;
+    private int numField = 0;
+    private long val = 0;
+    private int numDigit = 0;
+    private boolean negative = false;
+    private boolean fieldStarted = false;
+    private boolean valid = true;
+    private boolean lastIsCR = false;
+
+    /**
+     * Parse all edges from a file.
+     *
+     * @param path source file
+     * @param visitor edge visitor
+     * @return number of edges visited
+     * @throws IOException if error occurs during reading
+     * @throws NumberFormatException if a line of at least 3 fields contains a field that is not an int
+     */
+    public static long parse(Path path, EdgeVisitor visitor) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(reader, visitor);
+        }
+    }
+
+    /**
+     * Parse all edges from a reader. The reader is not closed.
+     *
+     * @param reader source
+     * @param visitor edge visitor
+     * @return number of edges visited
+     * @throws IOException if error occurs during reading
+     * @throws NumberFormatException if a line of at least 3 fields contains a field that is not an int
+     */
+    public static long parse(Reader reader, EdgeVisitor visitor) throws IOException {
+        return new EdgeListTextParser().parseAll(reader, visitor);
+    }
+
+    /**
+     * Parse all edges from a buffer of ASCII text (e.g. a memory mapped region of a file written from toFullString), from its position to its
+     * limit. The position of the buffer is not changed. Line number in error messages is counted from the position of the buffer.
+     *
+     * @param buffer source
+     * @param visitor edge visitor
+     * @return number of edges visited
+     * @throws NumberFormatException if a line of at least 3 fields contains a field that is not an int
+     */
+    public static long parse(ByteBuffer buffer, EdgeVisitor visitor) {
+        EdgeListTextParser parser = new EdgeListTextParser();
+        long count = 0;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            count += parser.accept((char) (buffer.get(i) & 0xFF), visitor);
+        }
+        return count + parser.end(visitor);
+    }
+
+    private long parseAll(Reader reader, EdgeVisitor visitor) throws IOException {
+        char[] buf = new char[BUFFER_SIZE];
+        long count = 0;
+        int len;
+        while ((len = reader.read(buf, 0, buf.length)) >= 0) {
+            for (int i = 0; i < len; i++) {
+                count += accept(buf[i], visitor);
+            }
+        }
+        return count + end(visitor);
+    }
+
+    /**
+     * Process next character.
+     *
+     * @return number of edges visited, i.e. 1 if an edge is completed by c, or 0 otherwise
+     */
+    private int accept(char c, EdgeVisitor visitor) {
+        if (c == '\n' || c == '\r') {
+            int res = 0;
+            if (!(c == '\n' && lastIsCR)) {
+                res = endLine(visitor);
+            }
+            lastIsCR = c == '\r';
+            return res;
+        }
+        lastIsCR = false;
+        if (c == ',') {
+            endField();
+        } else if (c >= '0' && c <= '9') {
+            val = val * 10 + (c - '0');
+            numDigit++;
+            if (val > (long) Integer.MAX_VALUE + 1) {
+                valid = false;
+                val = 0;
+            }
+            fieldStarted = true;
+        } else if ((c == '-' || c == '+') && !fieldStarted) {
+            negative = c == '-';
+            fieldStarted = true;
+        } else {
+            valid = false;
+            fieldStarted = true;
+        }
+        return 0;
+    }
+
+    /**
+     * Process the last line if it is not terminated by a line break.
+     */
+    private int end(EdgeVisitor visitor) {
+        if (numField > 0 || fieldStarted) {
+            return endLine(visitor);
+        }
+        return 0;
+    }
+
+    private void endField() {
+        if (numField == field.length) {
+            field = Arrays.copyOf(field, numField * 2);
+            fieldValid = Arrays.copyOf(fieldValid, numField * 2);
+            fieldEmpty = Arrays.copyOf(fieldEmpty, numField * 2);
+        }
+        long v = negative ? -val : val;
+        field[numField] = v;
+        fieldValid[numField] = valid && numDigit > 0 && v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE;
+        fieldEmpty[numField] = !fieldStarted;
+        numField++;
+        val = 0;
+        numDigit = 0;
+        negative = false;
+        fieldStarted = false;
+        valid = true;
+    }
+
+    private int endLine(EdgeVisitor visitor) {
+        endField();
+        // Drop trailing empty fields, as in String.split
+        int width = numField;
+        while (width > 0 && fieldEmpty[width - 1]) {
+            width--;
+        }
+        numField = 0;
+        long line = lineNum++;
+        if (width < MIN_NUM_FIELD) {
+            return 0;
+        }
+        if (width >= edgeByWidth.length) {
+            edgeByWidth = Arrays.copyOf(edgeByWidth, width + 1);
+        }
+        if (edgeByWidth[width] == null) {
+            edgeByWidth[width] = new int[width];
+        }
+        int[] e = edgeByWidth[width];
+        for (int f = 0; f < width; f++) {
+            if (!fieldValid[f]) {
+                throw new NumberFormatException(getClass().getName() + ": Invalid field #" + f + " at line " + line);
+            }
+            e[f] = (int) field[f];
+        }
+        visitor.edge(e);
+        return 1;
+    }
+
+}
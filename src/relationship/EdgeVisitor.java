@@ -0,0 +1,20 @@
+package relationship;
+
+/**
+ * Visitor of edges read from an edge list, without building a ContactMap or TransmissionMap.
+ *
+ * @author Ben Hui
+ * @see EdgeListBinaryCodec.Reader#forEachEdge(relationship.EdgeVisitor)
+ * @see EdgeListTextParser
+ */
+@FunctionalInterface
+public interface EdgeVisitor {
+
+    /**
+     * Called for each edge.
+     *
+     * @param e edge fields. The array is reused for edges of the same width, and should not be kept beyond the call.
+     */
+    void edge(int[] e);
+
+}
@@ -0,0 +1,173 @@
+package relationship;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * A multiplex graph of relationships, where each relationship carries a layer index (e.g. regular and casual partnership).</p>
+ *
+ * <p>
+ * Each layer is a RelationshipMapPrimitive, so getLayers() can be used as the relationship map array of a population (see
+ * AbstractFieldsArrayPopulation.setRelMap). All layers share a single adjacency storage, so a person is only stored once no matter how many layers
+ * it belongs to, and cross-layer queries (e.g. number of partners of any type) only scan the adjacency of that person rather than querying each
+ * layer.</p>
+ *
+ * <p>
+ * Up to 64 layers are supported.</p>
+ *
+ * @author Ben Hui
+ */
+public class MultiplexRelationshipMap implements java.io.Serializable {
+
+    private static final long serialVersionUID = -3301782965714298412L;
+
+    private final AdjacencyStore store;
+    private final RelationshipMapPrimitive[] layers;
+
+    /**
+     * Create a multiplex map, with layers created through createLayer.
+     *
+     * @param numLayer number of layers
+     */
+    public MultiplexRelationshipMap(int numLayer) {
+        store = new AdjacencyStore(numLayer);
+        layers = new RelationshipMapPrimitive[numLayer];
+        for (int l = 0; l < numLayer; l++) {
+            layers[l] = createLayer(l);
+        }
+    }
+
+    /**
+     * Create a layer. Override this to use other type of layer (e.g. one with createRelationship overridden). Note this is called from the
+     * constructor.
+     *
+     * @param layer layer index
+     * @return a new layer
+     */
+    protected RelationshipMapPrimitive createLayer(int layer) {
+        return new RelationshipMapPrimitive(this, layer);
+    }
+
+    AdjacencyStore getStore() {
+        return store;
+    }
+
+    public int getNumLayer() {
+        return layers.length;
+    }
+
+    public RelationshipMapPrimitive getLayer(int layer) {
+        return layers[layer];
+    }
+
+    /**
+     * Return all layers, e.g. to be used as relationship map array of a population.
+     *
+     * @return a copy of layer array
+     */
+    public RelationshipMap[] getLayers() {
+        return Arrays.copyOf(layers, layers.length, RelationshipMap[].class);
+    }
+
+    /**
+     * Return index of a layer of this map.
+     *
+     * @param map relationship map
+     * @return layer index, or -1 if map is not a layer of this map
+     */
+    public int indexOfLayer(RelationshipMap map) {
+        if (map instanceof RelationshipMapPrimitive) {
+            int l = ((RelationshipMapPrimitive) map).getLayer();
+            if (l < layers.length && layers[l] == map) {
+                return l;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return if a person is in any layer.
+     *
+     * @param personId person id
+     * @return true if the person is in any layer
+     */
+    public boolean containsVertex(int personId) {
+        return store.indexOf(personId) >= 0;
+    }
+
+    /**
+     * Return number of person in any layer.
+     *
+     * @return number of person
+     */
+    public int getNumVertex() {
+        return store.numVertex();
+    }
+
+    /**
+     * Return number of partners of a person across all layers.
+     *
+     * @param personId person id
+     * @return number of partners of any type
+     */
+    public int degreeOf(int personId) {
+        return store.degreeOf(personId);
+    }
+
+    /**
+     * Return number of partners of a person in a layer.
+     *
+     * @param personId person id
+     * @param layer layer index
+     * @return number of partners in that layer
+     */
+    public int degreeOf(int personId, int layer) {
+        return store.degreeOf(personId, layer);
+    }
+
+    /**
+     * Return a copy of id of all partners of a person across all layers. A partner is listed once for each layer in which they are partners.
+     *
+     * @param personId person id
+     * @return partner id
+     */
+    public int[] partnersOf(int personId) {
+        return store.partnersOf(personId, -1);
+    }
+
+    /**
+     * Perform an action on every relationship of a person across all layers.
+     *
+     * @param personId person id
+     * @param action action to be performed
+     */
+    public void forEachEdgeOf(int personId, Consumer<SingleRelationship> action) {
+        store.forEachEdgeOf(personId, -1, action);
+    }
+
+    /**
+     * Return a relationship between two person in any layer.
+     *
+     * @param p1 person id
+     * @param p2 person id
+     * @return relationship, or null if the two person are not in a relationship of any layer
+     */
+    public SingleRelationship getEdge(int p1, int p2) {
+        return store.getEdge(p1, p2, -1);
+    }
+
+    /**
+     * Return total number of relationships across all layers.
+     *
+     * @return number of relationships
+     */
+    public int getNumRelationship() {
+        int res = 0;
+        for (RelationshipMapPrimitive map : layers) {
+            res += map.getNumRelationship();
+        }
+        return res;
+    }
+
+}
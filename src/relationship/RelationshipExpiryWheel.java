@@ -0,0 +1,226 @@
+package relationship;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A timing wheel of relationship expiry, with one bucket per day.</p>
+ *
+ * <p>
+ * Relationships are identified by their index in the relationship array of the owning RelationshipMap. Each scheduled index records its absolute
+ * expiry time, and is placed in the bucket of the day it expires (i.e. the first integer time at or after its expiry time). Relationships expiring
+ * more than one revolution ahead share the bucket, and stay there until the wheel reaches their day, so polling a time step only visits
+ * relationships in the bucket of that day rather than all relationships.</p>
+ *
+ * <p>
+ * Expiry time, bucket and position within bucket are stored in arrays parallel to the relationship array, so cancel is O(1) and relationships
+ * themselves carry no scheduling state. The owning map must call move whenever a relationship changes index.</p>
+ *
+ * @author Ben Hui
+ * @see RelationshipMap#setExpiryScheduled(boolean, int)
+ */
+public class RelationshipExpiryWheel implements java.io.Serializable {
+
+    private static final long serialVersionUID = -6114028731920547794L;
+
+    public static final int DEFAULT_NUM_BUCKET = 512;
+
+    private static final int INIT_CAPACITY = 16;
+
+    private final int[][] buckets;
+    private final int[] bucketSize;
+    private final int mask;
+    private int clock;
+    private int size = 0;
+
+    // Keyed by relationship index
+    private double[] expireAt = new double[0];
+    private int[] bucketOf = new int[0];
+    private int[] posInBucket = new int[0];
+
+    /**
+     * Create an empty wheel.
+     *
+     * @param numBucket number of bucket, rounded up to power of 2
+     * @param clock current time
+     */
+    public RelationshipExpiryWheel(int numBucket, int clock) {
+        int n = 1;
+        while (n < numBucket) {
+            n <<= 1;
+        }
+        buckets = new int[n][0];
+        bucketSize = new int[n];
+        mask = n - 1;
+        this.clock = clock;
+    }
+
+    /**
+     * Return the time of last poll, which is used as the time base of time until expire of scheduled relationships.
+     *
+     * @return current time of the wheel
+     */
+    public int getClock() {
+        return clock;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int expireDay(double expireAt) {
+        return (int) Math.ceil(expireAt);
+    }
+
+    public boolean isScheduled(int index) {
+        return index >= 0 && index < posInBucket.length && posInBucket[index] >= 0;
+    }
+
+    /**
+     * Return absolute expiry time of a relationship.
+     *
+     * @param index relationship index
+     * @return expiry time, or Double.NaN if the relationship is not scheduled
+     */
+    public double getExpireAt(int index) {
+        return isScheduled(index) ? expireAt[index] : Double.NaN;
+    }
+
+    /**
+     * Return the expiry time a relationship was last scheduled with, which is kept after it is polled or cancelled until the index is scheduled again.
+     *
+     * @param index relationship index
+     * @return last expiry time, or Double.NaN if the index was never scheduled
+     */
+    double getLastExpireAt(int index) {
+        return index >= 0 && index < expireAt.length ? expireAt[index] : Double.NaN;
+    }
+
+    /**
+     * Schedule, or reschedule, a relationship to expire at given time. Relationship already expired is returned in the next poll.
+     *
+     * @param index relationship index
+     * @param expireAt absolute expiry time
+     */
+    public void schedule(int index, double expireAt) {
+        if (isScheduled(index)) {
+            detach(index);
+        } else {
+            ensureCapacity(index + 1);
+        }
+        int day = Math.max(expireDay(expireAt), clock + 1);
+        int b = day & mask;
+        if (bucketSize[b] == buckets[b].length) {
+            buckets[b] = Arrays.copyOf(buckets[b], Math.max(INIT_CAPACITY, buckets[b].length * 2));
+        }
+        this.expireAt[index] = expireAt;
+        bucketOf[index] = b;
+        posInBucket[index] = bucketSize[b];
+        buckets[b][bucketSize[b]++] = index;
+        size++;
+    }
+
+    /**
+     * Remove a relationship from the wheel.
+     *
+     * @param index relationship index
+     * @return time until expire of the relationship relative to current time of the wheel, or Double.NaN if the relationship was not scheduled
+     */
+    public double cancel(int index) {
+        if (!isScheduled(index)) {
+            return Double.NaN;
+        }
+        detach(index);
+        return expireAt[index] - clock;
+    }
+
+    /**
+     * Record that the relationship at index from is now at index to, e.g. when the owning map swaps the last relationship into a removed position.
+     * The relationship previously at index to must not be scheduled.
+     *
+     * @param from old relationship index
+     * @param to new relationship index
+     */
+    public void move(int from, int to) {
+        if (from == to || !isScheduled(from)) {
+            return;
+        }
+        if (isScheduled(to)) {
+            throw new IllegalStateException(getClass().getName() + ".move: Relationship #" + to + " is still scheduled");
+        }
+        ensureCapacity(to + 1);
+        expireAt[to] = expireAt[from];
+        bucketOf[to] = bucketOf[from];
+        posInBucket[to] = posInBucket[from];
+        buckets[bucketOf[to]][posInBucket[to]] = to;
+        posInBucket[from] = -1;
+    }
+
+    private void detach(int index) {
+        int b = bucketOf[index];
+        int pos = posInBucket[index];
+        // Swap with last
+        int last = buckets[b][--bucketSize[b]];
+        if (last != index) {
+            buckets[b][pos] = last;
+            posInBucket[last] = pos;
+        }
+        posInBucket[index] = -1;
+        size--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > posInBucket.length) {
+            int oldLength = posInBucket.length;
+            int newLength = Math.max(capacity, Math.max(INIT_CAPACITY, oldLength * 2));
+            expireAt = Arrays.copyOf(expireAt, newLength);
+            bucketOf = Arrays.copyOf(bucketOf, newLength);
+            posInBucket = Arrays.copyOf(posInBucket, newLength);
+            Arrays.fill(expireAt, oldLength, newLength, Double.NaN);
+            Arrays.fill(posInBucket, oldLength, newLength, -1);
+        }
+    }
+
+    /**
+     * Advance the wheel to given time, and remove all relationships expiring at or before that time. The relationships returned are not removed from
+     * their RelationshipMap.
+     *
+     * @param time current time
+     * @return index of relationships expiring since last poll
+     */
+    public int[] pollExpired(int time) {
+        int[] res = new int[0];
+        int numRes = 0;
+        if (time > clock) {
+            int[] bucketIndex;
+            if ((long) time - clock >= buckets.length) {
+                bucketIndex = new int[buckets.length];
+                for (int b = 0; b < bucketIndex.length; b++) {
+                    bucketIndex[b] = b;
+                }
+            } else {
+                bucketIndex = new int[time - clock];
+                for (int day = clock + 1; day <= time; day++) {
+                    bucketIndex[day - clock - 1] = day & mask;
+                }
+            }
+            for (int b : bucketIndex) {
+                int[] bucket = buckets[b];
+                // Backward so relationship swapped into current position is already visited
+                for (int i = bucketSize[b] - 1; i >= 0; i--) {
+                    int index = bucket[i];
+                    if (expireDay(expireAt[index]) <= time) {
+                        detach(index);
+                        if (numRes == res.length) {
+                            res = Arrays.copyOf(res, Math.max(INIT_CAPACITY, res.length * 2));
+                        }
+                        res[numRes++] = index;
+                    }
+                }
+            }
+            clock = time;
+        }
+        return Arrays.copyOf(res, numRes);
+    }
+
+}
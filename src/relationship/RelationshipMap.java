@@ -3,6 +3,9 @@ package relationship;
 import java.util.*;
 import org.jgrapht.graph.SimpleGraph;
 import person.AbstractIndividualInterface;
+import random.RandomGenerator;
+import util.IntIndexedSet;
+import util.LongHashSet;
 
 /**
  * <p>
@@ -34,11 +37,45 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
 	ArrayList<SingleRelationship> relArr;
 
     /**
-     * Two internal set that store all MovablePerson in the map as an array, separated by gender. Note this map is synchronized, so it is thread safe.
+     * Relationships added, removed and modified since last commitChanges call, only used if trackChanges is enabled.
+     */
+    private boolean trackChanges = false;
+    private LinkedHashSet<SingleRelationship> addedSinceCommit = null;
+    private ArrayList<SingleRelationship> removedSinceCommit = null;
+    private LinkedHashSet<SingleRelationship> modifiedSinceCommit = null;
+
+    /**
+     * Packed pair of person id (see pairKey) of all relationships in the map, for allocation-free existence checks. Not serialized, rebuilt from
+     * relationships in readObject.
+     */
+    private transient LongHashSet pairIndex = new LongHashSet();
+
+    /**
+     * Listeners of relationships added to or removed from the map. Not serialized.
+     */
+    private transient ArrayList<RelationshipListener> listeners = null;
+
+    /**
+     * Listener of relationships added to or removed from a RelationshipMap.
+     */
+    public interface RelationshipListener {
+
+        void relationshipFormed(RelationshipMap map, SingleRelationship rel);
+
+        void relationshipDissolved(RelationshipMap map, SingleRelationship rel);
+    }
+
+    /**
+     * Expiry wheel of all relationships in the map, only used if expiry is scheduled.
+     */
+    private RelationshipExpiryWheel expiryWheel = null;
+
+    /**
+     * Two internal set that store all available person id in the map, separated by gender. Access to each set is synchronized on the set itself.
+     * Not final as it is set in readObject, where earlier version stored it as Set&lt;Integer&gt;[].
      *
      */
-    @SuppressWarnings("unchecked")
-	private final Set<Integer>[] personByGender = new Set[INDEX_TOTAL];
+    private IntIndexedSet[] personByGender = new IntIndexedSet[INDEX_TOTAL];
     /**
      * List index for male
      */
@@ -58,7 +95,7 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
     public RelationshipMap() {
         super(SingleRelationship.class);
         for (int i = 0; i < personByGender.length; i++) {
-            personByGender[i] = Collections.synchronizedSet(new HashSet<Integer>());
+            personByGender[i] = new IntIndexedSet();
         }
         relArr = new ArrayList<>();
 
@@ -75,12 +112,8 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
      *
      */
     public void setPersonByGender(int[] available, boolean isMale) {
-        int size = available == null ? 0 : available.length;
         int arrayIndex = isMale ? INDEX_MALE : INDEX_FEMALE;
-        personByGender[arrayIndex] = Collections.synchronizedSet(new HashSet<Integer>(size));
-        for (int ent = 0; ent < size; ent++) {
-            personByGender[arrayIndex].add(available[ent]);
-        }
+        personByGender[arrayIndex] = new IntIndexedSet(available);
     }
 
     /**
@@ -136,26 +169,249 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
         SingleRelationship r = this.addEdge(p_1, p_2);
 
         if (r != null) {
-            relArr.add(r);
+            relationshipAdded(r);
         }
         return r;
     }
 
+    /**
+     * Add relationships for multiple pairs of person. The relationship array is sized once for the whole batch.
+     *
+     * @param a id of first person of each pair
+     * @param b id of second person of each pair
+     * @param durations length of each relationship, or null if durations are set by caller
+     * @return relationships added, in the same order as input. Entry is null if the pair is already in a relationship.
+     */
+    public SingleRelationship[] addEdges(int[] a, int[] b, double[] durations) {
+        checkBatchLength(a, b, durations);
+        relArr.ensureCapacity(relArr.size() + a.length);
+        pairIndex.ensureCapacity(pairIndex.size() + a.length);
+        SingleRelationship[] res = new SingleRelationship[a.length];
+        for (int k = 0; k < a.length; k++) {
+            res[k] = addEdge(a[k], b[k]);
+            if (res[k] != null && durations != null) {
+                setDurations(res[k], durations[k]);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Remove relationships of multiple pairs of person.
+     *
+     * @param a id of first person of each pair
+     * @param b id of second person of each pair
+     * @return relationships removed, in the same order as input. Entry is null if the pair is not in a relationship.
+     */
+    public SingleRelationship[] removeEdges(int[] a, int[] b) {
+        checkBatchLength(a, b, null);
+        SingleRelationship[] res = new SingleRelationship[a.length];
+        for (int k = 0; k < a.length; k++) {
+            res[k] = removeEdge((Integer) a[k], (Integer) b[k]);
+        }
+        return res;
+    }
+
+    /**
+     * Remove multiple relationships.
+     *
+     * @param rels relationships to be removed
+     * @return number of relationships removed
+     */
+    public int removeEdges(SingleRelationship[] rels) {
+        int numRemoved = 0;
+        for (SingleRelationship rel : rels) {
+            if (rel != null && removeEdge(rel)) {
+                numRemoved++;
+            }
+        }
+        return numRemoved;
+    }
+
+    protected static void checkBatchLength(int[] a, int[] b, double[] durations) {
+        if (a.length != b.length || (durations != null && durations.length != a.length)) {
+            throw new IllegalArgumentException("RelationshipMap: Length of batch arrays mismatch");
+        }
+    }
+
     @Override
     public boolean removeEdge(SingleRelationship rel) {
         boolean removed = super.removeEdge(rel);
-        Integer[] pids = rel.getLinks();
-        for (Integer pid : pids) {
-            if (super.degreeOf(pid) == 0) {
-                super.removeVertex(pid);
-            }
-        }
+        removeIfIsolated(rel.partnerA());
+        removeIfIsolated(rel.partnerB());
         if (removed) {
-            relArr.remove(rel);
+            relationshipRemoved(rel);
         }
         return removed;
     }
 
+    private void removeIfIsolated(Integer pid) {
+        if (super.degreeOf(pid) == 0) {
+            super.removeVertex(pid);
+        }
+    }
+
+    /**
+     * Record a relationship newly added to the graph in the relationship array and change tracking.
+     *
+     * @param rel relationship added
+     */
+    protected void relationshipAdded(SingleRelationship rel) {
+        rel.relArrIndex = relArr.size();
+        rel.owner = this;
+        relArr.add(rel);
+        pairIndex.add(pairKey(rel.partnerA(), rel.partnerB()));
+        if (listeners != null) {
+            for (RelationshipListener listener : listeners) {
+                listener.relationshipFormed(this, rel);
+            }
+        }
+        if (expiryWheel != null) {
+            expiryWheel.schedule(rel.relArrIndex, expiryWheel.getClock() + rel.getTimeUntilExpire());
+        }
+        if (trackChanges) {
+            addedSinceCommit.add(rel);
+        }
+    }
+
+    /**
+     * Remove a relationship removed from the graph from the relationship array, and record it in change tracking.
+     *
+     * @param rel relationship removed
+     */
+    protected void relationshipRemoved(SingleRelationship rel) {
+        int index = indexOf(rel);
+        if (index < 0) {
+            index = relArr.indexOf(rel);
+        }
+        if (index >= 0) {
+            if (expiryWheel != null && expiryWheel.isScheduled(index)) {
+                rel.timeUntilExpire = expiryWheel.cancel(index);
+            }
+            // Swap with last
+            int lastIndex = relArr.size() - 1;
+            SingleRelationship last = relArr.remove(lastIndex);
+            if (last != rel) {
+                relArr.set(index, last);
+                last.relArrIndex = index;
+                if (expiryWheel != null) {
+                    expiryWheel.move(lastIndex, index);
+                }
+            }
+        }
+        rel.relArrIndex = -1;
+        if (rel.owner == this) {
+            rel.owner = null;
+        }
+        pairIndex.remove(pairKey(rel.partnerA(), rel.partnerB()));
+        if (listeners != null) {
+            for (RelationshipListener listener : listeners) {
+                listener.relationshipDissolved(this, rel);
+            }
+        }
+        if (trackChanges && !addedSinceCommit.remove(rel)) {
+            modifiedSinceCommit.remove(rel);
+            removedSinceCommit.add(rel);
+        }
+    }
+
+    /**
+     * Remove a vertex, and all of its edges, from the underlying graph only.
+     *
+     * @param v person id
+     * @return true if the vertex is removed
+     */
+    protected boolean removeGraphVertex(Integer v) {
+        return super.removeVertex(v);
+    }
+
+    @Override
+    public SingleRelationship addEdge(Integer arg0, Integer arg1) {
+        SingleRelationship r = super.addEdge(arg0, arg1);
+        if (r != null) {
+            pairIndex.add(pairKey(arg0, arg1));
+        }
+        return r;
+    }
+
+    /**
+     * Add a relationship to the underlying graph only. Unlike addEdge(int, int), the relationship is not in the relationship array (unless added
+     * through addEdge(int, int) of a subclass), but is still recorded in change tracking.
+     *
+     * @param arg0 person id
+     * @param arg1 person id
+     * @param rel relationship
+     * @return true if the relationship is added
+     */
+    @Override
+    public boolean addEdge(Integer arg0, Integer arg1, SingleRelationship rel) {
+        boolean added = super.addEdge(arg0, arg1, rel);
+        if (added) {
+            rel.owner = this;
+            pairIndex.add(pairKey(arg0, arg1));
+            if (trackChanges) {
+                addedSinceCommit.add(rel);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Return true if a relationship is in the relationship array (see getRelationshipArray), rather than only in the underlying graph.
+     *
+     * @param rel relationship
+     * @return true if the relationship is in the relationship array
+     */
+    public boolean isInRelationshipArray(SingleRelationship rel) {
+        return indexOf(rel) >= 0;
+    }
+
+    /**
+     * Add a listener to be notified on each relationship added through addEdge(int, int) (or addEdges) and removed through removeEdge or
+     * removeVertex.
+     *
+     * @param listener listener
+     */
+    public void addRelationshipListener(RelationshipListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+        }
+        listeners.add(listener);
+    }
+
+    public void removeRelationshipListener(RelationshipListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                listeners = null;
+            }
+        }
+    }
+
+    /**
+     * Pack a pair of person id into a long, regardless of order of the pair.
+     *
+     * @param p1 person id
+     * @param p2 person id
+     * @return packed pair
+     */
+    public static long pairKey(int p1, int p2) {
+        int lo = Math.min(p1, p2);
+        int hi = Math.max(p1, p2);
+        return ((long) lo << 32) | (hi & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Return true if the two person are in a relationship, in O(1) and without boxing.
+     *
+     * @param p1 person id
+     * @param p2 person id
+     * @return true if the two person are in a relationship
+     */
+    public boolean containsEdge(int p1, int p2) {
+        return pairIndex.contains(pairKey(p1, p2));
+    }
+
     @Override
     public SingleRelationship removeEdge(Integer arg0, Integer arg1) {
         SingleRelationship r = super.getEdge(arg0, arg1);
@@ -171,13 +427,15 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
                 + ": Direct removal not recommended. Please use removeVertex(int personId, boolean isMale)");
         boolean res;
         synchronized (this) {
-            res = super.removeVertex(v);
+            res = removeGraphVertex(v);
         }
         
         if(res){
-            for (Set<Integer> personCollections : this.personByGender) {
-                personCollections.remove(v);
-            }                        
+            for (IntIndexedSet personCollections : this.personByGender) {
+                synchronized (personCollections) {
+                    personCollections.remove(v);
+                }
+            }
         }
         
         return res;
@@ -204,7 +462,7 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
     public boolean removeVertex(int personId, boolean isMale) {
         boolean res;
         synchronized (this) {
-            res = super.removeVertex(personId);
+            res = removeGraphVertex(personId);
         }
         if (res) {
             int arrayIndex = isMale ? INDEX_MALE : INDEX_FEMALE;
@@ -223,7 +481,7 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
     public boolean addAvailablePerson(int personId, boolean isMale) {
         int arrayIndex = isMale ? INDEX_MALE : INDEX_FEMALE;
         boolean res;
-        synchronized (this.personByGender[arrayIndex]) {   // Probably not necessary as personByGender[i] is synchronized anyway
+        synchronized (this.personByGender[arrayIndex]) {
             res = this.personByGender[arrayIndex].add(personId);
         }
         return res;
@@ -236,7 +494,7 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
     public boolean removeAvailablePerson(int personId, boolean isMale) {
         int arrayIndex = isMale ? INDEX_MALE : INDEX_FEMALE;
         boolean res;
-        synchronized (this.personByGender[arrayIndex]) {  // Probably not necessary as personByGender[i] is synchronized anyway
+        synchronized (this.personByGender[arrayIndex]) {
             res = this.personByGender[arrayIndex].remove(personId);
         }
         return res;
@@ -253,12 +511,14 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
         AbstractIndividualInterface[][] res = new AbstractIndividualInterface[2][];
 
         for (int i = 0; i < res.length; i++) {
-            AbstractIndividualInterface[] ent = new AbstractIndividualInterface[this.personByGender[i].size()];
-            Integer[] pid = new Integer[ent.length];
-            pid = this.personByGender[i].toArray(pid);
-            for (int p = 0; p < pid.length; p++) {
-                // For now all in local data
-                ent[p] = personMap.get(pid[p]);
+            AbstractIndividualInterface[] ent;
+            synchronized (this.personByGender[i]) {
+                int[] pid = this.personByGender[i].elements();
+                ent = new AbstractIndividualInterface[this.personByGender[i].size()];
+                for (int p = 0; p < ent.length; p++) {
+                    // For now all in local data
+                    ent[p] = personMap.get(pid[p]);
+                }
             }
             if (comparator != null) {
                 Arrays.sort(ent, comparator);
@@ -276,18 +536,416 @@ public class RelationshipMap extends SimpleGraph<Integer, SingleRelationship> {
     public int[][] getPersonAvailableByIndex() {
         int[][] res = new int[INDEX_TOTAL][];
         for (int i = 0; i < res.length; i++) {
-            res[i] = new int[this.personByGender[i].size()];
-            Integer[] pid = new Integer[this.personByGender[i].size()];
-            pid = this.personByGender[i].toArray(pid);
-            for (int p = 0; p < pid.length; p++) {
-                res[i][p] = pid[p].intValue();
+            synchronized (this.personByGender[i]) {
+                res[i] = this.personByGender[i].toArray();
             }
         }
         return res;
     }
 
+    /**
+     * Return number of available person of a gender.
+     *
+     * @param isMale gender of available person
+     * @return number of available person
+     */
+    public int getNumAvailable(boolean isMale) {
+        IntIndexedSet available = this.personByGender[isMale ? INDEX_MALE : INDEX_FEMALE];
+        synchronized (available) {
+            return available.size();
+        }
+    }
+
+    public boolean isAvailable(int personId, boolean isMale) {
+        IntIndexedSet available = this.personByGender[isMale ? INDEX_MALE : INDEX_FEMALE];
+        synchronized (available) {
+            return available.contains(personId);
+        }
+    }
+
+    /**
+     * Return id of a random available person of a gender.
+     *
+     * @param isMale gender of available person
+     * @param rng random number generator
+     * @return id of the sampled person, or -1 if no person of that gender is available
+     */
+    public int sampleAvailablePerson(boolean isMale, RandomGenerator rng) {
+        IntIndexedSet available = this.personByGender[isMale ? INDEX_MALE : INDEX_FEMALE];
+        synchronized (available) {
+            return available.isEmpty() ? -1 : available.sample(rng);
+        }
+    }
+
+    /**
+     * Return the id of all available person of a gender without copying. Only the first getNumAvailable(isMale) entries are valid, and the array
+     * should not be modified. The content is only valid until the next call of addAvailablePerson, removeAvailablePerson, removeVertex or
+     * setPersonByGender.
+     *
+     * @param isMale gender of available person
+     * @return backing array of available person id
+     * @see RelationshipMap#getNumAvailable(boolean)
+     */
+    public int[] getPersonAvailableView(boolean isMale) {
+        return this.personByGender[isMale ? INDEX_MALE : INDEX_FEMALE].elements();
+    }
+
     public SingleRelationship[] getRelationshipArray() {
         return relArr.toArray(new SingleRelationship[relArr.size()]);
     }
 
+    /**
+     * Return number of relationships in the map, without copying the relationship array.
+     *
+     * @return number of relationships
+     */
+    public int getNumRelationship() {
+        return relArr.size();
+    }
+
+    /**
+     * Return relationship by its position in the relationship array. Note that position of a relationship could change once another relationship is
+     * removed.
+     *
+     * @param index position within relationship array
+     * @return relationship at position
+     */
+    public SingleRelationship getRelationshipAt(int index) {
+        return relArr.get(index);
+    }
+
+    /**
+     * Return a cursor over all relationships in the map.
+     *
+     * @return a new cursor, positioned before the first relationship
+     * @see RelationshipCursor
+     */
+    public RelationshipCursor cursor() {
+        return new RelationshipCursor();
+    }
+
+    /**
+     * <p>
+     * An allocation free cursor over relationships in the map. The current relationship can be removed from the map during the iteration (e.g. when
+     * the relationship expired), and the relationship moved into its position will be visited next.</p>
+     *
+     * <p>
+     * Removing a relationship other than the current one during the iteration could cause some relationships to be skipped.</p>
+     *
+     * <pre>
+     * RelationshipMap.RelationshipCursor cursor = relMap.cursor();
+     * while (cursor.next()) {
+     *     SingleRelationship rel = cursor.get();
+     *     ...
+     * }
+     * </pre>
+     */
+    public final class RelationshipCursor {
+
+        private int index = -1;
+        private SingleRelationship current = null;
+
+        /**
+         * Move to next relationship.
+         *
+         * @return true if there is a next relationship
+         */
+        public boolean next() {
+            if (current == null || (index < relArr.size() && relArr.get(index) == current)) {
+                index++;
+            } // else current is removed, and its position now holds an unvisited relationship (if any)
+            current = index < relArr.size() ? relArr.get(index) : null;
+            return current != null;
+        }
+
+        public SingleRelationship get() {
+            return current;
+        }
+
+        /**
+         * Move cursor back to before the first relationship, so it can be reused.
+         */
+        public void reset() {
+            index = -1;
+            current = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        java.io.ObjectInputStream.GetField fields = in.readFields();
+        relArr = (ArrayList<SingleRelationship>) fields.get("relArr", null);
+        trackChanges = fields.get("trackChanges", false);
+        addedSinceCommit = (LinkedHashSet<SingleRelationship>) fields.get("addedSinceCommit", null);
+        removedSinceCommit = (ArrayList<SingleRelationship>) fields.get("removedSinceCommit", null);
+        modifiedSinceCommit = (LinkedHashSet<SingleRelationship>) fields.get("modifiedSinceCommit", null);
+        if (addedSinceCommit != null && modifiedSinceCommit == null) {
+            // Modification is not tracked by earlier version
+            modifiedSinceCommit = new LinkedHashSet<>();
+        }
+        expiryWheel = (RelationshipExpiryWheel) fields.get("expiryWheel", null);
+        Object[] storedByGender = (Object[]) fields.get("personByGender", null);
+        if (relArr == null || storedByGender == null || storedByGender.length != INDEX_TOTAL) {
+            throw new java.io.InvalidObjectException(getClass().getName() + ": Invalid relationship array or person by gender in serialized map");
+        }
+        personByGender = new IntIndexedSet[INDEX_TOTAL];
+        for (int i = 0; i < INDEX_TOTAL; i++) {
+            if (storedByGender[i] instanceof IntIndexedSet) {
+                personByGender[i] = (IntIndexedSet) storedByGender[i];
+            } else if (storedByGender[i] instanceof Set) {
+                // Written by earlier version, where persons are stored as synchronized Set<Integer>
+                Set<Integer> stored = (Set<Integer>) storedByGender[i];
+                synchronized (stored) {
+                    personByGender[i] = new IntIndexedSet(stored.size());
+                    for (Integer pid : stored) {
+                        personByGender[i].add(pid);
+                    }
+                }
+            } else {
+                throw new java.io.InvalidObjectException(getClass().getName() + ": Invalid person by gender in serialized map");
+            }
+        }
+        // Relationship array position might not be stored by older version
+        for (int i = 0; i < relArr.size(); i++) {
+            relArr.get(i).relArrIndex = i;
+            relArr.get(i).owner = this;
+        }
+        // Include relationships only in the underlying graph, i.e. those added through addEdge(Integer, Integer, SingleRelationship). Graph of this
+        // class is used directly, as subclass state used by an overridden edgeSet is not yet read.
+        Set<SingleRelationship> graphEdges = super.edgeSet();
+        pairIndex = new LongHashSet(relArr.size() + graphEdges.size());
+        for (SingleRelationship rel : relArr) {
+            pairIndex.add(pairKey(rel.partnerA(), rel.partnerB()));
+        }
+        for (SingleRelationship rel : graphEdges) {
+            pairIndex.add(pairKey(rel.partnerA(), rel.partnerB()));
+            rel.owner = this;
+        }
+    }
+
+    /**
+     * Enable or disable tracking of relationships added or removed through addEdge and removeEdge, and of relationships whose durations, time until
+     * expire or start time is set through its setter or this map. Changes through incrementTime are not tracked. Used for delta checkpoints.
+     *
+     * @param trackChanges true to enable tracking
+     */
+    public void setTrackChanges(boolean trackChanges) {
+        this.trackChanges = trackChanges;
+        if (trackChanges && addedSinceCommit == null) {
+            addedSinceCommit = new LinkedHashSet<>();
+            removedSinceCommit = new ArrayList<>();
+            modifiedSinceCommit = new LinkedHashSet<>();
+        }
+    }
+
+    public boolean isTrackChanges() {
+        return trackChanges;
+    }
+
+    /**
+     * Return relationships added since last commitChanges call, and are still in the map.
+     *
+     * @return added relationships, in order of addition
+     */
+    public SingleRelationship[] getAddedSinceCommit() {
+        return addedSinceCommit == null ? new SingleRelationship[0]
+                : addedSinceCommit.toArray(new SingleRelationship[addedSinceCommit.size()]);
+    }
+
+    /**
+     * Return relationships that existed at last commitChanges call, but are removed since.
+     *
+     * @return removed relationships, in order of removal
+     */
+    public SingleRelationship[] getRemovedSinceCommit() {
+        return removedSinceCommit == null ? new SingleRelationship[0]
+                : removedSinceCommit.toArray(new SingleRelationship[removedSinceCommit.size()]);
+    }
+
+    /**
+     * Return relationships that existed at last commitChanges call, are still in the map, and whose durations, time until expire or start time is
+     * set since.
+     *
+     * @return modified relationships, in order of first modification
+     */
+    public SingleRelationship[] getModifiedSinceCommit() {
+        return modifiedSinceCommit == null ? new SingleRelationship[0]
+                : modifiedSinceCommit.toArray(new SingleRelationship[modifiedSinceCommit.size()]);
+    }
+
+    /**
+     * Clear all tracked changes.
+     */
+    public void commitChanges() {
+        if (addedSinceCommit != null) {
+            addedSinceCommit.clear();
+            removedSinceCommit.clear();
+            modifiedSinceCommit.clear();
+        }
+    }
+
+    /**
+     * <p>
+     * Enable or disable scheduled expiry of relationships.</p>
+     *
+     * <p>
+     * Once enabled, each relationship in the map records its absolute expiry time (current time plus its time until expire) in an expiry wheel, and
+     * relationships expiring at each time step are retrieved through pollExpired instead of calling incrementTime of every relationship. Disabling it
+     * restore time until expire of each relationship as relative to the time of last poll.</p>
+     *
+     * <p>
+     * While enabled, time until expire of a relationship already in the map must be read through getTimeUntilExpire of this map, as the schedule is
+     * not visible from the relationship itself. Setting durations or time until expire, either through this map or the relationship, reschedules
+     * the relationship relative to the time of last poll, so relationships can be added first and have their durations set afterward.</p>
+     *
+     * @param enable true to enable scheduled expiry
+     * @param currentTime current time, e.g. global time of population. Ignored if disabling.
+     * @see RelationshipMap#pollExpired(int)
+     */
+    public void setExpiryScheduled(boolean enable, int currentTime) {
+        if (enable && expiryWheel == null) {
+            expiryWheel = new RelationshipExpiryWheel(RelationshipExpiryWheel.DEFAULT_NUM_BUCKET, currentTime);
+            for (int i = 0; i < relArr.size(); i++) {
+                expiryWheel.schedule(i, currentTime + relArr.get(i).getTimeUntilExpire());
+            }
+        } else if (!enable && expiryWheel != null) {
+            for (int i = 0; i < relArr.size(); i++) {
+                if (expiryWheel.isScheduled(i)) {
+                    relArr.get(i).timeUntilExpire = expiryWheel.cancel(i);
+                }
+            }
+            expiryWheel = null;
+        }
+    }
+
+    public boolean isExpiryScheduled() {
+        return expiryWheel != null;
+    }
+
+    /**
+     * Return time of last pollExpired call.
+     *
+     * @return expiry clock
+     * @throws IllegalStateException if expiry is not scheduled
+     */
+    public int getExpiryClock() {
+        if (expiryWheel == null) {
+            throw new IllegalStateException(getClass().getName() + ".getExpiryClock: Expiry is not scheduled.");
+        }
+        return expiryWheel.getClock();
+    }
+
+    /**
+     * Return relationships expiring since last call, i.e. those whose time until expire would become non-positive if incrementTime were called for
+     * every time step up to currentTime. Only the buckets of the time steps elapsed are visited. The relationships are not removed from the map, and
+     * are no longer scheduled.
+     *
+     * @param currentTime current time, e.g. global time of population
+     * @return relationships expired
+     * @throws IllegalStateException if expiry is not scheduled
+     * @see RelationshipMap#setExpiryScheduled(boolean, int)
+     */
+    public SingleRelationship[] pollExpired(int currentTime) {
+        if (expiryWheel == null) {
+            throw new IllegalStateException(getClass().getName() + ".pollExpired: Expiry is not scheduled.");
+        }
+        int[] expired = expiryWheel.pollExpired(currentTime);
+        SingleRelationship[] res = new SingleRelationship[expired.length];
+        for (int r = 0; r < expired.length; r++) {
+            res[r] = relArr.get(expired[r]);
+            res[r].timeUntilExpire = expiryWheel.getLastExpireAt(expired[r]) - expiryWheel.getClock();
+        }
+        return res;
+    }
+
+    /**
+     * Return time until a relationship is expired. Unlike SingleRelationship.getTimeUntilExpire, this is relative to the time of last
+     * pollExpired call if expiry is scheduled.
+     *
+     * @param rel relationship
+     * @return time until expire
+     */
+    public double getTimeUntilExpire(SingleRelationship rel) {
+        int index = indexOf(rel);
+        if (expiryWheel != null && expiryWheel.isScheduled(index)) {
+            return expiryWheel.getExpireAt(index) - expiryWheel.getClock();
+        }
+        return rel.getTimeUntilExpire();
+    }
+
+    /**
+     * Set time until a relationship is expired, rescheduling it if expiry is scheduled.
+     *
+     * @param rel relationship
+     * @param timeUntilExpire time until expire, relative to the time of last pollExpired call if expiry is scheduled
+     */
+    public void setTimeUntilExpire(SingleRelationship rel, double timeUntilExpire) {
+        rel.setTimeUntilExpire(timeUntilExpire);
+        if (rel.owner != this) {
+            reschedule(rel);
+        }
+    }
+
+    /**
+     * Reschedule a relationship after its time until expire is set, if expiry is scheduled, and record it in change tracking. Called by
+     * SingleRelationship.setTimeUntilExpire of relationships in this map.
+     *
+     * @param rel relationship
+     */
+    void timeUntilExpireChanged(SingleRelationship rel) {
+        reschedule(rel);
+        relationshipModified(rel);
+    }
+
+    private void reschedule(SingleRelationship rel) {
+        int index = indexOf(rel);
+        if (expiryWheel != null && index >= 0) {
+            expiryWheel.schedule(index, expiryWheel.getClock() + rel.timeUntilExpire);
+        }
+    }
+
+    /**
+     * Record a relationship in the map whose durations, time until expire or start time is set in change tracking, unless it is added since last
+     * commitChanges call.
+     *
+     * @param rel relationship
+     */
+    void relationshipModified(SingleRelationship rel) {
+        if (trackChanges && !addedSinceCommit.contains(rel)) {
+            modifiedSinceCommit.add(rel);
+        }
+    }
+
+    /**
+     * Set length of a relationship and reset its time until expire, rescheduling it if expiry is scheduled.
+     *
+     * @param rel relationship
+     * @param durations length of the relationship
+     * @see SingleRelationship#setDurations(double)
+     */
+    public void setDurations(SingleRelationship rel, double durations) {
+        rel.setDurations(durations);
+        if (rel.owner != this) {
+            reschedule(rel);
+        }
+    }
+
+    /**
+     * Return absolute time when a relationship is expired.
+     *
+     * @param rel relationship
+     * @return expiry time, or Double.NaN if expiry of the relationship is not scheduled
+     */
+    public double getExpireAt(SingleRelationship rel) {
+        return expiryWheel == null ? Double.NaN : expiryWheel.getExpireAt(indexOf(rel));
+    }
+
+    /**
+     * Return position of a relationship in the relationship array, or -1 if it is not in the array.
+     */
+    private int indexOf(SingleRelationship rel) {
+        int index = rel.relArrIndex;
+        return index >= 0 && index < relArr.size() && relArr.get(index) == rel ? index : -1;
+    }
+
 }
@@ -0,0 +1,257 @@
+package relationship;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import util.IntIntHashMap;
+
+/**
+ * <p>
+ * A RelationshipMapPrimitive that allows multiple threads to form and dissolve relationships simultaneously.</p>
+ *
+ * <p>
+ * Threads propose changes through proposeEdge and proposeRemoveEdge. Each proposal locks the stripes of its two person (in stripe order, so no deadlock
+ * could occur) and is checked against the graph and the proposals already made for the same pair, but the graph itself is not modified. Once all
+ * threads are done, flush applies all proposals from a single thread: removals first, then additions, each sorted by pair of person id. Hence if
+ * threads work on disjoint sets of person with fixed random number streams, the resulting map (including the order of getRelationshipArray) does not
+ * depend on thread scheduling.</p>
+ *
+ * <p>
+ * The graph is read but not locked during the proposal phase, so direct modifications (e.g. addEdge, removeEdge, removeVertex) must not be made until
+ * flush returns. Direct modifications are synchronized on the map, so they are safe among themselves. Proposals not flushed are not serialized.</p>
+ *
+ * @author Ben Hui
+ */
+public class RelationshipMapConcurrent extends RelationshipMapPrimitive {
+
+    private static final long serialVersionUID = 3270164918824539162L;
+
+    public static final int DEFAULT_NUM_STRIPE = 64;
+
+    private final int numStripe;
+    private transient Stripe[] stripes;
+
+    private static final class PendingEdge {
+
+        final int p1;
+        final int p2;
+        final boolean remove;
+        final double durations;
+        final int startTime;
+
+        PendingEdge(int p1, int p2, boolean remove, double durations, int startTime) {
+            this.p1 = p1;
+            this.p2 = p2;
+            this.remove = remove;
+            this.durations = durations;
+            this.startTime = startTime;
+        }
+    }
+
+    private static final class Stripe {
+
+        // Keyed by pair, stored in the stripe of the person with smaller id
+        final HashMap<Long, PendingEdge> pending = new HashMap<>();
+        // Keyed by person id, stored in the stripe of that person
+        final IntIntHashMap pendingDegree = new IntIntHashMap(16, 0);
+
+        void addDegree(int personId, int delta) {
+            int d = pendingDegree.get(personId) + delta;
+            if (d == 0) {
+                pendingDegree.remove(personId);
+            } else {
+                pendingDegree.put(personId, d);
+            }
+        }
+    }
+
+    public RelationshipMapConcurrent() {
+        this(DEFAULT_NUM_STRIPE);
+    }
+
+    /**
+     * Create a map with given number of lock stripes.
+     *
+     * @param numStripe number of stripes, rounded up to power of 2
+     */
+    public RelationshipMapConcurrent(int numStripe) {
+        super();
+        int n = 1;
+        while (n < numStripe) {
+            n <<= 1;
+        }
+        this.numStripe = n;
+        initStripes();
+    }
+
+    private void initStripes() {
+        stripes = new Stripe[numStripe];
+        for (int s = 0; s < stripes.length; s++) {
+            stripes[s] = new Stripe();
+        }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initStripes();
+    }
+
+    private int stripeIndex(int personId) {
+        int h = personId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (numStripe - 1);
+    }
+
+    /**
+     * Propose a new relationship between two person, to be added on next flush.
+     *
+     * @param p1 person id
+     * @param p2 person id
+     * @param durations length of the relationship
+     * @param startTime start time of the relationship
+     * @return true if proposed, or false if the two person are already in a relationship, or already has a proposal
+     */
+    public boolean proposeEdge(int p1, int p2, double durations, int startTime) {
+        if (p1 == p2) {
+            throw new IllegalArgumentException(getClass().getName() + ": loops not allowed");
+        }
+        int s1 = stripeIndex(p1);
+        int s2 = stripeIndex(p2);
+        synchronized (stripes[Math.min(s1, s2)]) {
+            synchronized (stripes[Math.max(s1, s2)]) {
+                long key = pairKey(p1, p2);
+                Stripe owner = stripes[stripeIndex(Math.min(p1, p2))];
+                if (owner.pending.containsKey(key) || getEdge(p1, p2) != null) {
+                    return false;
+                }
+                owner.pending.put(key, new PendingEdge(p1, p2, false, durations, startTime));
+                stripes[s1].addDegree(p1, 1);
+                stripes[s2].addDegree(p2, 1);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Propose removal of the relationship between two person, to be removed on next flush. A pending proposal of new relationship between them is
+     * withdrawn instead.
+     *
+     * @param p1 person id
+     * @param p2 person id
+     * @return true if removal is proposed or a proposal is withdrawn, or false if there is no relationship to remove
+     */
+    public boolean proposeRemoveEdge(int p1, int p2) {
+        int s1 = stripeIndex(p1);
+        int s2 = stripeIndex(p2);
+        synchronized (stripes[Math.min(s1, s2)]) {
+            synchronized (stripes[Math.max(s1, s2)]) {
+                long key = pairKey(p1, p2);
+                Stripe owner = stripes[stripeIndex(Math.min(p1, p2))];
+                PendingEdge pending = owner.pending.get(key);
+                if (pending != null) {
+                    if (pending.remove) {
+                        return false;
+                    }
+                    owner.pending.remove(key);
+                } else if (getEdge(p1, p2) != null) {
+                    owner.pending.put(key, new PendingEdge(p1, p2, true, 0, 0));
+                } else {
+                    return false;
+                }
+                stripes[s1].addDegree(p1, -1);
+                stripes[s2].addDegree(p2, -1);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return number of partners of a person, including proposals not yet flushed.
+     *
+     * @param personId person id
+     * @return number of partners after next flush
+     */
+    public int degreeWithPending(int personId) {
+        Stripe stripe = stripes[stripeIndex(personId)];
+        synchronized (stripe) {
+            return degreeOf(personId) + stripe.pendingDegree.get(personId);
+        }
+    }
+
+    public int getNumPending() {
+        int res = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                res += stripe.pending.size();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Apply all proposals, removals first and then additions, each in order of pair of person id. Must not be called while other threads are still
+     * proposing.
+     *
+     * @return relationships added, in order of addition
+     */
+    public synchronized SingleRelationship[] flush() {
+        ArrayList<Long> keys = new ArrayList<>();
+        HashMap<Long, PendingEdge> all = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                all.putAll(stripe.pending);
+                stripe.pending.clear();
+                stripe.pendingDegree.clear();
+            }
+        }
+        keys.addAll(all.keySet());
+        keys.sort(null);
+
+        for (Long key : keys) {
+            PendingEdge pending = all.get(key);
+            if (pending.remove) {
+                SingleRelationship rel = getEdge(pending.p1, pending.p2);
+                if (rel != null) {
+                    removeEdge(rel);
+                }
+            }
+        }
+        ArrayList<SingleRelationship> added = new ArrayList<>();
+        for (Long key : keys) {
+            PendingEdge pending = all.get(key);
+            if (!pending.remove) {
+                SingleRelationship rel = addEdge(pending.p1, pending.p2);
+                if (rel != null) {
+                    setDurations(rel, pending.durations);
+                    rel.setRelStartTime(pending.startTime);
+                    added.add(rel);
+                }
+            }
+        }
+        return added.toArray(new SingleRelationship[added.size()]);
+    }
+
+    @Override
+    public synchronized SingleRelationship addEdge(int p1, int p2) {
+        return super.addEdge(p1, p2);
+    }
+
+    @Override
+    public synchronized boolean addEdge(Integer arg0, Integer arg1, SingleRelationship rel) {
+        return super.addEdge(arg0, arg1, rel);
+    }
+
+    @Override
+    public synchronized boolean removeEdge(SingleRelationship rel) {
+        return super.removeEdge(rel);
+    }
+
+    @Override
+    public synchronized SingleRelationship[] addEdges(int[] a, int[] b, double[] durations) {
+        return super.addEdges(a, b, durations);
+    }
+
+    @Override
+    public synchronized SingleRelationship[] removeEdges(int[] a, int[] b) {
+        return super.removeEdges(a, b);
+    }
+
+}
@@ -0,0 +1,452 @@
+package relationship;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * A RelationshipMap with primitive adjacency storage.</p>
+ *
+ * <p>
+ * Instead of the vertex and intrusive edge set maps of JGraphT (which are left empty), each person is mapped to a vertex index through a primitive
+ * IntIntHashMap, and each vertex stores a growable int array of partner id alongside the array of relationships (see AdjacencyStore). Edge lookups scan the adjacency of
+ * the person with fewer partners, which is short for sexual networks, and no Integer is boxed on the addEdge(int, int), getEdge(int, int) and
+ * degreeOf(int) paths.</p>
+ *
+ * <p>
+ * The graph operations used by RelationshipMap callers are supported: addVertex, containsVertex, removeVertex, addEdge, removeEdge, getEdge,
+ * containsEdge, edgesOf, degreeOf, vertexSet, edgeSet, getEdgeSource and getEdgeTarget. Unlike RelationshipMap, relationships added through
+ * addEdge(Integer, Integer, SingleRelationship) are also included in getRelationshipArray. Other JGraphT operations are not supported.</p>
+ *
+ * <p>
+ * Relationships are created through createRelationship, which can be overridden to create other type of SingleRelationship.</p>
+ *
+ * <p>
+ * A map could also be a layer of a MultiplexRelationshipMap, in which case the adjacency storage is shared with other layers and only relationships
+ * of its own layer are visible.</p>
+ *
+ * @author Ben Hui
+ */
+public class RelationshipMapPrimitive extends RelationshipMap {
+
+    private static final long serialVersionUID = -1578047460826219543L;
+
+    private final AdjacencyStore store;
+    private final int layer;
+    private final MultiplexRelationshipMap multiplex;
+
+    public RelationshipMapPrimitive() {
+        super();
+        store = new AdjacencyStore(1);
+        layer = 0;
+        multiplex = null;
+    }
+
+    /**
+     * Create a map as a layer of a multiplex relationship map.
+     *
+     * @param multiplex multiplex relationship map which this map belongs to
+     * @param layer layer index within the multiplex map
+     * @see MultiplexRelationshipMap#createLayer(int)
+     */
+    protected RelationshipMapPrimitive(MultiplexRelationshipMap multiplex, int layer) {
+        super();
+        if (layer < 0 || layer >= multiplex.getStore().getNumLayer()) {
+            throw new IllegalArgumentException(getClass().getName() + ": Layer " + layer + " out of range");
+        }
+        store = multiplex.getStore();
+        this.layer = layer;
+        this.multiplex = multiplex;
+    }
+
+    /**
+     * Return the multiplex relationship map this map is a layer of.
+     *
+     * @return the multiplex map, or null if this map is not created as part of a MultiplexRelationshipMap
+     */
+    public MultiplexRelationshipMap getMultiplex() {
+        return multiplex;
+    }
+
+    /**
+     * Return layer index of this map. A map not created as part of a MultiplexRelationshipMap is always at layer 0.
+     *
+     * @return layer index
+     */
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Create a new relationship between two person. Override this to use other type of SingleRelationship.
+     *
+     * @param p1 person id
+     * @param p2 person id
+     * @return a new relationship
+     */
+    protected SingleRelationship createRelationship(int p1, int p2) {
+        return new SingleRelationship(p1, p2);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Vertex">
+    @Override
+    public boolean addVertex(Integer v) {
+        if (store.containsVertex(v, layer)) {
+            return false;
+        }
+        store.addVertex(v, layer);
+        return true;
+    }
+
+    @Override
+    public boolean containsVertex(Integer v) {
+        return v != null && store.containsVertex(v, layer);
+    }
+
+    public boolean containsVertex(int personId) {
+        return store.containsVertex(personId, layer);
+    }
+
+    @Override
+    protected boolean removeGraphVertex(Integer v) {
+        if (!store.containsVertex(v, layer)) {
+            return false;
+        }
+        // As in JGraphT, edges are removed through removeEdge, so partners left without relationship are removed as well
+        int index = store.indexOf(v);
+        while (index >= 0 && store.degreeAt(index, layer) > 0) {
+            removeEdge(lastEdgeAt(index));
+            index = store.indexOf(v);
+        }
+        store.removeIfIsolated(v, layer);
+        return true;
+    }
+
+    private SingleRelationship lastEdgeAt(int index) {
+        for (int k = store.totalDegreeAt(index) - 1; k >= 0; k--) {
+            if (store.relAt(index, k).layer == layer) {
+                return store.relAt(index, k);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int degreeOf(Integer v) {
+        return degreeOf(v.intValue());
+    }
+
+    /**
+     * Return number of partners of a person, without boxing.
+     *
+     * @param personId person id
+     * @return number of partners, or 0 if the person is not in the map
+     */
+    public int degreeOf(int personId) {
+        return store.degreeOf(personId, layer);
+    }
+
+    /**
+     * Return a copy of id of all partners of a person.
+     *
+     * @param personId person id
+     * @return partner id, or empty array if the person is not in the map
+     */
+    public int[] partnersOf(int personId) {
+        return store.partnersOf(personId, layer);
+    }
+
+    /**
+     * Perform an action on every relationship of a person, without creating an edge set.
+     *
+     * @param personId person id
+     * @param action action to be performed
+     */
+    public void forEachEdgeOf(int personId, Consumer<SingleRelationship> action) {
+        store.forEachEdgeOf(personId, layer, action);
+    }
+
+    /**
+     * A live, read-only view of the relationships of a person.
+     *
+     * @param v person id
+     * @return relationships of the person
+     */
+    @Override
+    public Set<SingleRelationship> edgesOf(Integer v) {
+        int personId = v;
+        if (!store.containsVertex(personId, layer)) {
+            throw new IllegalArgumentException(getClass().getName() + ".edgesOf: No such vertex in graph: " + v);
+        }
+        return new AbstractSet<SingleRelationship>() {
+            @Override
+            public Iterator<SingleRelationship> iterator() {
+                return new Iterator<SingleRelationship>() {
+                    private int k = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        int index = store.indexOf(personId);
+                        if (index < 0) {
+                            return false;
+                        }
+                        while (k < store.totalDegreeAt(index) && store.relAt(index, k).layer != layer) {
+                            k++;
+                        }
+                        return k < store.totalDegreeAt(index);
+                    }
+
+                    @Override
+                    public SingleRelationship next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return store.relAt(store.indexOf(personId), k++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return degreeOf(personId);
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (o instanceof SingleRelationship) {
+                    return ((SingleRelationship) o).involves(personId) && containsEdge((SingleRelationship) o);
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * A live, read-only view of all person id in the map.
+     *
+     * @return person id in the map
+     */
+    @Override
+    public Set<Integer> vertexSet() {
+        return new AbstractSet<Integer>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new Iterator<Integer>() {
+                    private int index = advance(-1);
+
+                    private int advance(int from) {
+                        int next = from + 1;
+                        while (next < store.vertexIndexBound() && !store.isVertex(next, layer)) {
+                            next++;
+                        }
+                        return next;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < store.vertexIndexBound();
+                    }
+
+                    @Override
+                    public Integer next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int res = store.vertexIdAt(index);
+                        index = advance(index);
+                        return res;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return store.numVertex(layer);
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return (o instanceof Integer) && store.containsVertex((Integer) o, layer);
+            }
+        };
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Edge">
+    /**
+     * Add a relationship between two person. Vertices are created if not existed.
+     *
+     * @param p1 person id
+     * @param p2 person id
+     * @return the relationship added, or null if the two person are already in a relationship
+     */
+    @Override
+    public SingleRelationship addEdge(int p1, int p2) {
+        if (getEdge(p1, p2) != null) {
+            return null;
+        }
+        SingleRelationship rel = createRelationship(p1, p2);
+        store.link(p1, p2, rel, layer);
+        relationshipAdded(rel);
+        return rel;
+    }
+
+    /**
+     * Add relationships for multiple pairs of person. Vertex storage is sized once for the whole batch, and the vertex index of each person is only
+     * looked up once per pair.
+     *
+     * @param a id of first person of each pair
+     * @param b id of second person of each pair
+     * @param durations length of each relationship, or null if durations are set by caller
+     * @return relationships added, in the same order as input. Entry is null if the pair is already in a relationship.
+     */
+    @Override
+    public SingleRelationship[] addEdges(int[] a, int[] b, double[] durations) {
+        checkBatchLength(a, b, durations);
+        relArr.ensureCapacity(relArr.size() + a.length);
+        store.ensureCapacity(2 * a.length);
+        SingleRelationship[] res = new SingleRelationship[a.length];
+        for (int k = 0; k < a.length; k++) {
+            int p1 = a[k];
+            int p2 = b[k];
+            if (p1 == p2) {
+                throw new IllegalArgumentException(getClass().getName() + ": loops not allowed");
+            }
+            int i1 = store.indexOf(p1);
+            int i2 = store.indexOf(p2);
+            if (i1 >= 0 && i2 >= 0 && store.getEdgeAt(i1, i2, p1, p2, layer) != null) {
+                continue;
+            }
+            i1 = store.addVertex(p1, layer);
+            i2 = store.addVertex(p2, layer);
+            SingleRelationship rel = createRelationship(p1, p2);
+            rel.layer = layer;
+            if (durations != null) {
+                rel.setDurations(durations[k]);
+            }
+            store.linkAt(i1, i2, rel);
+            relationshipAdded(rel);
+            res[k] = rel;
+        }
+        return res;
+    }
+
+    @Override
+    public SingleRelationship[] removeEdges(int[] a, int[] b) {
+        checkBatchLength(a, b, null);
+        SingleRelationship[] res = new SingleRelationship[a.length];
+        for (int k = 0; k < a.length; k++) {
+            SingleRelationship rel = getEdge(a[k], b[k]);
+            if (rel != null && removeEdge(rel)) {
+                res[k] = rel;
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public SingleRelationship addEdge(Integer arg0, Integer arg1) {
+        return addEdge(arg0.intValue(), arg1.intValue());
+    }
+
+    @Override
+    public boolean addEdge(Integer arg0, Integer arg1, SingleRelationship rel) {
+        if (rel == null) {
+            throw new NullPointerException();
+        }
+        if (getEdge(arg0.intValue(), arg1.intValue()) != null) {
+            return false;
+        }
+        store.link(arg0, arg1, rel, layer);
+        relationshipAdded(rel);
+        return true;
+    }
+
+    @Override
+    public SingleRelationship getEdge(Integer arg0, Integer arg1) {
+        return getEdge(arg0.intValue(), arg1.intValue());
+    }
+
+    /**
+     * Return relationship between two person, without boxing.
+     *
+     * @param p1 person id
+     * @param p2 person id
+     * @return the relationship, or null if not found
+     */
+    public SingleRelationship getEdge(int p1, int p2) {
+        return store.getEdge(p1, p2, layer);
+    }
+
+    @Override
+    public boolean containsEdge(Integer arg0, Integer arg1) {
+        return getEdge(arg0.intValue(), arg1.intValue()) != null;
+    }
+
+    @Override
+    public boolean containsEdge(SingleRelationship rel) {
+        return getEdge(rel.partnerA(), rel.partnerB()) == rel;
+    }
+
+    @Override
+    public boolean removeEdge(SingleRelationship rel) {
+        if (!containsEdge(rel)) {
+            return false;
+        }
+        store.unlink(rel);
+        store.removeIfIsolated(rel.partnerA(), layer);
+        store.removeIfIsolated(rel.partnerB(), layer);
+        relationshipRemoved(rel);
+        return true;
+    }
+
+    @Override
+    public SingleRelationship removeEdge(Integer arg0, Integer arg1) {
+        SingleRelationship r = getEdge(arg0.intValue(), arg1.intValue());
+        if (r != null) {
+            removeEdge(r);
+        }
+        return r;
+    }
+
+    @Override
+    public Integer getEdgeSource(SingleRelationship rel) {
+        return rel.partnerA();
+    }
+
+    @Override
+    public Integer getEdgeTarget(SingleRelationship rel) {
+        return rel.partnerB();
+    }
+
+    /**
+     * A read-only view of all relationships in the map.
+     *
+     * @return all relationships
+     */
+    @Override
+    public Set<SingleRelationship> edgeSet() {
+        return new AbstractSet<SingleRelationship>() {
+            @Override
+            public Iterator<SingleRelationship> iterator() {
+                return Collections.unmodifiableList(relArr).iterator();
+            }
+
+            @Override
+            public int size() {
+                return relArr.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return (o instanceof SingleRelationship) && containsEdge((SingleRelationship) o);
+            }
+        };
+    }
+    // </editor-fold>
+
+}
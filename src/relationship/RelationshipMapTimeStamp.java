@@ -13,9 +13,8 @@ public class RelationshipMapTimeStamp extends RelationshipMap{
 
 	@Override
     public SingleRelationship addEdge(Integer arg0, Integer arg1) {
-        SingleRelationshipTimeStamp rel = new SingleRelationshipTimeStamp(new Integer[]{arg0, arg1});
-        super.addEdge(arg0, arg1, rel);
-        return rel;
+        SingleRelationshipTimeStamp rel = new SingleRelationshipTimeStamp(arg0, arg1);
+        return super.addEdge(arg0, arg1, rel) ? rel : null;
     }
     
 }
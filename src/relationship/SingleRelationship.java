@@ -3,6 +3,7 @@ package relationship;
 import infection.AbstractInfection;
 import java.util.Map;
 import person.AbstractIndividualInterface;
+import util.IntIdLookup;
 
 /**
  * <p>An object representing a relationship, in a population
@@ -13,6 +14,15 @@ import person.AbstractIndividualInterface;
  * involved in the relationship, the length of this relationship (in days),
  *  and number of days until this relationship is expired.</p>
  *
+ * <p>Partner id and start time are stored as primitives. Use partnerA(), partnerB() and
+ * otherPartner(int) to access partners without allocation.</p>
+ *
+ * <p>Note for code written against earlier versions: the protected Integer[] partners field
+ * is replaced by the protected int fields partnerA and partnerB, and getLinks() returns a new
+ * array rather than the stored one, so changes to the returned array no longer change the
+ * partners of this relationship. Subclasses should read partnerA and partnerB (or the deprecated
+ * getPartners()) instead of partners. Relationships serialized by earlier versions are still read.</p>
+ *
  * @see population.MovablePerson
  * @see population.RelationshipMap
  * 
@@ -25,9 +35,14 @@ public class SingleRelationship implements java.io.Serializable {
 	 */
 	private static final long serialVersionUID = 1226250887431938673L;
 	/**
-     * The two SingleRelationshipTypePerson involved in this relationship
+     * The two SingleRelationshipTypePerson id involved in this relationship
      */
-    protected Integer[] partners;
+    protected int partnerA;
+    protected int partnerB;
+    /**
+     * Start time of this relationship
+     */
+    protected int relStartTime = 0;
     /**
      * The length of this relationship.
      */
@@ -36,22 +51,92 @@ public class SingleRelationship implements java.io.Serializable {
      * Time until the relation is expired
      */
     protected double timeUntilExpire = 0;
+    /**
+     * Position of this relationship within the relationship array of RelationshipMap, or -1 if not in any map
+     */
+    int relArrIndex = -1;
+    /**
+     * Layer of this relationship, if it is in a layer of MultiplexRelationshipMap
+     */
+    int layer = 0;
+    /**
+     * RelationshipMap this relationship was last added to, or null if not in any map. Used to reschedule expiry and track modification when
+     * durations, time until expire or start time is changed. Not serialized, restored by the map.
+     */
+    transient RelationshipMap owner = null;
 
     /**
      * Constructor of SingleRelationship object
      * @param links two SingleRelationshipTypePerson objects linked by this relationship
      */
     public SingleRelationship(Integer[] links) {
-        this.partners = links;
+        this(links[0], links[1]);
     }
 
     /**
-     * Return SingleRelationshipTypePerson Id linked by this relationship
+     * Constructor of SingleRelationship object
+     * @param partnerA id of first person linked by this relationship
+     * @param partnerB id of second person linked by this relationship
+     */
+    public SingleRelationship(int partnerA, int partnerB) {
+        this.partnerA = partnerA;
+        this.partnerB = partnerB;
+    }
+
+    /**
+     * Return SingleRelationshipTypePerson Id linked by this relationship. Note a new array is created on each call, use partnerA() and partnerB()
+     * instead in frequently called code. Unlike earlier versions, changes to the returned array are not reflected in this relationship.
      *
      * @return the SingleRelationshipTypePerson id involved in this relationship
      */
     public Integer[] getLinks() {
-        return this.partners;
+        return new Integer[]{partnerA, partnerB};
+    }
+
+    /**
+     * Return SingleRelationshipTypePerson Id linked by this relationship, as stored in the partners field of earlier versions.
+     *
+     * @return a new array of the two partner id
+     * @deprecated partners are now stored as partnerA and partnerB, and changes to the returned array are not reflected in this relationship. Use
+     * partnerA() and partnerB() instead.
+     */
+    @Deprecated
+    protected Integer[] getPartners() {
+        return getLinks();
+    }
+
+    public int partnerA() {
+        return partnerA;
+    }
+
+    public int partnerB() {
+        return partnerB;
+    }
+
+    /**
+     * Return id of the partner of a person in this relationship
+     *
+     * @param personId id of a person in this relationship
+     * @return id of the other person
+     * @throws IllegalArgumentException if the person is not in this relationship
+     */
+    public int otherPartner(int personId) {
+        if (personId == partnerA) {
+            return partnerB;
+        } else if (personId == partnerB) {
+            return partnerA;
+        }
+        throw new IllegalArgumentException(getClass().getName() + ".otherPartner: Person #" + personId + " not in relationship");
+    }
+
+    /**
+     * Return true if a person is in this relationship
+     *
+     * @param personId person id
+     * @return true if the person is either partner
+     */
+    public boolean involves(int personId) {
+        return personId == partnerA || personId == partnerB;
     }
 
     /**
@@ -61,7 +146,7 @@ public class SingleRelationship implements java.io.Serializable {
      * @return the SingleRelationshipTypePerson id involved in this relationship, as int
      */
     public int[] getLinksValues() {
-        int[] res = {this.partners[0], this.partners[1]};
+        int[] res = {this.partnerA, this.partnerB};
         return res;
     }
 
@@ -72,11 +157,57 @@ public class SingleRelationship implements java.io.Serializable {
      * @return AbstractPerson involved in this relationship
      */
     public <T extends AbstractIndividualInterface> AbstractIndividualInterface[] getLinks(Map<Integer, T> dataMap) {
-        AbstractIndividualInterface[] res = new AbstractIndividualInterface[partners.length];
-        for (int i = 0; i < res.length; i++) {
-            res[i] = dataMap.get(partners[i]);
+        return new AbstractIndividualInterface[]{lookup(dataMap, partnerA), lookup(dataMap, partnerB)};
+    }
+
+    /**
+     * Return first AbstractPerson linked by this relationship, without creating an array
+     * @param <T>
+     * @param dataMap a AbstractPerson mapping by id
+     * @return first AbstractPerson involved in this relationship
+     */
+    public <T extends AbstractIndividualInterface> AbstractIndividualInterface getPartnerA(Map<Integer, T> dataMap) {
+        return lookup(dataMap, partnerA);
+    }
+
+    /**
+     * Return second AbstractPerson linked by this relationship, without creating an array
+     * @param <T>
+     * @param dataMap a AbstractPerson mapping by id
+     * @return second AbstractPerson involved in this relationship
+     */
+    public <T extends AbstractIndividualInterface> AbstractIndividualInterface getPartnerB(Map<Integer, T> dataMap) {
+        return lookup(dataMap, partnerB);
+    }
+
+    private static <T extends AbstractIndividualInterface> AbstractIndividualInterface lookup(Map<Integer, T> dataMap, int personId) {
+        if (dataMap instanceof IntIdLookup) {
+            return (AbstractIndividualInterface) ((IntIdLookup<?>) dataMap).getByIdInt(personId);
+        }
+        return dataMap.get(personId);
+    }
+
+    /**
+     * Get layer of this relationship within a MultiplexRelationshipMap
+     * @return layer index, or 0 if the relationship is not in a multiplex map
+     */
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Get start time of this relationship
+     * @return start time
+     */
+    public int getRelStartTime() {
+        return relStartTime;
+    }
+
+    public void setRelStartTime(int relStartTime) {
+        this.relStartTime = relStartTime;
+        if (owner != null) {
+            owner.relationshipModified(this);
         }
-        return res;
     }
 
     /**
@@ -93,11 +224,34 @@ public class SingleRelationship implements java.io.Serializable {
      */
     public void setDurations(double durations) {
         this.durations = durations;
-        this.timeUntilExpire = durations;
+        setTimeUntilExpire(durations);
+    }
+
+    /**
+     * Get time until this relationship is expired. If expiry is scheduled by the RelationshipMap of this relationship, this is only updated when
+     * the relationship is polled, unscheduled or set, use RelationshipMap.getTimeUntilExpire instead.
+     * @return time until expire
+     * @see RelationshipMap#getTimeUntilExpire(relationship.SingleRelationship)
+     */
+    public double getTimeUntilExpire() {
+        return timeUntilExpire;
     }
 
     /**
-     * Increment time for this relationship
+     * Set time until this relationship is expired, without changing its length. Mainly used when restoring relationship from file.
+     * If expiry is scheduled by the RelationshipMap of this relationship, the relationship is rescheduled relative to the time of last poll.
+     * @param timeUntilExpire time until expire
+     * @see RelationshipMap#setTimeUntilExpire(relationship.SingleRelationship, double)
+     */
+    public void setTimeUntilExpire(double timeUntilExpire) {
+        this.timeUntilExpire = timeUntilExpire;
+        if (owner != null) {
+            owner.timeUntilExpireChanged(this);
+        }
+    }
+
+    /**
+     * Increment time for this relationship. Not used if expiry is scheduled by RelationshipMap, see RelationshipMap.pollExpired.
      * @param deltaT time increment
      * @return time until the relationship is expired
      */
@@ -148,6 +302,27 @@ public class SingleRelationship implements java.io.Serializable {
         return sucTransmission;
     }
 
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        java.io.ObjectInputStream.GetField fields = in.readFields();
+        if (fields.getObjectStreamClass().getField("partners") != null) {
+            // Written by earlier version, where partners are stored as Integer[]
+            Integer[] partners = (Integer[]) fields.get("partners", null);
+            if (partners == null || partners.length != 2) {
+                throw new java.io.InvalidObjectException(getClass().getName() + ": Invalid partners in serialized relationship");
+            }
+            partnerA = partners[0];
+            partnerB = partners[1];
+        } else {
+            partnerA = fields.get("partnerA", 0);
+            partnerB = fields.get("partnerB", 0);
+        }
+        relStartTime = fields.get("relStartTime", 0);
+        durations = fields.get("durations", 0.0);
+        timeUntilExpire = fields.get("timeUntilExpire", 0.0);
+        relArrIndex = fields.get("relArrIndex", -1);
+        layer = fields.get("layer", 0);
+    }
+
     @Override
     public String toString() {
         return Double.toString(durations);
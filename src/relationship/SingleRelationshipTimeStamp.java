@@ -1,28 +1,32 @@
-package relationship;
-
-/**
- * An extension of SingleRelationship, with time stamp recording the start time of the relationship
- *
- * @author Ben Hui
- */
-public class SingleRelationshipTimeStamp extends SingleRelationship {
-
-    /**
-	 * 
-	 */
-	private static final long serialVersionUID = 8441896876051714971L;
-	int relStartTime;
-
-    public SingleRelationshipTimeStamp(Integer[] links) {
-        super(links);
-    }
-
-    public int getRelStartTime() {
-        return relStartTime;
-    }
-
-    public void setRelStartTime(int relStartTime) {
-        this.relStartTime = relStartTime;
-    }
-
-}
+package relationship;
+
+/**
+ * An extension of SingleRelationship, with time stamp recording the start time of the relationship. The start time is now stored in SingleRelationship,
+ * and this class is kept to mark relationships (e.g. in RelationshipMapTimeStamp) whose start time is recorded.
+ *
+ * @author Ben Hui
+ */
+public class SingleRelationshipTimeStamp extends SingleRelationship {
+
+    /**
+	 * 
+	 */
+	private static final long serialVersionUID = 8441896876051714971L;
+
+    public SingleRelationshipTimeStamp(Integer[] links) {
+        super(links);
+    }
+
+    public SingleRelationshipTimeStamp(int partnerA, int partnerB) {
+        super(partnerA, partnerB);
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        java.io.ObjectInputStream.GetField fields = in.readFields();
+        if (fields.getObjectStreamClass().getField("relStartTime") != null) {
+            // Written by earlier version, where start time is stored in this class
+            setRelStartTime(fields.get("relStartTime", 0));
+        }
+    }
+
+}
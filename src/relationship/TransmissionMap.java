@@ -1,11 +1,14 @@
 package relationship;
 
 
-import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.file.Path;
 import java.util.Set;
 
 import org.jgrapht.graph.DirectedMultigraph;
@@ -48,32 +51,77 @@ public class TransmissionMap extends DirectedMultigraph<Integer, Integer[]> {
 	}
 
 	public static TransmissionMap TransmissonMapFromFullString(String str) throws IOException {
+		return TransmissionMapFromReader(new StringReader(str));
+	}
+
+	/**
+	 * Import a map from text in the format of toFullString, parsing edges as they are read.
+	 *
+	 * @param reader source, which is not closed
+	 * @return map with edges from reader
+	 * @throws IOException if error occurs during reading
+	 * @see EdgeListTextParser
+	 */
+	public static TransmissionMap TransmissionMapFromReader(Reader reader) throws IOException {
 		TransmissionMap map = new TransmissionMap();
-		BufferedReader reader = new BufferedReader(new StringReader(str));
-		String line;
+		EdgeListTextParser.parse(reader, map::addEdgeFields);
+		return map;
+	}
 
-		while ((line = reader.readLine()) != null) {
-			String[] ent = line.split(",");
-			Integer[] edge = new Integer[ent.length];
+	/**
+	 * Import a map from a text file in the format of toFullString, parsing edges as they are read.
+	 *
+	 * @param path source file
+	 * @return map with edges from file
+	 * @throws IOException if error occurs during reading
+	 * @see EdgeListTextParser
+	 */
+	public static TransmissionMap TransmissionMapFromFile(Path path) throws IOException {
+		TransmissionMap map = new TransmissionMap();
+		EdgeListTextParser.parse(path, map::addEdgeFields);
+		return map;
+	}
 
-			if (edge.length > 2) {
-				for (int i = 0; i < ent.length; i++) {
-					edge[i] = Integer.parseInt(ent[i]);
-				}
-				if (!map.containsVertex(edge[0])) {
-					map.addVertex(edge[0]);
-				}
-				if (!map.containsVertex(edge[1])) {
-					map.addVertex(edge[1]);
-				}
-				map.addEdge(edge[0], edge[1], edge);
-			}
+	/**
+	 * Add an edge from its fields, adding its vertices if needed.
+	 *
+	 * @param e edge fields, with source and target vertex as the first two
+	 */
+	void addEdgeFields(int[] e) {
+		Integer[] edge = new Integer[e.length];
+		for (int i = 0; i < e.length; i++) {
+			edge[i] = e[i];
 		}
+		if (!containsVertex(edge[0])) {
+			addVertex(edge[0]);
+		}
+		if (!containsVertex(edge[1])) {
+			addVertex(edge[1]);
+		}
+		addEdge(edge[0], edge[1], edge);
+	}
 
-		reader.close();
-
-		return map;
+	/**
+	 * Export all edges using the compact binary edge-list format, with varint encoding.
+	 *
+	 * @param out output
+	 * @throws IOException if error occurs during writing
+	 * @see EdgeListBinaryCodec
+	 */
+	public void toBinary(DataOutput out) throws IOException {
+		EdgeListBinaryCodec.encode(this, out, EdgeListBinaryCodec.ENCODING_VARINT);
+	}
 
+	/**
+	 * Import a map exported by toBinary.
+	 *
+	 * @param in input
+	 * @return map with id and edges from input
+	 * @throws IOException if error occurs during reading
+	 * @see EdgeListBinaryCodec
+	 */
+	public static TransmissionMap TransmissionMapFromBinary(DataInput in) throws IOException {
+		return EdgeListBinaryCodec.decodeTransmissionMap(in);
 	}
 
 	
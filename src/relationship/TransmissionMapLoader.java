@@ -0,0 +1,280 @@
+package relationship;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import util.ByteBufferDataInput;
+
+/**
+ * <p>
+ * Parallel loader of transmission (or contact) map files, in either the text format of toFullString or the binary format of
+ * EdgeListBinaryCodec.</p>
+ *
+ * <p>
+ * A text file is split at line breaks into chunks of about getChunkSize() bytes. Each chunk is memory mapped and parsed into its own EdgeListBuffer
+ * as a task of a ForkJoinPool, and the chunks are then merged in file order, so the result is the same as parsing the file sequentially. A binary
+ * file is read sequentially, as the position of each block is only known once the block before it is read.</p>
+ *
+ * <p>
+ * loadAll loads many files concurrently, with each file passed to a consumer once loaded rather than kept, so at most maxConcurrentFile files are
+ * held in memory at any time.</p>
+ *
+ * @author Ben Hui
+ * @see EdgeListTextParser
+ * @see EdgeListBinaryCodec
+ */
+public class TransmissionMapLoader {
+
+    public static final long DEFAULT_CHUNK_SIZE = 1 << 24;
+
+    private static final int SCAN_BUFFER_SIZE = 1 << 12;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+
+    /**
+     * Consumer of loaded files.
+     */
+    @FunctionalInterface
+    public interface FileConsumer {
+
+        /**
+         * Called once a file is loaded. This could be called from multiple threads at the same time.
+         *
+         * @param fileIndex index of file in the input array
+         * @param edges edges of the file, in file order
+         * @throws IOException if error occurs during processing
+         */
+        void accept(int fileIndex, EdgeListBuffer edges) throws IOException;
+    }
+
+    /**
+     * Create a loader using the common pool and default chunk size.
+     */
+    public TransmissionMapLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a loader.
+     *
+     * @param pool pool where chunks and files are loaded
+     * @param chunkSize approximate number of bytes per chunk of text file, up to Integer.MAX_VALUE / 2
+     */
+    public TransmissionMapLoader(ForkJoinPool pool, long chunkSize) {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException(getClass().getName() + ": Invalid chunk size " + chunkSize);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Load all edges of a file.
+     *
+     * @param file text or binary edge list file
+     * @return edges in file order
+     * @throws IOException if error occurs during reading
+     */
+    public EdgeListBuffer load(Path file) throws IOException {
+        try {
+            return pool.invoke(new RecursiveTask<EdgeListBuffer>() {
+                @Override
+                protected EdgeListBuffer compute() {
+                    return loadInPool(file);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public TransmissionMap loadTransmissionMap(Path file) throws IOException {
+        return load(file).toTransmissionMap();
+    }
+
+    public ContactMap loadContactMap(Path file) throws IOException {
+        return load(file).toContactMap();
+    }
+
+    /**
+     * Load many files concurrently. Files are taken in order by up to maxConcurrentFile workers, and each file is passed to consumer (in the pool)
+     * once loaded. Loading stops at the first error.
+     *
+     * @param files text or binary edge list files
+     * @param maxConcurrentFile maximum number of files loaded at the same time
+     * @param consumer consumer of loaded files
+     * @throws IOException if error occurs during reading or in consumer
+     */
+    public void loadAll(Path[] files, int maxConcurrentFile, FileConsumer consumer) throws IOException {
+        if (maxConcurrentFile <= 0) {
+            throw new IllegalArgumentException(getClass().getName() + ".loadAll: Invalid number of concurrent file " + maxConcurrentFile);
+        }
+        AtomicInteger nextFile = new AtomicInteger(0);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<RecursiveAction> workers = new ArrayList<>();
+        for (int w = 0; w < Math.min(maxConcurrentFile, files.length); w++) {
+            workers.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    int f;
+                    while (!failed.get() && (f = nextFile.getAndIncrement()) < files.length) {
+                        try {
+                            consumer.accept(f, loadInPool(files[f]));
+                        } catch (IOException ex) {
+                            failed.set(true);
+                            throw new UncheckedIOException(ex);
+                        } catch (RuntimeException ex) {
+                            failed.set(true);
+                            throw ex;
+                        }
+                    }
+                }
+            });
+        }
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(workers);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Load a file, forking chunk tasks if needed. Must be called from a task of the pool.
+     */
+    private EdgeListBuffer loadInPool(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            EdgeListBuffer res = new EdgeListBuffer();
+            if (size >= Integer.BYTES) {
+                ByteBuffer head = ByteBuffer.allocate(Integer.BYTES);
+                readFully(channel, head, 0);
+                if (head.getInt(0) == EdgeListBinaryCodec.MAGIC) {
+                    readBinary(channel, size, res);
+                    return res;
+                }
+            }
+
+            List<ChunkTask> chunks = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long end = nextLineStart(channel, Math.min(start + chunkSize, size), size);
+                chunks.add(new ChunkTask(channel, start, end));
+                start = end;
+            }
+            if (chunks.size() == 1) {
+                return chunks.get(0).compute();
+            }
+            ForkJoinTask.invokeAll(chunks);
+            int numEdge = 0;
+            for (ChunkTask chunk : chunks) {
+                numEdge += chunk.getRawResult().size();
+            }
+            res = new EdgeListBuffer(numEdge);
+            for (ChunkTask chunk : chunks) {
+                res.appendAll(chunk.getRawResult());
+            }
+            return res;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void readBinary(FileChannel channel, long size, EdgeListBuffer res) throws IOException {
+        EdgeListBinaryCodec.Reader reader;
+        if (size > Integer.MAX_VALUE) {
+            reader = new EdgeListBinaryCodec.Reader(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)), BUFFER_SIZE)));
+        } else {
+            reader = new EdgeListBinaryCodec.Reader(new ByteBufferDataInput(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)));
+        }
+        reader.forEachEdge(res);
+    }
+
+    /**
+     * Return the position after the first line break at or after pos, or size if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (pos < size) {
+            scan.clear();
+            scan.limit((int) Math.min(SCAN_BUFFER_SIZE, size - pos));
+            readFully(channel, scan, pos);
+            for (int i = 0; i < scan.limit(); i++) {
+                if (scan.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += scan.limit();
+        }
+        return size;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer dst, long pos) throws IOException {
+        while (dst.hasRemaining()) {
+            int n = channel.read(dst, pos);
+            if (n < 0) {
+                throw new IOException(TransmissionMapLoader.class.getName() + ": Unexpected end of file");
+            }
+            pos += n;
+        }
+    }
+
+    private static class ChunkTask extends RecursiveTask<EdgeListBuffer> {
+
+        private static final long serialVersionUID = 8410373954625612902L;
+
+        private final transient FileChannel channel;
+        private final long start;
+        private final long end;
+
+        ChunkTask(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected EdgeListBuffer compute() {
+            if (end - start > Integer.MAX_VALUE) {
+                throw new UncheckedIOException(new IOException(TransmissionMapLoader.class.getName()
+                        + ": Line too long at position " + start));
+            }
+            EdgeListBuffer res = new EdgeListBuffer();
+            try {
+                EdgeListTextParser.parse(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), res);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return res;
+        }
+    }
+
+}
@@ -3,6 +3,8 @@ package sim;
 import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
+import population.AbstractFieldsArrayPopulation;
+import population.PopulationBinaryCodec;
 import util.PersonClassifier;
 
 /**
@@ -74,6 +76,24 @@ public interface SimulationInterface {
     void setSnapshotSetting(PersonClassifier[] snapshotCountClassifier, boolean[] snapshotCountAccum);
 
     void generateOneResultSet() throws IOException, InterruptedException;
+
+    /**
+     * Import a population file from PROP_POP_IMPORT_PATH if it is a binary population file. The file is read through a read-only mapping shared by
+     * all simulations importing it, with person columns copied only on first write (see PopulationBinaryCodec.decodeFile), rather than each
+     * simulation holding its own copy of the population.
+     *
+     * @param pop population to be imported into
+     * @param popFile population file, e.g. with POP_FILE_PREFIX under PROP_POP_IMPORT_PATH
+     * @return true if imported, or false if the file is not a binary population file (e.g. a zipped serialized population) and is not read
+     * @throws IOException if error occurs during reading
+     */
+    public static boolean importBinaryPopulation(AbstractFieldsArrayPopulation pop, File popFile) throws IOException {
+        if (!PopulationBinaryCodec.isBinaryFile(popFile)) {
+            return false;
+        }
+        pop.decodePopFromBinaryFile(popFile);
+        return true;
+    }
     
   
     
@@ -0,0 +1,173 @@
+package util;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * A DataInput that reads directly from a ByteBuffer (e.g. a MappedByteBuffer from FileChannel.map), using the same big-endian encoding as
+ * DataOutputStream.</p>
+ *
+ * <p>
+ * Readers aware of this class can use the bulk column methods (e.g. readInts) to copy whole primitive arrays from the buffer without going through a stream.
+ * </p>
+ *
+ * @author Ben Hui
+ */
+public class ByteBufferDataInput implements DataInput {
+
+    private final ByteBuffer buffer;
+
+    public ByteBufferDataInput(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Bulk column read">
+    public void readInts(int[] dst, int off, int len) throws IOException {
+        try {
+            buffer.asIntBuffer().get(dst, off, len);
+            buffer.position(buffer.position() + len * Integer.BYTES);
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException();
+        }
+    }
+
+    public void readDoubles(double[] dst, int off, int len) throws IOException {
+        try {
+            buffer.asDoubleBuffer().get(dst, off, len);
+            buffer.position(buffer.position() + len * Double.BYTES);
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException();
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="DataInput">
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        try {
+            buffer.get(b, off, len);
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException();
+        }
+    }
+
+    @Override
+    public int skipBytes(int n) {
+        int skip = Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + skip);
+        return skip;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        try {
+            return buffer.get();
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException();
+        }
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        try {
+            return buffer.getShort();
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException();
+        }
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        try {
+            return buffer.getChar();
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException();
+        }
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        try {
+            return buffer.getInt();
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException();
+        }
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        try {
+            return buffer.getLong();
+        } catch (BufferUnderflowException ex) {
+            throw new EOFException();
+        }
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        StringBuilder str = new StringBuilder();
+        while (buffer.hasRemaining()) {
+            char c = (char) (buffer.get() & 0xFF);
+            if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                if (buffer.hasRemaining() && buffer.get(buffer.position()) == '\n') {
+                    buffer.get();
+                }
+                break;
+            }
+            str.append(c);
+        }
+        return str.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+    // </editor-fold>
+
+}
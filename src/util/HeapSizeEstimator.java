@@ -0,0 +1,142 @@
+package util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Estimate the heap retained by an object graph, without a java agent.</p>
+ *
+ * <p>
+ * The estimate assumes a 64-bit JVM with compressed references (12 bytes object header, 16 bytes array header, 4 bytes reference and 8 bytes
+ * alignment). Fields of classes outside java.* are walked through reflection. As JDK internals cannot be accessed reflectively, arrays, String, boxed
+ * primitives, Map and Collection are sized from their content using typical per-entry overheads (e.g. 32 bytes per HashMap entry), while other JDK
+ * objects only contribute a shallow object header. Each object is only counted once.</p>
+ *
+ * @author Ben Hui
+ */
+public class HeapSizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAP_ENTRY = 32;
+    private static final int COLLECTION_NODE = 24;
+
+    /**
+     * Estimate heap size retained by an object graph.
+     *
+     * @param root root object
+     * @return estimated size in bytes
+     */
+    public static long estimate(Object root) {
+        IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<>();
+        ArrayDeque<Object> queue = new ArrayDeque<>();
+        long size = 0;
+        if (root != null) {
+            queue.add(root);
+            visited.put(root, Boolean.TRUE);
+        }
+        while (!queue.isEmpty()) {
+            Object obj = queue.poll();
+            Class<?> cls = obj.getClass();
+            if (cls.isArray()) {
+                size += sizeOfArray(obj, visited, queue);
+            } else if (obj instanceof String) {
+                size += align(OBJECT_HEADER + 4 + REFERENCE + 4) + align(ARRAY_HEADER + ((String) obj).length());
+            } else if (obj instanceof Number || obj instanceof Boolean || obj instanceof Character) {
+                size += 16;
+            } else if (obj instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) obj;
+                size += align(OBJECT_HEADER + 6 * REFERENCE) + align(ARRAY_HEADER + (long) tableSize(map.size()) * REFERENCE)
+                        + (long) map.size() * MAP_ENTRY;
+                for (Map.Entry<?, ?> ent : map.entrySet()) {
+                    enqueue(ent.getKey(), visited, queue);
+                    enqueue(ent.getValue(), visited, queue);
+                }
+            } else if (obj instanceof Collection) {
+                Collection<?> col = (Collection<?>) obj;
+                size += align(OBJECT_HEADER + 4 * REFERENCE) + (long) col.size() * COLLECTION_NODE;
+                for (Object ent : col) {
+                    enqueue(ent, visited, queue);
+                }
+            } else if (cls.getName().startsWith("java.") || cls.getName().startsWith("jdk.")) {
+                size += align(OBJECT_HEADER);
+            } else {
+                size += sizeOfFields(obj, visited, queue);
+            }
+        }
+        return size;
+    }
+
+    private static long sizeOfArray(Object arr, IdentityHashMap<Object, Boolean> visited, ArrayDeque<Object> queue) {
+        Class<?> comp = arr.getClass().getComponentType();
+        int len = Array.getLength(arr);
+        if (!comp.isPrimitive()) {
+            for (Object ent : (Object[]) arr) {
+                enqueue(ent, visited, queue);
+            }
+        }
+        return align(ARRAY_HEADER + (long) len * sizeOfType(comp));
+    }
+
+    private static long sizeOfFields(Object obj, IdentityHashMap<Object, Boolean> visited, ArrayDeque<Object> queue) {
+        long shallow = OBJECT_HEADER;
+        for (Class<?> cls = obj.getClass(); cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+            boolean accessible = !cls.getName().startsWith("java.") && !cls.getName().startsWith("jdk.");
+            for (Field f : cls.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers())) {
+                    continue;
+                }
+                shallow += sizeOfType(f.getType());
+                if (accessible && !f.getType().isPrimitive()) {
+                    try {
+                        f.setAccessible(true);
+                        enqueue(f.get(obj), visited, queue);
+                    } catch (RuntimeException | IllegalAccessException ex) {
+                        // Field not accessible (e.g. module restriction), count as reference only
+                    }
+                }
+            }
+        }
+        return align(shallow);
+    }
+
+    private static void enqueue(Object obj, IdentityHashMap<Object, Boolean> visited, ArrayDeque<Object> queue) {
+        if (obj != null && visited.put(obj, Boolean.TRUE) == null) {
+            queue.add(obj);
+        }
+    }
+
+    private static int sizeOfType(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        } else {
+            return REFERENCE;
+        }
+    }
+
+    private static int tableSize(int numEntry) {
+        int n = 16;
+        while (n * 0.75 < numEntry) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+}
@@ -0,0 +1,131 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A disjoint-set (union-find) over elements 0 to size - 1, using union by size and path halving.</p>
+ *
+ * <p>
+ * Both find and union run in near constant amortised time, and find is iterative so long chains do not overflow the stack. This class is not thread
+ * safe.</p>
+ *
+ * <p>
+ * New singleton elements can be appended through add, so the set can grow as elements are discovered.</p>
+ *
+ * @author Ben Hui
+ */
+public class IntDisjointSet implements java.io.Serializable {
+
+    private static final long serialVersionUID = 5192740368126653170L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] parent;
+    private int[] setSize;
+    private int size;
+    private int numSet;
+
+    public IntDisjointSet() {
+        this(0);
+    }
+
+    /**
+     * Create a disjoint-set where each of the elements 0 to size - 1 is in its own set.
+     *
+     * @param size number of elements
+     */
+    public IntDisjointSet(int size) {
+        parent = new int[Math.max(size, MIN_CAPACITY)];
+        setSize = new int[parent.length];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+            setSize[i] = 1;
+        }
+        this.size = size;
+        numSet = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Append a new element in its own set.
+     *
+     * @return the new element, i.e. size() before the call
+     */
+    public int add() {
+        if (size == parent.length) {
+            parent = Arrays.copyOf(parent, parent.length * 2);
+            setSize = Arrays.copyOf(setSize, parent.length);
+        }
+        int i = size++;
+        parent[i] = i;
+        setSize[i] = 1;
+        numSet++;
+        return i;
+    }
+
+    /**
+     * Return number of disjoint sets.
+     *
+     * @return number of sets
+     */
+    public int getNumSet() {
+        return numSet;
+    }
+
+    /**
+     * Return the representative element of the set containing an element.
+     *
+     * @param i element
+     * @return representative element
+     */
+    public int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Merge the sets containing two elements.
+     *
+     * @param a element
+     * @param b element
+     * @return true if the two elements were in different sets
+     */
+    public boolean union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb) {
+            return false;
+        }
+        if (setSize[ra] < setSize[rb]) {
+            int tmp = ra;
+            ra = rb;
+            rb = tmp;
+        }
+        parent[rb] = ra;
+        setSize[ra] += setSize[rb];
+        numSet--;
+        return true;
+    }
+
+    public boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+
+    /**
+     * Return size of the set containing an element.
+     *
+     * @param i element
+     * @return number of elements in the same set
+     */
+    public int setSizeOf(int i) {
+        return setSize[find(i)];
+    }
+
+}
@@ -0,0 +1,19 @@
+package util;
+
+/**
+ * A mapping that can look up an object by a primitive int id without boxing, e.g. a person id to person map.
+ *
+ * @param <T> type of object
+ * @author Ben Hui
+ */
+public interface IntIdLookup<T> {
+
+    /**
+     * Return object with input id, without boxing.
+     *
+     * @param id object id
+     * @return object with input id, or null if not found
+     */
+    T getByIdInt(int id);
+
+}
@@ -0,0 +1,150 @@
+package util;
+
+import java.util.Arrays;
+import random.RandomGenerator;
+
+/**
+ * <p>
+ * A set of primitive int backed by a dense element array, with position of each element kept in an IntIntHashMap.</p>
+ *
+ * <p>
+ * Add, remove and contains are O(1) without boxing. Removal moves the last element into the freed position, so the order of elements is not
+ * preserved. As elements are dense, a random member can be sampled in O(1), and the backing array can be exported without copying.</p>
+ *
+ * <p>
+ * Integer.MIN_VALUE cannot be stored. This class is not thread safe.</p>
+ *
+ * @author Ben Hui
+ */
+public class IntIndexedSet implements java.io.Serializable {
+
+    private static final long serialVersionUID = -4830925367180212374L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] elements;
+    private int size = 0;
+    private final IntIntHashMap position;
+
+    public IntIndexedSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntIndexedSet(int expectedSize) {
+        elements = new int[Math.max(expectedSize, MIN_CAPACITY)];
+        position = new IntIntHashMap(expectedSize, -1);
+    }
+
+    /**
+     * Create a set with all entries of an array. Duplicate entries are ignored.
+     *
+     * @param src source array, could be null
+     */
+    public IntIndexedSet(int[] src) {
+        this(src == null ? 0 : src.length);
+        if (src != null) {
+            for (int val : src) {
+                add(val);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int val) {
+        return position.containsKey(val);
+    }
+
+    /**
+     * Add an element.
+     *
+     * @param val element to be added
+     * @return true if the set did not already contain the element
+     */
+    public boolean add(int val) {
+        if (position.containsKey(val)) {
+            return false;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length << 1);
+        }
+        elements[size] = val;
+        position.put(val, size);
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove an element. The last element is moved into the position of the removed one.
+     *
+     * @param val element to be removed
+     * @return true if the set contained the element
+     */
+    public boolean remove(int val) {
+        int pos = position.remove(val);
+        if (pos < 0) {
+            return false;
+        }
+        size--;
+        if (pos != size) {
+            int last = elements[size];
+            elements[pos] = last;
+            position.put(last, pos);
+        }
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+        position.clear();
+    }
+
+    /**
+     * Return element by its position. Note that position of an element could change once another element is removed.
+     *
+     * @param index position, from 0 to size() - 1
+     * @return element at position
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return elements[index];
+    }
+
+    /**
+     * Return a random element.
+     *
+     * @param rng random number generator
+     * @return a random element, or Integer.MIN_VALUE if the set is empty
+     */
+    public int sample(RandomGenerator rng) {
+        return size == 0 ? Integer.MIN_VALUE : elements[rng.nextInt(size)];
+    }
+
+    /**
+     * Return the backing element array without copying. Only the first size() entries are valid, and the array should not be modified. The
+     * returned array may be replaced or reordered once the set is modified.
+     *
+     * @return backing element array
+     */
+    public int[] elements() {
+        return elements;
+    }
+
+    /**
+     * Return a copy of all elements.
+     *
+     * @return all elements in current order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+}
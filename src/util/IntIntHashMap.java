@@ -0,0 +1,242 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A primitive int to int hash map using open addressing with linear probing.</p>
+ *
+ * <p>
+ * Keys and values are stored in two parallel int arrays so no boxing occurs on any operation. Removal uses backward shift deletion, so the table never
+ * accumulates tombstones and memory stays proportional to the number of live entries.</p>
+ *
+ * <p>
+ * Integer.MIN_VALUE is reserved to mark empty slots and cannot be used as a key. This class is not thread safe.</p>
+ *
+ * @author Ben Hui
+ */
+public class IntIntHashMap implements java.io.Serializable {
+
+    private static final long serialVersionUID = 7362017843128420695L;
+
+    private static final int FREE_KEY = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private final int noEntryValue;
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * Create a map with default capacity, and -1 as the value returned for missing key.
+     */
+    public IntIntHashMap() {
+        this(MIN_CAPACITY, -1);
+    }
+
+    /**
+     * Create a map.
+     *
+     * @param expectedSize expected number of entries
+     * @param noEntryValue value return by get and remove if key is not in the map
+     */
+    public IntIntHashMap(int expectedSize, int noEntryValue) {
+        this.noEntryValue = noEntryValue;
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        // Keep load factor <= 0.5
+        int cap = MIN_CAPACITY;
+        while (cap < expectedSize * 2 && cap < (1 << 30)) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        mask = capacity - 1;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(int key) {
+        int pos = mix(key) & mask;
+        int k;
+        while ((k = keys[pos]) != FREE_KEY) {
+            if (k == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return key != FREE_KEY && indexOf(key) >= 0;
+    }
+
+    /**
+     * Return value mapped by key.
+     *
+     * @param key key
+     * @return mapped value, or noEntryValue if not found
+     */
+    public int get(int key) {
+        if (key == FREE_KEY) {
+            return noEntryValue;
+        }
+        int pos = indexOf(key);
+        return pos < 0 ? noEntryValue : values[pos];
+    }
+
+    /**
+     * Map key to value.
+     *
+     * @param key key, any value other than Integer.MIN_VALUE
+     * @param value value
+     * @return previous value, or noEntryValue if key was not in the map
+     */
+    public int put(int key, int value) {
+        if (key == FREE_KEY) {
+            throw new IllegalArgumentException(getClass().getName() + ".put: Key of " + FREE_KEY + " is reserved");
+        }
+        int pos = mix(key) & mask;
+        int k;
+        while ((k = keys[pos]) != FREE_KEY) {
+            if (k == key) {
+                int ori = values[pos];
+                values[pos] = value;
+                return ori;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        values[pos] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        return noEntryValue;
+    }
+
+    /**
+     * Remove key from map.
+     *
+     * @param key key
+     * @return value mapped by key before removal, or noEntryValue if not found
+     */
+    public int remove(int key) {
+        if (key == FREE_KEY) {
+            return noEntryValue;
+        }
+        int pos = indexOf(key);
+        if (pos < 0) {
+            return noEntryValue;
+        }
+        int ori = values[pos];
+        shiftKeys(pos);
+        size--;
+        if (keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+            rehash(keys.length >> 1);
+        }
+        return ori;
+    }
+
+    /**
+     * Backward shift deletion - close the gap at pos by moving later entries of the same probe sequence forward.
+     */
+    private void shiftKeys(int pos) {
+        int last, slot, k;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            while (true) {
+                if ((k = keys[pos]) == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    return;
+                }
+                slot = mix(k) & mask;
+                // Move k to last if its home slot is not cyclically within (last, pos]
+                if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos)) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = k;
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k != FREE_KEY) {
+                int pos = mix(k) & mask;
+                while (keys[pos] != FREE_KEY) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = k;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Grow the table so that the given number of entries can be stored without rehashing.
+     *
+     * @param expectedSize expected number of entries
+     */
+    public void ensureCapacity(int expectedSize) {
+        int cap = tableSizeFor(expectedSize);
+        if (cap > keys.length) {
+            rehash(cap);
+        }
+    }
+
+    public void clear() {
+        if (size > 0) {
+            allocate(MIN_CAPACITY);
+            size = 0;
+        }
+    }
+
+    /**
+     * Return all keys in the map, in internal table order.
+     *
+     * @return a new array of all keys
+     */
+    public int[] keys() {
+        int[] res = new int[size];
+        int pt = 0;
+        for (int k : keys) {
+            if (k != FREE_KEY) {
+                res[pt++] = k;
+            }
+        }
+        return res;
+    }
+
+}
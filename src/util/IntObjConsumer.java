@@ -0,0 +1,14 @@
+package util;
+
+/**
+ * An operation that accepts a primitive int and an object, e.g. a person id and the person itself.
+ *
+ * @param <T> type of object
+ * @author Ben Hui
+ */
+@FunctionalInterface
+public interface IntObjConsumer<T> {
+
+    void accept(int value, T obj);
+
+}
@@ -0,0 +1,193 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A primitive long hash set using open addressing with linear probing.</p>
+ *
+ * <p>
+ * As in IntIntHashMap, removal uses backward shift deletion so the table never accumulates tombstones. Typically used to store pairs of int packed
+ * into a long (e.g. a pair of person id).</p>
+ *
+ * <p>
+ * Long.MIN_VALUE is reserved to mark empty slots and cannot be stored. This class is not thread safe.</p>
+ *
+ * @author Ben Hui
+ * @see IntIntHashMap
+ */
+public class LongHashSet implements java.io.Serializable {
+
+    private static final long serialVersionUID = -2871530647293018845L;
+
+    private static final long FREE_KEY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int mask;
+    private int size = 0;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Create a set.
+     *
+     * @param expectedSize expected number of entries
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        // Keep load factor <= 0.5
+        int cap = MIN_CAPACITY;
+        while (cap < expectedSize * 2 && cap < (1 << 30)) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        mask = capacity - 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int indexOf(long key) {
+        int pos = mix(key) & mask;
+        long k;
+        while ((k = keys[pos]) != FREE_KEY) {
+            if (k == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long key) {
+        return key != FREE_KEY && indexOf(key) >= 0;
+    }
+
+    /**
+     * Add a key.
+     *
+     * @param key key, any value other than Long.MIN_VALUE
+     * @return true if the set did not already contain the key
+     */
+    public boolean add(long key) {
+        if (key == FREE_KEY) {
+            throw new IllegalArgumentException(getClass().getName() + ".add: Key of " + FREE_KEY + " is reserved");
+        }
+        int pos = mix(key) & mask;
+        long k;
+        while ((k = keys[pos]) != FREE_KEY) {
+            if (k == key) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key key
+     * @return true if the set contained the key
+     */
+    public boolean remove(long key) {
+        if (key == FREE_KEY) {
+            return false;
+        }
+        int pos = indexOf(key);
+        if (pos < 0) {
+            return false;
+        }
+        shiftKeys(pos);
+        size--;
+        if (keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+            rehash(keys.length >> 1);
+        }
+        return true;
+    }
+
+    /**
+     * Backward shift deletion - close the gap at pos by moving later entries of the same probe sequence forward.
+     */
+    private void shiftKeys(int pos) {
+        int last, slot;
+        long k;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            while (true) {
+                if ((k = keys[pos]) == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    return;
+                }
+                slot = mix(k) & mask;
+                // Move k to last if its home slot is not cyclically within (last, pos]
+                if (last <= pos ? (last >= slot || slot > pos) : (last >= slot && slot > pos)) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = k;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        allocate(newCapacity);
+        for (long k : oldKeys) {
+            if (k != FREE_KEY) {
+                int pos = mix(k) & mask;
+                while (keys[pos] != FREE_KEY) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = k;
+            }
+        }
+    }
+
+    /**
+     * Grow the table so that the given number of entries can be stored without rehashing.
+     *
+     * @param expectedSize expected number of entries
+     */
+    public void ensureCapacity(int expectedSize) {
+        int cap = tableSizeFor(expectedSize);
+        if (cap > keys.length) {
+            rehash(cap);
+        }
+    }
+
+    public void clear() {
+        if (size > 0) {
+            allocate(MIN_CAPACITY);
+            size = 0;
+        }
+    }
+
+}
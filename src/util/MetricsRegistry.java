@@ -0,0 +1,276 @@
+package util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>
+ * A lightweight registry of counters, timers and gauges for instrumenting simulation runs.</p>
+ *
+ * <p>
+ * Timers record number of calls, total and maximum elapsed time, and bytes allocated by the calling thread (if supported by the JVM) for each named
+ * phase. Gauges are evaluated when a snapshot is exported.</p>
+ *
+ * <p>
+ * A disabled registry returns a shared no-op timer, so instrumented code only pay for a boolean check.</p>
+ *
+ * <p>
+ * Usage:</p>
+ * <pre>
+ * MetricsRegistry.Timer t = metrics.time("pairing");
+ * try {
+ *     ...
+ * } finally {
+ *     t.close();
+ * }
+ * </pre>
+ *
+ * @author Ben Hui
+ */
+public class MetricsRegistry {
+
+    private static final java.lang.management.ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATION_SUPPORTED;
+
+    static {
+        boolean supported = false;
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+            try {
+                supported = bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled();
+            } catch (UnsupportedOperationException ex) {
+                supported = false;
+            }
+        }
+        ALLOCATION_SUPPORTED = supported;
+    }
+
+    private boolean enabled = true;
+    private final Map<String, AtomicLong> counters = new LinkedHashMap<>();
+    private final Map<String, TimerStat> timers = new LinkedHashMap<>();
+    private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Counters">
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    public void add(String name, long delta) {
+        if (enabled) {
+            counter(name).addAndGet(delta);
+        }
+    }
+
+    public long getCount(String name) {
+        AtomicLong counter;
+        synchronized (counters) {
+            counter = counters.get(name);
+        }
+        return counter == null ? 0 : counter.get();
+    }
+
+    private AtomicLong counter(String name) {
+        synchronized (counters) {
+            return counters.computeIfAbsent(name, k -> new AtomicLong());
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Timers">
+    /**
+     * Start timing a phase. The phase is recorded when the returned timer is closed.
+     *
+     * @param phase phase name
+     * @return a timer to be closed at the end of the phase
+     */
+    public Timer time(String phase) {
+        if (!enabled) {
+            return NO_OP_TIMER;
+        }
+        return new Timer(timerStat(phase));
+    }
+
+    /**
+     * Return statistic of a phase as {number of calls, total nanoseconds, maximum nanoseconds, bytes allocated}.
+     *
+     * @param phase phase name
+     * @return timer statistic, or null if the phase is never timed
+     */
+    public long[] getTimerStat(String phase) {
+        TimerStat stat;
+        synchronized (timers) {
+            stat = timers.get(phase);
+        }
+        return stat == null ? null : stat.toArray();
+    }
+
+    private TimerStat timerStat(String phase) {
+        synchronized (timers) {
+            return timers.computeIfAbsent(phase, k -> new TimerStat());
+        }
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return ALLOCATION_SUPPORTED ? ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static final class TimerStat {
+
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long allocatedBytes;
+
+        synchronized void record(long nanos, long allocated) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            allocatedBytes += allocated;
+        }
+
+        synchronized long[] toArray() {
+            return new long[]{count, totalNanos, maxNanos, allocatedBytes};
+        }
+    }
+
+    /**
+     * A running timer for a single phase. Allocation is measured on the thread that created the timer.
+     */
+    public static class Timer implements AutoCloseable {
+
+        private final TimerStat stat;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Timer(TimerStat stat) {
+            this.stat = stat;
+            if (stat != null) {
+                startAllocated = currentThreadAllocatedBytes();
+                startNanos = System.nanoTime();
+            } else {
+                startAllocated = 0;
+                startNanos = 0;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (stat != null) {
+                long nanos = System.nanoTime() - startNanos;
+                long allocated = currentThreadAllocatedBytes() - startAllocated;
+                stat.record(nanos, allocated);
+            }
+        }
+    }
+
+    private static final Timer NO_OP_TIMER = new Timer(null);
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Gauges">
+    /**
+     * Register, or replace, a gauge evaluated on each snapshot.
+     *
+     * @param name gauge name
+     * @param gauge value supplier
+     */
+    public void registerGauge(String name, LongSupplier gauge) {
+        synchronized (gauges) {
+            gauges.put(name, gauge);
+        }
+    }
+
+    /**
+     * Register a gauge of the estimated heap size of an object graph. Note that the estimate walks the whole graph on each snapshot.
+     *
+     * @param name gauge name
+     * @param root root of object graph
+     * @see HeapSizeEstimator
+     */
+    public void registerHeapGauge(String name, Object root) {
+        registerGauge(name, () -> HeapSizeEstimator.estimate(root));
+    }
+
+    public void removeGauge(String name) {
+        synchronized (gauges) {
+            gauges.remove(name);
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Snapshot and export">
+    /**
+     * Return current value of all counters, timers and gauges. Timer values are stored as name.count, name.totalNanos, name.maxNanos and
+     * name.allocatedBytes.
+     *
+     * @return name to value map, in order of registration
+     */
+    public Map<String, Long> snapshot() {
+        LinkedHashMap<String, Long> res = new LinkedHashMap<>();
+        synchronized (counters) {
+            for (Map.Entry<String, AtomicLong> ent : counters.entrySet()) {
+                res.put(ent.getKey(), ent.getValue().get());
+            }
+        }
+        synchronized (timers) {
+            for (Map.Entry<String, TimerStat> ent : timers.entrySet()) {
+                long[] stat = ent.getValue().toArray();
+                res.put(ent.getKey() + ".count", stat[0]);
+                res.put(ent.getKey() + ".totalNanos", stat[1]);
+                res.put(ent.getKey() + ".maxNanos", stat[2]);
+                res.put(ent.getKey() + ".allocatedBytes", stat[3]);
+            }
+        }
+        Map<String, LongSupplier> gaugesCopy;
+        synchronized (gauges) {
+            gaugesCopy = new LinkedHashMap<>(gauges);
+        }
+        for (Map.Entry<String, LongSupplier> ent : gaugesCopy.entrySet()) {
+            res.put(ent.getKey(), ent.getValue().getAsLong());
+        }
+        return res;
+    }
+
+    /**
+     * Append a snapshot to a file, as lines of label,name,value.
+     *
+     * @param file output file
+     * @param label label of the snapshot, e.g. global time
+     * @throws IOException if error occurs during writing
+     */
+    public void exportSnapshot(File file, String label) throws IOException {
+        try (PrintWriter pWri = new PrintWriter(new FileWriter(file, true))) {
+            for (Map.Entry<String, Long> ent : snapshot().entrySet()) {
+                pWri.println(label + "," + ent.getKey() + "," + ent.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reset all counters and timers. Gauges are kept.
+     */
+    public void reset() {
+        synchronized (counters) {
+            counters.clear();
+        }
+        synchronized (timers) {
+            timers.clear();
+        }
+    }
+    // </editor-fold>
+
+}
@@ -10,5 +10,17 @@ import person.AbstractIndividualInterface;
 public interface PersonClassifier extends Serializable {
     public int classifyPerson(AbstractIndividualInterface p);    
     public int numClass();
-    
+
+    /**
+     * Classify all person in an array. Implementations may override this to share work across person (e.g. age band lookup).
+     *
+     * @param pop person to be classified, null entries are classified as -1
+     * @param out output array of the same length as pop
+     */
+    public default void classifyAll(AbstractIndividualInterface[] pop, int[] out) {
+        for (int k = 0; k < pop.length; k++) {
+            out[k] = pop[k] == null ? -1 : classifyPerson(pop[k]);
+        }
+    }
+
 }
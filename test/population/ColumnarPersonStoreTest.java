@@ -0,0 +1,151 @@
+package population;
+
+import infection.AbstractInfection;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import person.AbstractIndividualInterface;
+
+/**
+ * Tests of ColumnarPersonStore, mainly that scheduled mode reproduces incrementTime of each person.
+ *
+ * @author Ben Hui
+ */
+public class ColumnarPersonStoreTest {
+
+    /**
+     * A test infection with a few stages and random stage duration, including stages without transition and advancesState without new stage timer.
+     */
+    static class StagedInfection extends AbstractInfection {
+
+        private static final long serialVersionUID = 1L;
+        private final Random rng;
+
+        StagedInfection(int index, long seed) {
+            super(null);
+            setInfectionIndex(index);
+            rng = new Random(seed);
+        }
+
+        @Override
+        public double advancesState(AbstractIndividualInterface p) {
+            int status = p.getInfectionStatus(getInfectionIndex());
+            if (status >= 3) {
+                setInfection(p, AbstractIndividualInterface.INFECT_S, Double.POSITIVE_INFINITY);
+                return 0;
+            }
+            if (status == 2 && rng.nextInt(3) == 0) {
+                return 0;
+            }
+            double duration = rng.nextInt(40);
+            setInfection(p, status + 1, status == 1 && rng.nextBoolean() ? Double.POSITIVE_INFINITY : duration);
+            return duration;
+        }
+
+        @Override
+        public double infecting(AbstractIndividualInterface target) {
+            if (target.getInfectionStatus(getInfectionIndex()) != AbstractIndividualInterface.INFECT_S) {
+                return 0;
+            }
+            double duration = rng.nextInt(10);
+            setInfection(target, 0, duration);
+            return duration;
+        }
+
+        @Override
+        public boolean isInfectious(AbstractIndividualInterface p) {
+            return true;
+        }
+
+        @Override
+        public boolean couldTransmissInfection(AbstractIndividualInterface src, AbstractIndividualInterface target) {
+            return true;
+        }
+
+        @Override
+        public boolean isInfected(AbstractIndividualInterface p) {
+            return p.getInfectionStatus(getInfectionIndex()) != AbstractIndividualInterface.INFECT_S;
+        }
+
+        @Override
+        public boolean hasSymptoms(AbstractIndividualInterface p) {
+            return false;
+        }
+
+        @Override
+        public boolean setParameter(String id, Object value) {
+            return false;
+        }
+    }
+
+    static ColumnarPersonStore newStore(int popSize, int numInfection) {
+        ColumnarPersonStore store = new ColumnarPersonStore(popSize, numInfection);
+        for (int s = 0; s < popSize; s++) {
+            store.setPerson(s, s, s % 2 == 0, 100, 0);
+        }
+        return store;
+    }
+
+    static AbstractInfection[] newInfectionList(int numInfection) {
+        AbstractInfection[] infList = new AbstractInfection[numInfection];
+        for (int i = 0; i < numInfection; i++) {
+            infList[i] = new StagedInfection(i, i + 1);
+        }
+        return infList;
+    }
+
+    @Test
+    public void scheduledMatchesIncrementTime() {
+        int popSize = 500;
+        int numInfection = 2;
+        int deltaT = 3;
+        ColumnarPersonStore perPerson = newStore(popSize, numInfection);
+        ColumnarPersonStore scheduled = newStore(popSize, numInfection);
+        AbstractInfection[] perPersonInf = newInfectionList(numInfection);
+        AbstractInfection[] scheduledInf = newInfectionList(numInfection);
+        scheduled.setStageScheduled(true);
+        Random acts = new Random(9);
+
+        for (int t = 0; t < 400; t++) {
+            for (int k = 0; k < 20; k++) {
+                int slot = acts.nextInt(popSize);
+                int infId = acts.nextInt(numInfection);
+                perPerson.setLastActInfectious(infId, slot, true);
+                scheduled.setLastActInfectious(infId, slot, true);
+            }
+            if (t == 150) {
+                // Switching mode must keep all stage timers
+                scheduled.setStageScheduled(false);
+                scheduled.setStageScheduled(true);
+            }
+            int numChanged = 0;
+            for (int s = 0; s < popSize; s++) {
+                numChanged += perPerson.getIndividual(s).incrementTime(deltaT, perPersonInf);
+            }
+            assertEquals("Number of status changed at step " + t, numChanged, scheduled.advanceScheduled(deltaT, scheduledInf));
+
+            for (int s = 0; s < popSize; s++) {
+                assertEquals(perPerson.getAge(s), scheduled.getAge(s), 0);
+                for (int i = 0; i < numInfection; i++) {
+                    assertEquals("Status of slot " + s + " at step " + t, perPerson.getInfectionStatus(i, s), scheduled.getInfectionStatus(i, s));
+                    assertEquals("Stage timer of slot " + s + " at step " + t,
+                            perPerson.getTimeUntilNextStage(i, s), scheduled.getTimeUntilNextStage(i, s), 0);
+                }
+            }
+        }
+        assertTrue(perPerson.countInfected(0) > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void advanceScheduledRequiresScheduledMode() {
+        newStore(10, 1).advanceScheduled(1, newInfectionList(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void incrementTimeRefusedInScheduledMode() {
+        ColumnarPersonStore store = newStore(10, 1);
+        store.setStageScheduled(true);
+        store.getIndividual(0).incrementTime(1, newInfectionList(1));
+    }
+
+}
@@ -0,0 +1,403 @@
+package population;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import person.AbstractIndividualInterface;
+import relationship.MultiplexRelationshipMap;
+import relationship.RelationshipMap;
+import relationship.RelationshipMapConcurrent;
+import relationship.RelationshipMapPrimitive;
+import relationship.RelationshipMapTimeStamp;
+import relationship.SingleRelationship;
+import relationship.SingleRelationshipTimeStamp;
+import sim.SimulationInterface;
+
+/**
+ * Round trip tests of PopulationBinaryCodec full and delta checkpoints.
+ *
+ * @author Ben Hui
+ */
+public class PopulationBinaryCodecTest {
+
+    static class Holder implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        RelationshipMap map;
+        Object person;
+        MultiplexRelationshipMap multiplex;
+    }
+
+    static byte[] encode(AbstractFieldsArrayPopulation population) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        population.encodePopToBinary(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    static byte[] encodeDelta(AbstractFieldsArrayPopulation population) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        population.encodePopDeltaToBinary(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    static TestPopulation decode(byte[] bytes) throws IOException {
+        TestPopulation population = new TestPopulation();
+        population.decodePopFromBinary(new DataInputStream(new ByteArrayInputStream(bytes)));
+        return population;
+    }
+
+    static File writeTempFile(byte[] bytes) throws IOException {
+        File file = File.createTempFile("pop", ".bin");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    /**
+     * Return relationships of a map (including those only in its underlying graph, as in a plain RelationshipMap) as links to {durations, time until
+     * expire, start time}, independent of relationship order.
+     */
+    static TreeMap<String, String> relationships(RelationshipMap map) {
+        TreeMap<String, String> res = new TreeMap<>();
+        for (SingleRelationship rel : map.edgeSet()) {
+            double start = rel instanceof SingleRelationshipTimeStamp ? ((SingleRelationshipTimeStamp) rel).getRelStartTime() : Double.NaN;
+            res.put(Arrays.toString(rel.getLinks()), rel.getDurations() + "," + map.getTimeUntilExpire(rel) + "," + start);
+        }
+        return res;
+    }
+
+    static void assertSamePopulation(AbstractFieldsArrayPopulation expected, AbstractFieldsArrayPopulation actual) {
+        assertEquals(expected.getGlobalTime(), actual.getGlobalTime());
+        ColumnarPersonStore exp = expected.getColumnarStore();
+        ColumnarPersonStore act = actual.getColumnarStore();
+        assertEquals(exp.getCapacity(), act.getCapacity());
+        assertEquals(exp.getNumInfection(), act.getNumInfection());
+        assertArrayEquals(exp.getParameterColumnNames(), act.getParameterColumnNames());
+        for (int s = 0; s < exp.getCapacity(); s++) {
+            assertEquals(exp.getId(s), act.getId(s));
+            assertEquals(exp.isMale(s), act.isMale(s));
+            assertEquals(exp.getAge(s), act.getAge(s), 0);
+            assertEquals(exp.getLastTreatedAt(s), act.getLastTreatedAt(s));
+            for (int i = 0; i < exp.getNumInfection(); i++) {
+                assertEquals(exp.getInfectionStatus(i, s), act.getInfectionStatus(i, s));
+                assertEquals(exp.getTimeUntilNextStage(i, s), act.getTimeUntilNextStage(i, s), 0);
+            }
+            for (int c = 0; c < exp.getParameterColumnNames().length; c++) {
+                assertEquals(exp.getParameter(c, s), act.getParameter(c, s), 0);
+            }
+        }
+        RelationshipMap[] expMaps = expected.getRelMap();
+        RelationshipMap[] actMaps = actual.getRelMap();
+        assertEquals(expMaps.length, actMaps.length);
+        for (int m = 0; m < expMaps.length; m++) {
+            assertEquals(expMaps[m].getClass(), actMaps[m].getClass());
+            assertEquals(relationships(expMaps[m]), relationships(actMaps[m]));
+        }
+    }
+
+    @Test
+    public void fullRoundTrip() throws IOException {
+        TestPopulation src = new TestPopulation();
+        ColumnarPersonStore store = src.initColumnar(10, 2);
+        store.setInfectionStatus(1, 3, 2);
+        store.setTimeUntilNextStage(1, 3, 12.5);
+        int col = store.addParameterColumn("X");
+        store.setParameter(col, 4, 7);
+        src.setSeed(99L);
+        src.setTime(77);
+
+        RelationshipMapTimeStamp timeStampMap = new RelationshipMapTimeStamp();
+        SingleRelationship rel = timeStampMap.addEdge(1, 2);
+        rel.setDurations(30);
+        rel.incrementTime(5);
+        ((SingleRelationshipTimeStamp) rel).setRelStartTime(11);
+        timeStampMap.addAvailablePerson(3, true);
+        RelationshipMapPrimitive primitiveMap = new RelationshipMapPrimitive();
+        primitiveMap.addEdge(4, 5).setDurations(8);
+        src.setRelMap(new RelationshipMap[]{timeStampMap, new RelationshipMap(), primitiveMap});
+
+        Holder holder = new Holder();
+        holder.map = timeStampMap;
+        holder.person = store.getIndividual(5);
+        src.getFields()[AbstractFieldsArrayPopulation.FIELDS_AVAIL] = holder;
+
+        byte[] bytes = encode(src);
+        TestPopulation dest = decode(bytes);
+
+        assertSamePopulation(src, dest);
+        assertEquals(99L, dest.getSeed());
+        assertEquals(7, dest.getPersonById(7).getId());
+        assertArrayEquals(timeStampMap.getPersonAvailableByIndex(), dest.getRelMap()[0].getPersonAvailableByIndex());
+        Holder destHolder = (Holder) dest.getFields()[AbstractFieldsArrayPopulation.FIELDS_AVAIL];
+        assertSame(dest.getRelMap()[0], destHolder.map);
+        assertSame(dest.getColumnarStore().getIndividual(5), destHolder.person);
+        assertArrayEquals(bytes, encode(dest));
+    }
+
+    @Test
+    public void fileRoundTrip() throws IOException {
+        TestPopulation src = new TestPopulation();
+        src.initColumnar(50, 1).setInfectionStatus(0, 20, 1);
+        src.setRelMap(new RelationshipMap[]{new RelationshipMap()});
+        for (int i = 0; i < 40; i += 2) {
+            src.formRelationship(i, i + 1, 0, i + 1);
+        }
+
+        TestPopulation dest = new TestPopulation();
+        dest.decodePopFromBinaryFile(writeTempFile(encode(src)));
+        assertSamePopulation(src, dest);
+        assertEquals(20, dest.getRelMap()[0].edgeSet().size());
+    }
+
+    @Test
+    public void initialisedRoundTrip() throws IOException {
+        TestPopulation src = new TestPopulation();
+        src.initialise();
+        src.formRelationship(0, 1, 0, 3);
+        src.formRelationship(2, 3, 0, 10);
+        assertNull(src.formRelationship(1, 0, 0, 5));
+        src.advanceTimeStep(4);
+        assertEquals(4, src.getGlobalTime());
+        assertEquals(24, src.getColumnarStore().getAge(0), 0);
+        assertEquals(1, src.getRelMap()[0].edgeSet().size());
+        assertEquals(6, src.getRelMap()[0].getEdge(2, 3).getTimeUntilExpire(), 0);
+        assertSamePopulation(src, decode(encode(src)));
+    }
+
+    @Test
+    public void mappedFileCopiedOnWrite() throws IOException {
+        TestPopulation src = new TestPopulation();
+        ColumnarPersonStore store = src.initColumnar(30, 2);
+        store.setInfectionStatus(1, 4, 2);
+        store.setTimeUntilNextStage(1, 4, 6.5);
+        store.setLastActInfectious(0, 5, true);
+        store.setParameter(store.addParameterColumn("X"), 6, 3);
+        src.setRelMap(new RelationshipMap[]{new RelationshipMapTimeStamp()});
+        byte[] bytes = encode(src);
+        File file = writeTempFile(bytes);
+
+        // Both populations read from the same mapping, and only copy the columns they change
+        TestPopulation first = new TestPopulation();
+        first.decodePopFromBinaryFile(file);
+        TestPopulation second = new TestPopulation();
+        assertTrue(SimulationInterface.importBinaryPopulation(second, file));
+        assertFalse(SimulationInterface.importBinaryPopulation(new TestPopulation(), writeTempFile(new byte[]{0x50, 0x4b, 3, 4, 0})));
+        ColumnarPersonStore firstStore = first.getColumnarStore();
+        assertTrue(firstStore.isMapped());
+        assertSamePopulation(src, first);
+        assertTrue(firstStore.isLastActInfectious(0, 5));
+
+        firstStore.setInfectionStatus(1, 7, 1);
+        firstStore.incrementAgeAll(1);
+        assertTrue(firstStore.isMapped());
+        assertEquals(1, firstStore.getInfectionStatus(1, 7));
+        assertEquals(2, firstStore.getInfectionStatus(1, 4));
+        assertEquals(21, firstStore.getAge(0), 0);
+        assertEquals(AbstractIndividualInterface.INFECT_S, second.getColumnarStore().getInfectionStatus(1, 7));
+        assertEquals(20, second.getColumnarStore().getAge(0), 0);
+        assertSamePopulation(src, second);
+
+        firstStore.detachMapping();
+        assertFalse(firstStore.isMapped());
+        assertEquals(6.5, firstStore.getTimeUntilNextStage(1, 4), 0);
+        assertArrayEquals(bytes, encode(second));
+        assertTrue(second.getColumnarStore().isMapped());
+    }
+
+    @Test
+    public void expiryScheduleRoundTrip() throws IOException {
+        TestPopulation src = new TestPopulation();
+        src.initColumnar(10, 1);
+        src.setTime(10);
+        RelationshipMap map = new RelationshipMapTimeStamp();
+        map.setExpiryScheduled(true, 10);
+        map.setDurations(map.addEdge(1, 2), 30);
+        map.setDurations(map.addEdge(3, 4), 2);
+        map.setDurations(map.addEdge(5, 6), 700);
+        src.setRelMap(new RelationshipMap[]{map});
+
+        TestPopulation dest = decode(encode(src));
+        RelationshipMap destMap = dest.getRelMap()[0];
+        assertTrue(destMap.isExpiryScheduled());
+        assertEquals(10, destMap.getExpiryClock());
+        for (SingleRelationship rel : map.getRelationshipArray()) {
+            SingleRelationship destRel = destMap.getEdge(rel.getLinks()[0], rel.getLinks()[1]);
+            assertEquals(map.getExpireAt(rel), destMap.getExpireAt(destRel), 0);
+        }
+        assertEquals(1, destMap.pollExpired(12).length);
+        assertEquals(1, destMap.pollExpired(40).length);
+    }
+
+    @Test
+    public void multiplexRoundTrip() throws IOException {
+        TestPopulation src = new TestPopulation();
+        src.initColumnar(10, 1);
+        MultiplexRelationshipMap multiplex = new MultiplexRelationshipMap(2);
+        multiplex.getLayer(0).addEdge(1, 2);
+        multiplex.getLayer(1).addEdge(1, 3);
+        multiplex.getLayer(1).addEdge(4, 5);
+        RelationshipMap[] layers = multiplex.getLayers();
+        src.setRelMap(new RelationshipMap[]{layers[1], new RelationshipMap(), layers[0]});
+        Holder holder = new Holder();
+        holder.multiplex = multiplex;
+        holder.map = layers[1];
+        src.getFields()[AbstractFieldsArrayPopulation.FIELDS_AVAIL] = holder;
+
+        TestPopulation dest = decode(encode(src));
+        assertSamePopulation(src, dest);
+        RelationshipMapPrimitive layer1 = (RelationshipMapPrimitive) dest.getRelMap()[0];
+        RelationshipMapPrimitive layer0 = (RelationshipMapPrimitive) dest.getRelMap()[2];
+        MultiplexRelationshipMap destMultiplex = layer1.getMultiplex();
+        assertNotNull(destMultiplex);
+        assertSame(destMultiplex, layer0.getMultiplex());
+        assertSame(layer0, destMultiplex.getLayer(0));
+        assertSame(layer1, destMultiplex.getLayer(1));
+        assertEquals(2, destMultiplex.degreeOf(1));
+        assertEquals(3, destMultiplex.getNumRelationship());
+        Holder destHolder = (Holder) dest.getFields()[AbstractFieldsArrayPopulation.FIELDS_AVAIL];
+        assertSame(destMultiplex, destHolder.multiplex);
+        assertSame(layer1, destHolder.map);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void partialMultiplexRefused() throws IOException {
+        TestPopulation src = new TestPopulation();
+        src.initColumnar(10, 1);
+        MultiplexRelationshipMap multiplex = new MultiplexRelationshipMap(2);
+        src.setRelMap(new RelationshipMap[]{multiplex.getLayer(0)});
+        encode(src);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedMapClassRefused() throws IOException {
+        TestPopulation src = new TestPopulation();
+        src.initColumnar(10, 1);
+        src.setRelMap(new RelationshipMap[]{new RelationshipMapConcurrent()});
+        encode(src);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deltaWithoutCheckpointRefused() throws IOException {
+        TestPopulation src = new TestPopulation();
+        src.initColumnar(10, 1);
+        src.setRelMap(new RelationshipMap[]{new RelationshipMap()});
+        encodeDelta(src);
+    }
+
+    /**
+     * Build a population with delta checkpoint enabled, and return its full checkpoint.
+     */
+    static byte[] initDeltaSource(TestPopulation src) throws IOException {
+        src.initColumnar(20, 2);
+        src.setTime(10);
+        RelationshipMap map = new RelationshipMapTimeStamp();
+        map.setExpiryScheduled(true, 10);
+        map.setDurations(map.addEdge(1, 2), 30);
+        map.setDurations(map.addEdge(3, 4), 2);
+        map.setDurations(map.addEdge(5, 6), 700);
+        src.setRelMap(new RelationshipMap[]{map, new RelationshipMap()});
+        src.setDeltaCheckpointEnabled(true);
+        return encode(src);
+    }
+
+    /**
+     * Advance the source population by one step of deltaT days (see TestPopulation.advanceTimeStep), with changes to persons and relationships.
+     */
+    static void step(TestPopulation src, int deltaT, int seed) {
+        ColumnarPersonStore store = src.getColumnarStore();
+        src.advanceTimeStep(deltaT);
+        store.setInfectionStatus(seed % 2, seed % store.getCapacity(), 1);
+        store.setTimeUntilNextStage(seed % 2, seed % store.getCapacity(), 5 + seed);
+        src.formRelationship((7 + 2 * seed) % store.getCapacity(), (8 + 2 * seed) % store.getCapacity(), 0, 3 + seed);
+        src.formRelationship(seed % store.getCapacity(), (seed + 1) % store.getCapacity(), 1, 2 * deltaT);
+    }
+
+    @Test
+    public void deltaRoundTrip() throws IOException {
+        TestPopulation src = new TestPopulation();
+        TestPopulation dest = decode(initDeltaSource(src));
+        for (int seed = 0; seed < 5; seed++) {
+            step(src, 5, seed);
+            dest.applyPopDeltaFromBinary(new DataInputStream(new ByteArrayInputStream(encodeDelta(src))));
+            assertSamePopulation(src, dest);
+            assertEquals(src.getRelMap()[0].getExpiryClock(), dest.getRelMap()[0].getExpiryClock());
+        }
+        assertSamePopulation(decode(encode(src)), dest);
+    }
+
+    @Test
+    public void deltaKeepsModifiedRelationships() throws IOException {
+        TestPopulation src = new TestPopulation();
+        src.initColumnar(10, 1);
+        src.setTime(10);
+        RelationshipMap scheduled = new RelationshipMapTimeStamp();
+        scheduled.setExpiryScheduled(true, 10);
+        scheduled.addEdge(1, 2).setDurations(30);
+        scheduled.addEdge(3, 4).setDurations(30);
+        RelationshipMap unscheduled = new RelationshipMapPrimitive();
+        unscheduled.addEdge(5, 6).setDurations(20);
+        unscheduled.addEdge(7, 8).setDurations(20);
+        src.setRelMap(new RelationshipMap[]{scheduled, unscheduled});
+        src.setDeltaCheckpointEnabled(true);
+        TestPopulation dest = decode(encode(src));
+
+        src.setTime(12);
+        src.getColumnarStore().incrementAgeAll(2);
+        assertEquals(0, scheduled.pollExpired(12).length);
+        scheduled.getEdge(1, 2).setDurations(100);
+        SingleRelationship rel = scheduled.getEdge(3, 4);
+        scheduled.setTimeUntilExpire(rel, 50);
+        rel.setRelStartTime(7);
+        for (SingleRelationship r : unscheduled.getRelationshipArray()) {
+            r.incrementTime(2);
+        }
+        unscheduled.getEdge(5, 6).setDurations(40);
+        assertEquals(2, scheduled.getModifiedSinceCommit().length);
+        assertEquals(1, unscheduled.getModifiedSinceCommit().length);
+
+        dest.applyPopDeltaFromBinary(new DataInputStream(new ByteArrayInputStream(encodeDelta(src))));
+        assertSamePopulation(src, dest);
+        assertEquals(62, dest.getRelMap()[0].getExpireAt(dest.getRelMap()[0].getEdge(3, 4)), 0);
+        assertEquals(0, scheduled.getModifiedSinceCommit().length);
+    }
+
+    @Test
+    public void compactDeltaChain() throws IOException {
+        TestPopulation src = new TestPopulation();
+        File base = writeTempFile(initDeltaSource(src));
+        File[] deltas = new File[3];
+        for (int seed = 0; seed < deltas.length; seed++) {
+            step(src, 3, seed);
+            deltas[seed] = writeTempFile(encodeDelta(src));
+        }
+        File out = File.createTempFile("compact", ".bin");
+        out.deleteOnExit();
+        CheckpointCompactor.compact(base, deltas, out);
+
+        TestPopulation dest = new TestPopulation();
+        dest.decodePopFromBinaryFile(out);
+        assertSamePopulation(src, dest);
+    }
+
+    @Test(expected = IOException.class)
+    public void deltaOutOfOrderRefused() throws IOException {
+        TestPopulation src = new TestPopulation();
+        TestPopulation dest = decode(initDeltaSource(src));
+        step(src, 1, 0);
+        encodeDelta(src);
+        step(src, 1, 1);
+        dest.applyPopDeltaFromBinary(new DataInputStream(new ByteArrayInputStream(encodeDelta(src))));
+    }
+
+}
@@ -0,0 +1,106 @@
+package population;
+
+import person.AbstractIndividualInterface;
+import relationship.RelationshipMap;
+import relationship.SingleRelationship;
+
+/**
+ * A minimal columnar population for tests. Advancing time only ages persons, counts down stage timers of infected persons and removes expired
+ * relationships, without any infection or partnership formation of its own.
+ *
+ * @author Ben Hui
+ */
+class TestPopulation extends AbstractFieldsArrayPopulation {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int DEFAULT_POP_SIZE = 10;
+
+    /**
+     * Create a columnar store of popSize persons with id equal to slot, alternating gender and age 20 + slot.
+     *
+     * @param popSize number of person
+     * @param numInfection number of infection
+     * @return the columnar store
+     */
+    ColumnarPersonStore initColumnar(int popSize, int numInfection) {
+        ColumnarPersonStore store = useColumnarPopulation(popSize, numInfection);
+        for (int s = 0; s < popSize; s++) {
+            store.setPerson(s, s, s % 2 == 0, 20 + s, 0);
+        }
+        return store;
+    }
+
+    void setTime(int t) {
+        setGlobalTime(t);
+    }
+
+    @Override
+    protected SingleRelationship formRelationship(AbstractIndividualInterface[] pair, RelationshipMap relMap, int d, int mapType) {
+        int a = pair[0].getId();
+        int b = pair[1].getId();
+        if (relMap.containsEdge(a, b)) {
+            return null;
+        }
+        SingleRelationship rel;
+        if (relMap.getClass() == RelationshipMap.class) {
+            // Edge supplier of a plain map cannot create SingleRelationship
+            rel = new SingleRelationship(a, b);
+            for (int v : new int[]{a, b}) {
+                if (!relMap.containsVertex(v)) {
+                    relMap.addVertex(v);
+                }
+            }
+            relMap.addEdge(a, b, rel);
+        } else {
+            rel = relMap.addEdge(a, b);
+        }
+        relMap.setDurations(rel, d);
+        return rel;
+    }
+
+    @Override
+    public void advanceTimeStep(int deltaT) {
+        int time = getGlobalTime() + deltaT;
+        setGlobalTime(time);
+        ColumnarPersonStore store = getColumnarStore();
+        store.incrementAgeAll(deltaT);
+        for (int s = 0; s < store.getCapacity(); s++) {
+            for (int i = 0; i < store.getNumInfection(); i++) {
+                if (store.getInfectionStatus(i, s) != AbstractIndividualInterface.INFECT_S) {
+                    store.setTimeUntilNextStage(i, s, store.getTimeUntilNextStage(i, s) - deltaT);
+                }
+            }
+        }
+        for (RelationshipMap map : getRelMap()) {
+            if (map.isExpiryScheduled()) {
+                for (SingleRelationship rel : map.pollExpired(time)) {
+                    map.removeEdge(rel);
+                }
+            } else {
+                for (SingleRelationship rel : map.edgeSet().toArray(new SingleRelationship[0])) {
+                    if (rel.incrementTime(deltaT) <= 0) {
+                        map.removeEdge(rel);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void initialise() {
+        setGlobalTime(0);
+        initColumnar(DEFAULT_POP_SIZE, 1);
+        setRelMap(new RelationshipMap[]{new RelationshipMap()});
+    }
+
+    /**
+     * Form relationship between persons of id a and b, created by initColumnar.
+     */
+    SingleRelationship formRelationship(int a, int b, int mapType, int durations) {
+        ColumnarPersonStore store = getColumnarStore();
+        return formRelationship(new AbstractIndividualInterface[]{store.getIndividual(a), store.getIndividual(b)}, getRelMap()[mapType], durations,
+                mapType);
+    }
+
+}
@@ -0,0 +1,170 @@
+package relationship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests of ContactMap clustering against the recursive depth-first search it replaced.
+ *
+ * @author Ben Hui
+ */
+public class ContactMapTest {
+
+    /**
+     * The original recursive implementation of getContactCluster, kept as reference.
+     */
+    private static Set<ContactMap> recursiveContactCluster(ContactMap map) {
+        Set<ContactMap> res = new HashSet<>();
+        Set<Integer> allV = map.vertexSet();
+        Integer[] inSubMap = new Integer[allV.size()];
+        int inSubMapNext = 0;
+        for (Integer v : allV) {
+            int vInsert = Arrays.binarySearch(inSubMap, 0, inSubMapNext, v);
+            if (vInsert < 0) {
+                int insertPt = ~vInsert;
+                System.arraycopy(inSubMap, insertPt, inSubMap, insertPt + 1, inSubMapNext - insertPt);
+                inSubMap[insertPt] = v;
+                inSubMapNext++;
+                ContactMap subMap = new ContactMap();
+                subMap.setId(v);
+                res.add(subMap);
+                inSubMapNext = addToSubMapDFS(map, inSubMap, inSubMapNext, v, subMap);
+            }
+        }
+        return res;
+    }
+
+    private static int addToSubMapDFS(ContactMap map, Integer[] inSubMap, int inSubMapNext, Integer newV, ContactMap subMap) {
+        subMap.addVertex(newV);
+        for (Integer[] e : map.edgesOf(newV)) {
+            Integer neighbour = e[0].equals(newV) ? e[1] : e[0];
+            int nInst = Arrays.binarySearch(inSubMap, 0, inSubMapNext, neighbour);
+            if (nInst < 0) {
+                System.arraycopy(inSubMap, ~nInst, inSubMap, ~nInst + 1, inSubMapNext - ~nInst);
+                inSubMap[~nInst] = neighbour;
+                inSubMapNext++;
+            }
+            if (!subMap.containsVertex(neighbour)) {
+                subMap.addVertex(neighbour);
+            }
+            Integer[] subMapEdge = Arrays.copyOf(e, e.length);
+            subMapEdge[0] = newV < neighbour ? newV : neighbour;
+            subMapEdge[1] = newV < neighbour ? neighbour : newV;
+            if (!subMap.containsEdge(subMapEdge[0], subMapEdge[1])) {
+                subMap.addEdge(subMapEdge[0], subMapEdge[1], subMapEdge);
+                inSubMapNext = addToSubMapDFS(map, inSubMap, inSubMapNext, neighbour, subMap);
+            }
+        }
+        return inSubMapNext;
+    }
+
+    /**
+     * Describe clusters as id to sorted vertices and edges, independent of set and edge order.
+     */
+    private static Map<Long, String> describe(Set<ContactMap> clusters) {
+        Map<Long, String> res = new HashMap<>();
+        for (ContactMap c : clusters) {
+            TreeSet<String> edges = new TreeSet<>();
+            for (Integer[] e : c.edgeSet()) {
+                edges.add(Arrays.toString(e));
+            }
+            assertNull("Duplicate cluster id " + c.getId(), res.put(c.getId(), new TreeSet<>(c.vertexSet()) + " " + edges));
+        }
+        return res;
+    }
+
+    private static ContactMap randomMap(Random rng, int numVertex, int numEdge) {
+        ContactMap map = new ContactMap();
+        while (map.vertexSet().size() < numVertex) {
+            map.addVertex(rng.nextInt(100000));
+        }
+        List<Integer> vertices = new ArrayList<>(map.vertexSet());
+        for (int i = 0; i < numEdge; i++) {
+            int a = vertices.get(rng.nextInt(vertices.size()));
+            int b = vertices.get(rng.nextInt(vertices.size()));
+            if (a != b && !map.containsEdge(a, b)) {
+                // Edge fields not always in ascending order of vertex
+                map.addEdge(a, b, new Integer[]{a, b, i});
+            }
+        }
+        return map;
+    }
+
+    @Test
+    public void contactClusterMatchesRecursive() {
+        Random rng = new Random(3);
+        for (int trial = 0; trial < 20; trial++) {
+            int numVertex = 10 + rng.nextInt(1000);
+            ContactMap map = randomMap(rng, numVertex, rng.nextInt(numVertex + numVertex / 2));
+            assertEquals(describe(recursiveContactCluster(map)), describe(map.getContactCluster()));
+        }
+    }
+
+    @Test
+    public void trackedClusterMatchesRecursive() {
+        Random rng = new Random(5);
+        ContactMap map = new ContactMap();
+        map.setClusterTracking(true);
+        List<Integer> vertices = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            if (vertices.size() < 2 || rng.nextInt(3) == 0) {
+                int v = rng.nextInt(100000);
+                if (map.addVertex(v)) {
+                    vertices.add(v);
+                }
+            } else {
+                int a = vertices.get(rng.nextInt(vertices.size()));
+                int b = vertices.get(rng.nextInt(vertices.size()));
+                if (a != b && !map.containsEdge(a, b)) {
+                    map.addEdge(a, b, new Integer[]{a, b, i});
+                }
+            }
+            if (i % 200 == 0 || i == 1999) {
+                Set<ContactMap> expected = recursiveContactCluster(map);
+                assertEquals(expected.size(), map.getNumCluster());
+                int largest = 0;
+                for (ContactMap c : expected) {
+                    largest = Math.max(largest, c.vertexSet().size());
+                    for (Integer v : c.vertexSet()) {
+                        assertEquals(c.vertexSet().size(), map.getClusterSize(v));
+                        assertEquals(c.edgeSet().size(), map.getClusterNumEdge(v));
+                    }
+                }
+                assertEquals(largest, map.getLargestClusterSize());
+                assertEquals(describe(expected), describe(map.getContactCluster()));
+            }
+        }
+        // Removal invalidates tracking until clusters are recomputed
+        Integer[] e = map.edgeSet().iterator().next();
+        map.removeEdge(e);
+        assertEquals(describe(recursiveContactCluster(map)), describe(map.getContactCluster()));
+        assertEquals(recursiveContactCluster(map).size(), map.getNumCluster());
+    }
+
+    @Test
+    public void longChainWithoutStackOverflow() {
+        ContactMap chain = new ContactMap();
+        int length = 200000;
+        for (int i = 0; i < length; i++) {
+            chain.addVertex(i);
+        }
+        for (int i = 1; i < length; i++) {
+            chain.addEdge(i - 1, i);
+        }
+        List<ContactCluster> clusters = chain.getContactClusters();
+        assertEquals(1, clusters.size());
+        assertEquals(length, clusters.get(0).getVertices().length);
+        assertEquals(length - 1, clusters.get(0).getNumEdge());
+        assertEquals(length - 1, clusters.get(0).getContactMap().edgeSet().size());
+    }
+
+}
@@ -0,0 +1,153 @@
+package relationship;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Round trip tests of EdgeListBinaryCodec.
+ *
+ * @author Ben Hui
+ */
+public class EdgeListBinaryCodecTest {
+
+    private static final byte[] ENCODINGS = new byte[]{EdgeListBinaryCodec.ENCODING_FIXED, EdgeListBinaryCodec.ENCODING_VARINT};
+
+    private static TreeSet<String> edges(java.util.Collection<Integer[]> edgeSet) {
+        TreeSet<String> res = new TreeSet<>();
+        for (Integer[] e : edgeSet) {
+            res.add(Arrays.toString(e));
+        }
+        return res;
+    }
+
+    /**
+     * Build a transmission map with more edges than a block, with edge of given width or mixed width if edgeWidth is 0.
+     */
+    private static TransmissionMap randomTransmissionMap(Random rng, int numEdge, int edgeWidth) {
+        TransmissionMap map = new TransmissionMap();
+        map.setId(1234567890123L + numEdge);
+        int time = 0;
+        for (int i = 0; i < numEdge; i++) {
+            int a = rng.nextInt(500000);
+            int b = rng.nextInt(500000);
+            if (a == b) {
+                continue;
+            }
+            // Mostly increasing time, with occasional negative and extreme values
+            time += rng.nextInt(3);
+            int w = edgeWidth > 0 ? edgeWidth : 2 + rng.nextInt(4);
+            Integer[] e = new Integer[w];
+            e[0] = a;
+            e[1] = b;
+            if (w > 2) {
+                e[2] = time;
+            }
+            if (w > 3) {
+                e[3] = -rng.nextInt();
+            }
+            if (w > 4) {
+                e[4] = Integer.MIN_VALUE;
+            }
+            if (!map.containsVertex(a)) {
+                map.addVertex(a);
+            }
+            if (!map.containsVertex(b)) {
+                map.addVertex(b);
+            }
+            map.addEdge(a, b, e);
+        }
+        return map;
+    }
+
+    @Test
+    public void transmissionMapRoundTrip() throws IOException {
+        Random rng = new Random(7);
+        for (int edgeWidth : new int[]{3, 0}) {
+            for (int numEdge : new int[]{0, 1, EdgeListBinaryCodec.BLOCK_SIZE, 3 * EdgeListBinaryCodec.BLOCK_SIZE + 17}) {
+                TransmissionMap map = randomTransmissionMap(rng, numEdge, edgeWidth);
+                for (byte encoding : ENCODINGS) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    EdgeListBinaryCodec.encode(map, new DataOutputStream(bytes), encoding);
+
+                    TransmissionMap fromStream = EdgeListBinaryCodec.decodeTransmissionMap(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+                    TransmissionMap fromBuffer = EdgeListBinaryCodec.decodeTransmissionMap(ByteBuffer.wrap(bytes.toByteArray()));
+                    assertEquals(map.getId(), fromStream.getId());
+                    assertEquals(map.getId(), fromBuffer.getId());
+                    assertEquals(map.edgeSet().size(), fromStream.edgeSet().size());
+                    assertEquals(edges(map.edgeSet()), edges(fromStream.edgeSet()));
+                    assertEquals(edges(map.edgeSet()), edges(fromBuffer.edgeSet()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void contactMapRoundTrip() throws IOException {
+        ContactMap map = new ContactMap();
+        map.setId(5);
+        for (int i = 0; i < 100; i++) {
+            map.addVertex(i);
+        }
+        for (int i = 1; i < 100; i++) {
+            map.addEdge(i - 1, i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        map.toBinary(new DataOutputStream(bytes));
+
+        ContactMap decoded = ContactMap.ContactMapFromBinary(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(5, decoded.getId());
+        assertEquals(edges(map.edgeSet()), edges(decoded.edgeSet()));
+        assertEquals(edges(map.edgeSet()), edges(EdgeListBinaryCodec.decodeContactMap(ByteBuffer.wrap(bytes.toByteArray())).edgeSet()));
+    }
+
+    @Test
+    public void writerReaderRoundTrip() throws IOException {
+        Random rng = new Random(11);
+        List<int[]> written = new ArrayList<>();
+        for (int i = 0; i < 2 * EdgeListBinaryCodec.BLOCK_SIZE + 5; i++) {
+            int[] e = new int[4];
+            for (int k = 0; k < e.length; k++) {
+                e[k] = rng.nextInt() >> rng.nextInt(32);
+            }
+            written.add(e);
+        }
+        for (byte encoding : ENCODINGS) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (EdgeListBinaryCodec.Writer writer = new EdgeListBinaryCodec.Writer(new DataOutputStream(bytes), 4, encoding, 42)) {
+                for (int[] e : written) {
+                    writer.writeEdge(e);
+                }
+            }
+            for (EdgeListBinaryCodec.Reader reader : new EdgeListBinaryCodec.Reader[]{
+                new EdgeListBinaryCodec.Reader(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))),
+                new EdgeListBinaryCodec.Reader(ByteBuffer.wrap(bytes.toByteArray()))}) {
+                assertEquals(42, reader.getId());
+                assertEquals(4, reader.getEdgeWidth());
+                assertEquals(encoding, reader.getEncoding());
+                int n = 0;
+                int[] e;
+                while ((e = reader.next()) != null) {
+                    assertArrayEquals(written.get(n++), e);
+                }
+                assertEquals(written.size(), n);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void badMagicRefused() throws IOException {
+        EdgeListBinaryCodec.decodeTransmissionMap(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 0, 0, 0, 1}));
+    }
+
+}
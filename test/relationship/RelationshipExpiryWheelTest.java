@@ -0,0 +1,120 @@
+package relationship;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests that scheduled relationship expiry removes the same relationships as incrementTime of each relationship.
+ *
+ * @author Ben Hui
+ */
+public class RelationshipExpiryWheelTest {
+
+    /**
+     * @param setOnRelationship if durations of relationship added are set through the relationship after it is added, as existing callers do,
+     * instead of through the map
+     */
+    private static void scheduledMatchesIncrementTime(RelationshipMap scheduled, boolean setOnRelationship) {
+        RelationshipMap reference = new RelationshipMapTimeStamp();
+        scheduled.setExpiryScheduled(true, 0);
+        Random rng = new Random(3);
+        for (int t = 1; t <= 2000; t++) {
+            for (int k = 0; k < 30; k++) {
+                int a = rng.nextInt(500);
+                int b = 500 + rng.nextInt(500);
+                if (!reference.containsEdge(a, b)) {
+                    // Some relationships last longer than one revolution of the wheel
+                    double duration = rng.nextInt(10) == 0 ? rng.nextDouble() * 5000 : rng.nextDouble() * 20;
+                    reference.addEdge(a, b).setDurations(duration);
+                    if (setOnRelationship) {
+                        scheduled.addEdge(a, b).setDurations(duration);
+                    } else {
+                        scheduled.setDurations(scheduled.addEdge(a, b), duration);
+                    }
+                }
+            }
+            for (int k = 0; k < 3 && reference.getNumRelationship() > 0; k++) {
+                SingleRelationship rel = reference.getRelationshipAt(rng.nextInt(reference.getNumRelationship()));
+                Integer[] links = rel.getLinks();
+                reference.removeEdge(rel);
+                scheduled.removeEdge(links[0], links[1]);
+            }
+
+            TreeSet<String> expected = new TreeSet<>();
+            for (SingleRelationship rel : reference.getRelationshipArray()) {
+                if (rel.incrementTime(1) <= 0) {
+                    expected.add(Arrays.toString(rel.getLinks()));
+                    reference.removeEdge(rel);
+                }
+            }
+            TreeSet<String> expired = new TreeSet<>();
+            for (SingleRelationship rel : scheduled.pollExpired(t)) {
+                expired.add(Arrays.toString(rel.getLinks()));
+                scheduled.removeEdge(rel);
+            }
+            assertEquals("Expired at time " + t, expected, expired);
+
+            if (t == 1000) {
+                // Time until expire is kept when switching scheduling off and on
+                scheduled.setExpiryScheduled(false, t);
+                for (SingleRelationship rel : scheduled.getRelationshipArray()) {
+                    SingleRelationship ref = reference.getEdge(rel.getLinks()[0], rel.getLinks()[1]);
+                    assertEquals(ref.getTimeUntilExpire(), rel.getTimeUntilExpire(), 1e-9);
+                }
+                scheduled.setExpiryScheduled(true, t);
+            }
+        }
+        assertEquals(reference.getNumRelationship(), scheduled.getNumRelationship());
+    }
+
+    @Test
+    public void timeStampMapMatchesIncrementTime() {
+        scheduledMatchesIncrementTime(new RelationshipMapTimeStamp(), false);
+    }
+
+    @Test
+    public void primitiveMapMatchesIncrementTime() {
+        scheduledMatchesIncrementTime(new RelationshipMapPrimitive(), false);
+    }
+
+    @Test
+    public void durationsSetAfterAddMatchesIncrementTime() {
+        scheduledMatchesIncrementTime(new RelationshipMapTimeStamp(), true);
+        scheduledMatchesIncrementTime(new RelationshipMapPrimitive(), true);
+    }
+
+    @Test
+    public void durationsSetAfterRemoveNotScheduled() {
+        RelationshipMap map = new RelationshipMapTimeStamp();
+        map.setExpiryScheduled(true, 0);
+        SingleRelationship rel = map.addEdge(1, 2);
+        rel.setDurations(5);
+        assertEquals(5, map.getExpireAt(rel), 0);
+        map.removeEdge(rel);
+        rel.setDurations(2);
+        assertEquals(0, map.pollExpired(10).length);
+    }
+
+    @Test
+    public void cancelAndMove() {
+        RelationshipExpiryWheel wheel = new RelationshipExpiryWheel(4, 10);
+        wheel.schedule(0, 12.5);
+        wheel.schedule(1, 11);
+        wheel.schedule(2, 30);
+        assertEquals(3, wheel.size());
+        assertEquals(2.5, wheel.cancel(0), 0);
+        assertFalse(wheel.isScheduled(0));
+        wheel.move(2, 0);
+        assertTrue(wheel.isScheduled(0));
+        assertFalse(wheel.isScheduled(2));
+        assertEquals(30, wheel.getExpireAt(0), 0);
+        assertArrayEquals(new int[]{1}, wheel.pollExpired(13));
+        assertArrayEquals(new int[0], wheel.pollExpired(29));
+        assertArrayEquals(new int[]{0}, wheel.pollExpired(30));
+        assertEquals(0, wheel.size());
+    }
+
+}
@@ -0,0 +1,168 @@
+package relationship;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that TransmissionMapLoader gives the same edges, in the same order, as sequential parsing.
+ *
+ * @author Ben Hui
+ */
+public class TransmissionMapLoaderTest {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private ForkJoinPool pool;
+    private TransmissionMapLoader loader;
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        pool = new ForkJoinPool(8);
+        // Small chunks, so each file is split into many chunks with boundaries within lines
+        loader = new TransmissionMapLoader(pool, CHUNK_SIZE);
+        dir = Files.createTempDirectory("loader");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        pool.shutdownNow();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private static List<String> toList(EdgeListBuffer buffer) {
+        List<String> res = new ArrayList<>();
+        buffer.forEachEdge(e -> res.add(Arrays.toString(e)));
+        return res;
+    }
+
+    private static List<String> parseSequential(Path file) throws IOException {
+        List<String> res = new ArrayList<>();
+        EdgeListTextParser.parse(file, e -> res.add(Arrays.toString(e)));
+        return res;
+    }
+
+    /**
+     * Write a text edge list with mixed line ending, edge width, negative values and short lines to be skipped.
+     */
+    private Path writeTextFile(Random rng, String name, int numEdge) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numEdge; i++) {
+            int w = 3 + rng.nextInt(2);
+            for (int k = 0; k < w; k++) {
+                if (k > 0) {
+                    sb.append(',');
+                }
+                sb.append(rng.nextInt(1000000) - 500);
+            }
+            sb.append(rng.nextInt(5) == 0 ? "\r\n" : "\n");
+            if (rng.nextInt(100) == 0) {
+                sb.append("1,2\n");
+            }
+        }
+        Path file = dir.resolve(name);
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private Path writeBinaryFile(Random rng, String name, int numEdge, List<String> written) throws IOException {
+        Path file = dir.resolve(name);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+                EdgeListBinaryCodec.Writer writer = new EdgeListBinaryCodec.Writer(out, 0, EdgeListBinaryCodec.ENCODING_VARINT, 1)) {
+            for (int i = 0; i < numEdge; i++) {
+                int[] e = new int[3 + rng.nextInt(2)];
+                for (int k = 0; k < e.length; k++) {
+                    e[k] = rng.nextInt(1000000) - 500;
+                }
+                writer.writeEdge(e);
+                written.add(Arrays.toString(e));
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void textMatchesSequentialParse() throws IOException {
+        Random rng = new Random(11);
+        for (int numEdge : new int[]{0, 1, 100, 50000}) {
+            Path file = writeTextFile(rng, "edges_" + numEdge + ".csv", numEdge);
+            List<String> expected = parseSequential(file);
+            assertEquals(numEdge, expected.size());
+            assertEquals(expected, toList(loader.load(file)));
+        }
+    }
+
+    @Test
+    public void binaryMatchesWritten() throws IOException {
+        List<String> written = new ArrayList<>();
+        Path file = writeBinaryFile(new Random(13), "edges.bin", 20000, written);
+        assertEquals(written, toList(loader.load(file)));
+        assertEquals(written.size(), loader.loadTransmissionMap(file).edgeSet().size());
+    }
+
+    @Test
+    public void loadAllFiles() throws IOException {
+        Random rng = new Random(17);
+        Path[] files = new Path[9];
+        List<List<String>> expected = new ArrayList<>();
+        for (int f = 0; f < files.length; f++) {
+            if (f % 3 == 2) {
+                List<String> written = new ArrayList<>();
+                files[f] = writeBinaryFile(rng, "f" + f + ".bin", rng.nextInt(20000), written);
+                expected.add(written);
+            } else {
+                files[f] = writeTextFile(rng, "f" + f + ".csv", rng.nextInt(20000));
+                expected.add(parseSequential(files[f]));
+            }
+        }
+        ConcurrentHashMap<Integer, List<String>> loaded = new ConcurrentHashMap<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        loader.loadAll(files, 3, (fileIndex, edges) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            loaded.put(fileIndex, toList(edges));
+            inFlight.decrementAndGet();
+        });
+        assertTrue(maxInFlight.get() <= 3);
+        for (int f = 0; f < files.length; f++) {
+            assertEquals(expected.get(f), loaded.get(f));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void invalidFieldRefused() throws IOException {
+        Path file = dir.resolve("bad.csv");
+        Files.write(file, "1,2,3\n4,x,6\n".getBytes(StandardCharsets.UTF_8));
+        loader.load(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void missingFileRefused() throws IOException {
+        List<String> written = new ArrayList<>();
+        Path file = writeBinaryFile(new Random(19), "edges.bin", 10, written);
+        loader.loadAll(new Path[]{file, dir.resolve("missing.csv")}, 2, (fileIndex, edges) -> {
+        });
+    }
+
+}
@@ -0,0 +1,102 @@
+package util;
+
+import java.util.HashMap;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests of IntIntHashMap, mainly that backward shift deletion keeps every remaining key reachable.
+ *
+ * @author Ben Hui
+ */
+public class IntIntHashMapTest {
+
+    private static void assertSameContent(HashMap<Integer, Integer> expected, IntIntHashMap map) {
+        assertEquals(expected.size(), map.size());
+        for (int key : map.keys()) {
+            assertTrue(expected.containsKey(key));
+        }
+        for (Integer key : expected.keySet()) {
+            assertTrue(map.containsKey(key));
+            assertEquals(expected.get(key).intValue(), map.get(key));
+        }
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random rng = new Random(1);
+        IntIntHashMap map = new IntIntHashMap();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 500000; i++) {
+            int key = rng.nextInt(5000) - 100;
+            switch (rng.nextInt(3)) {
+                case 0:
+                    int value = rng.nextInt();
+                    Integer pre = expected.put(key, value);
+                    assertEquals(pre == null ? -1 : pre, map.put(key, value));
+                    break;
+                case 1:
+                    Integer removed = expected.remove(key);
+                    assertEquals(removed == null ? -1 : removed, map.remove(key));
+                    break;
+                default:
+                    Integer got = expected.get(key);
+                    assertEquals(got == null ? -1 : got, map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertSameContent(expected, map);
+    }
+
+    @Test
+    public void removeFromSmallTable() {
+        // Half full minimum size table, so probe runs are long and often wrap around the end of table
+        Random rng = new Random(2);
+        for (int trial = 0; trial < 2000; trial++) {
+            IntIntHashMap map = new IntIntHashMap(8, -1);
+            HashMap<Integer, Integer> expected = new HashMap<>();
+            while (expected.size() < 8) {
+                int key = rng.nextInt();
+                if (key != Integer.MIN_VALUE && !expected.containsKey(key)) {
+                    map.put(key, trial);
+                    expected.put(key, trial);
+                }
+            }
+            Integer[] keys = expected.keySet().toArray(new Integer[0]);
+            for (int i = keys.length - 1; i > 0; i--) {
+                int j = rng.nextInt(i + 1);
+                Integer tmp = keys[i];
+                keys[i] = keys[j];
+                keys[j] = tmp;
+            }
+            for (Integer key : keys) {
+                assertEquals(trial, map.remove(key));
+                expected.remove(key);
+                assertSameContent(expected, map);
+                assertEquals(-1, map.remove(key));
+            }
+            assertTrue(map.isEmpty());
+        }
+    }
+
+    @Test
+    public void shrinkAfterRemoval() {
+        IntIntHashMap map = new IntIntHashMap(0, Integer.MIN_VALUE);
+        for (int i = 0; i < 100000; i++) {
+            map.put(i * 31, i);
+        }
+        for (int i = 0; i < 100000; i++) {
+            if (i % 1000 != 0) {
+                assertEquals(i, map.remove(i * 31));
+            }
+        }
+        assertEquals(100, map.size());
+        for (int i = 0; i < 100000; i += 1000) {
+            assertEquals(i, map.get(i * 31));
+        }
+        assertEquals(Integer.MIN_VALUE, map.get(1));
+        assertFalse(map.containsKey(Integer.MIN_VALUE));
+    }
+
+}